@@ -183,6 +183,21 @@ public final class J2clArtifact implements Comparable<J2clArtifact> {
         return result;
     }
 
+    /**
+     * Creates an artifact with the given archive, whose dependencies are added to {@link #dependencies()}.
+     */
+    // @VisibleForTesting
+    static J2clArtifact with(final J2clArtifactCoords coords,
+                             final Optional<J2clPath> artifactFile,
+                             final J2clMavenContext context) {
+        return new J2clArtifact(
+                coords,
+                null,
+                artifactFile,
+                context
+        );
+    }
+
     // ctor.............................................................................................................
 
     private J2clArtifact(final J2clArtifactCoords coords,
@@ -1263,6 +1278,49 @@ public final class J2clArtifact implements Comparable<J2clArtifact> {
 
     private final AtomicReference<J2clPath> directory = new AtomicReference<>();
 
+    /**
+     * Finds the most recently written {@link J2clTaskKind#HASH} tree file of an earlier build of this artifact in
+     * the cache, ignoring the current directory.
+     */
+    public Optional<J2clPath> previousHashTreeFile() throws IOException {
+        final String prefix = this.coords.directorySafeName() + "-";
+        final Path current = this.directory()
+                .path();
+        final String hashDirectoryName = this.context.directoryName(
+                this,
+                J2clTaskKind.HASH
+        );
+
+        J2clPath previous = null;
+        long previousLastModified = Long.MIN_VALUE;
+
+        try (final Stream<Path> directories = Files.list(this.context.cache().path())) {
+            for (final Path directory : (Iterable<Path>) directories::iterator) {
+                final String name = directory.getFileName()
+                        .toString();
+
+                // skip other artifacts that share the same prefix and hashes computed by another algorithm.
+                if (name.startsWith(prefix) &&
+                        this.context.hashAlgorithm().isDirectoryName(name.substring(prefix.length())) &&
+                        false == directory.equals(current)) {
+                    final J2clPath file = J2clPath.with(directory)
+                            .append(hashDirectoryName)
+                            .hashTreeFile();
+                    if (file.exists().isPresent()) {
+                        final long lastModified = Files.getLastModifiedTime(file.path())
+                                .toMillis();
+                        if (lastModified > previousLastModified) {
+                            previous = file;
+                            previousLastModified = lastModified;
+                        }
+                    }
+                }
+            }
+        }
+
+        return Optional.ofNullable(previous);
+    }
+
     /**
      * Returns a compile task directory, assuming the directory has already been created.
      */
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven;
+
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.hash.HashBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content addressed store of files shared by all artifacts in the cache. After a task completes each file in its
+ * output is replaced by a hard link to the blob with the same digest, or becomes that blob when none exists, so
+ * identical outputs of different versions or hashes of an artifact share a single copy on disk.
+ * <br>
+ * Blobs are made read only, because a write to any link would change every file sharing it. When the file system does
+ * not support hard links the store is disabled for the remainder of the build and files are left as they are.
+ * <br>
+ * Blobs no longer linked by any file are deleted by {@link #prune()} at most once a day.
+ */
+final class J2clBlobStore {
+
+    /**
+     * The name of the directory under the cache holding the blobs.
+     */
+    final static String DIRECTORY = "blobs";
+
+    static J2clBlobStore with(final J2clPath directory,
+                              final HashAlgorithm hashAlgorithm) {
+        return new J2clBlobStore(
+                directory,
+                hashAlgorithm
+        );
+    }
+
+    private J2clBlobStore(final J2clPath directory,
+                          final HashAlgorithm hashAlgorithm) {
+        super();
+        this.directory = directory.path();
+        this.hashAlgorithm = hashAlgorithm;
+    }
+
+    /**
+     * Links every file under the given output directory to the store, returning the number of files that were
+     * replaced by a link to an existing blob.
+     */
+    int link(final J2clPath output) throws IOException {
+        final AtomicInteger shared = new AtomicInteger();
+
+        if (this.enabled && output.exists().isPresent()) {
+            final List<Path> files;
+            try (final Stream<Path> walk = Files.walk(output.path())) {
+                files = walk.filter(Files::isRegularFile)
+                        .collect(Collectors.toList());
+            }
+
+            try {
+                files.parallelStream()
+                        .forEach(f -> {
+                            if (this.enabled && this.link(f)) {
+                                shared.incrementAndGet();
+                            }
+                        });
+            } catch (final UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+        }
+
+        return shared.get();
+    }
+
+    /**
+     * Returns true if the file was replaced by a link to an existing blob.
+     */
+    private boolean link(final Path file) {
+        boolean shared = false;
+
+        try {
+            final long size = Files.size(file);
+            if (size > 0) {
+                final String digest = HashBuilder.with(this.hashAlgorithm)
+                        .append(file)
+                        .build();
+                final Path blob = this.blob(digest);
+                Files.createDirectories(blob.getParent());
+
+                try {
+                    Files.createLink(blob, file);
+                    readOnly(blob);
+                } catch (final FileAlreadyExistsException exists) {
+                    if (size == Files.size(blob) && false == Files.isSameFile(blob, file)) {
+                        final Path temp = file.resolveSibling(file.getFileName() + LINK_SUFFIX);
+                        Files.deleteIfExists(temp);
+                        Files.createLink(temp, blob);
+                        Files.move(
+                                temp,
+                                file,
+                                StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.ATOMIC_MOVE
+                        );
+                        shared = true;
+                    }
+                }
+            }
+        } catch (final UnsupportedOperationException unsupported) {
+            this.enabled = false;
+        } catch (final FileSystemException cause) {
+            // too many links or links not permitted, the file keeps its own copy.
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+
+        return shared;
+    }
+
+    /**
+     * Deletes blobs that are no longer linked by any file, unless the store was pruned within the last day, returning
+     * the number of blobs deleted. Nothing is deleted when the file system does not report the link count of a file.
+     */
+    int prune() throws IOException {
+        int pruned = 0;
+
+        final Path marker = this.directory.resolve(PRUNED_FILE);
+        if (Files.isDirectory(this.directory) &&
+                (Files.notExists(marker) ||
+                        Files.getLastModifiedTime(marker).toMillis() + PRUNE_INTERVAL < System.currentTimeMillis())) {
+            final List<Path> blobs;
+            try (final Stream<Path> walk = Files.walk(this.directory, 2)) {
+                blobs = walk.filter(Files::isRegularFile)
+                        .filter(b -> false == this.directory.equals(b.getParent()))
+                        .collect(Collectors.toList());
+            }
+
+            try {
+                for (final Path blob : blobs) {
+                    if (1 == (Integer) Files.getAttribute(blob, "unix:nlink")) {
+                        Files.deleteIfExists(blob);
+                        pruned++;
+                    }
+                }
+            } catch (final UnsupportedOperationException | IllegalArgumentException unsupported) {
+                // link counts are not available.
+            }
+
+            Files.write(marker, new byte[0]);
+        }
+
+        return pruned;
+    }
+
+    /**
+     * The file in the store directory whose last modified time records when the store was last pruned.
+     */
+    private final static String PRUNED_FILE = "pruned";
+
+    private final static long PRUNE_INTERVAL = 24 * 60 * 60 * 1000;
+
+    /**
+     * Blobs are sharded by the first two characters of their digest, keeping directories small.
+     */
+    private Path blob(final String digest) {
+        return this.directory.resolve(digest.substring(0, 2))
+                .resolve(this.hashAlgorithm.directoryName(digest));
+    }
+
+    private static void readOnly(final Path blob) throws IOException {
+        if (null != Files.getFileAttributeView(blob, PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(
+                    blob,
+                    PosixFilePermissions.fromString("r--r--r--")
+            );
+        }
+    }
+
+    private final static String LINK_SUFFIX = ".link";
+
+    private final Path directory;
+
+    private final HashAlgorithm hashAlgorithm;
+
+    /**
+     * Cleared when the file system does not support hard links.
+     */
+    private volatile boolean enabled = true;
+
+    @Override
+    public String toString() {
+        return this.directory.toString();
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.collect.set.SortedSets;
+import walkingkooka.j2cl.maven.hash.AbiDigest;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.hash.HashBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A graph of the class files under a directory such as the build-output-directory of the IDE. Each class records its
+ * compilation unit, a digest of its content and its {@link AbiDigest} and the other classes under the directory
+ * referenced by its constant pool, member descriptors and signatures. Comparing the graph of the last successful build
+ * with the current selects the compilation units that changed along with those that reference them.
+ * <br>
+ * Constants inlined by javac are not references, so a change to a constant only rebuilds its own compilation unit.
+ */
+public final class J2clClassDependencyGraph {
+
+    /**
+     * The file under the directory of the project holding the graph of the last successful build.
+     */
+    final static String FILE = "class-dependencies.txt";
+
+    /**
+     * Builds a graph of the files under the given directory, which need not exist.
+     */
+    public static J2clClassDependencyGraph build(final J2clPath directory,
+                                                 final HashAlgorithm algorithm) throws IOException {
+        final Map<String, J2clClassDependencyGraphClass> classes = Maps.sorted();
+        final Map<String, String> files = Maps.sorted();
+
+        if (directory.exists().isPresent()) {
+            for (final J2clPath file : directory.gatherFiles(J2clPath.ALL_FILES)) {
+                final Path path = file.path();
+                final byte[] content = Files.readAllBytes(path);
+                final String digest = HashBuilder.with(algorithm)
+                        .append(content)
+                        .build();
+
+                if (J2clPath.CLASS_FILEEXTENSION.test(path)) {
+                    readClass(
+                            content,
+                            digest,
+                            HashBuilder.with(algorithm)
+                                    .append(AbiDigest.abi(content))
+                                    .build(),
+                            classes
+                    );
+                } else {
+                    files.put(
+                            directory.path()
+                                    .relativize(path)
+                                    .toString()
+                                    .replace('\\', '/'),
+                            digest
+                    );
+                }
+            }
+
+            // only classes under the directory are interesting, all others are library classes.
+            for (final J2clClassDependencyGraphClass clazz : classes.values()) {
+                clazz.references.retainAll(classes.keySet());
+            }
+        }
+
+        return new J2clClassDependencyGraph(
+                classes,
+                files
+        );
+    }
+
+    private static void readClass(final byte[] content,
+                                  final String digest,
+                                  final String abi,
+                                  final Map<String, J2clClassDependencyGraphClass> classes) {
+        final ClassReader reader = new ClassReader(content);
+        final Set<String> references = SortedSets.tree();
+
+        // class entries and the descriptors of fields and methods referenced by code
+        final char[] buffer = new char[reader.getMaxStringLength()];
+        final int count = reader.getItemCount();
+        for (int i = 1; i < count; i++) {
+            final int offset = reader.getItem(i);
+            if (offset > 0) { // the second slot of a long or double has no offset
+                switch (content[offset - 1]) {
+                    case CONSTANT_CLASS:
+                    case CONSTANT_METHOD_TYPE:
+                        references(
+                                reader.readUTF8(offset, buffer),
+                                references
+                        );
+                        break;
+                    case CONSTANT_NAME_AND_TYPE:
+                        references(
+                                reader.readUTF8(offset + 2, buffer),
+                                references
+                        );
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        final AtomicReference<String> sourceFile = new AtomicReference<>();
+
+        reader.accept(new ClassVisitor(Opcodes.ASM7) {
+
+            @Override
+            public void visitSource(final String source,
+                                    final String debug) {
+                sourceFile.set(source);
+            }
+
+            @Override
+            public void visit(final int version,
+                              final int access,
+                              final String name,
+                              final String signature,
+                              final String superName,
+                              final String[] interfaces) {
+                references(signature, references);
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(final String descriptor,
+                                                     final boolean visible) {
+                references(descriptor, references);
+                return null;
+            }
+
+            @Override
+            public FieldVisitor visitField(final int access,
+                                           final String name,
+                                           final String descriptor,
+                                           final String signature,
+                                           final Object value) {
+                references(descriptor, references);
+                references(signature, references);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(final int access,
+                                             final String name,
+                                             final String descriptor,
+                                             final String signature,
+                                             final String[] exceptions) {
+                references(descriptor, references);
+                references(signature, references);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+
+        final String name = reader.getClassName();
+        references.remove(name);
+
+        final int slash = name.lastIndexOf('/');
+        final String source = sourceFile.get();
+
+        classes.put(
+                name,
+                new J2clClassDependencyGraphClass(
+                        name.substring(0, slash + 1) +
+                                (null != source ?
+                                        source :
+                                        topLevel(name.substring(slash + 1)) + ".java"),
+                        digest,
+                        abi,
+                        references
+                )
+        );
+    }
+
+    private final static int CONSTANT_CLASS = 7;
+
+    private final static int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final static int CONSTANT_METHOD_TYPE = 16;
+
+    /**
+     * Adds the internal name, descriptor or signature, which may be null, or the types it mentions to the references.
+     */
+    private static void references(final String nameOrDescriptor,
+                                   final Set<String> references) {
+        if (null != nameOrDescriptor) {
+            if (nameOrDescriptor.indexOf(';') == -1) {
+                references.add(nameOrDescriptor);
+            } else {
+                final Matcher matcher = TYPE.matcher(nameOrDescriptor);
+                while (matcher.find()) {
+                    references.add(matcher.group(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Matches the internal name of each object type within a descriptor or signature.
+     */
+    private final static Pattern TYPE = Pattern.compile("L([^;<]+)");
+
+    private static String topLevel(final String simpleName) {
+        final int dollar = simpleName.indexOf('$');
+        return -1 == dollar ?
+                simpleName :
+                simpleName.substring(0, dollar);
+    }
+
+    /**
+     * Reads a graph previously written by {@link #write(J2clPath)}, returning nothing if the file does not exist or
+     * contains an invalid line, so the caller treats all compilation units as changed.
+     */
+    static Optional<J2clClassDependencyGraph> read(final J2clPath file) throws IOException {
+        J2clClassDependencyGraph graph = null;
+
+        if (file.exists().isPresent()) {
+            final Map<String, J2clClassDependencyGraphClass> classes = Maps.sorted();
+            final Map<String, String> files = Maps.sorted();
+            boolean valid = true;
+
+            for (final String line : Files.readAllLines(file.path())) {
+                final String[] components = line.split(SEPARATOR, -1);
+                final String kind = components[0];
+
+                if (CLASS_LINE.equals(kind) && 6 == components.length) {
+                    final Set<String> references = SortedSets.tree();
+                    if (false == components[5].isEmpty()) {
+                        Collections.addAll(
+                                references,
+                                components[5].split(REFERENCE_SEPARATOR)
+                        );
+                    }
+                    classes.put(
+                            components[1],
+                            new J2clClassDependencyGraphClass(
+                                    components[2],
+                                    components[3],
+                                    components[4],
+                                    references
+                            )
+                    );
+                } else if (FILE_LINE.equals(kind) && 3 == components.length) {
+                    files.put(
+                            components[1],
+                            components[2]
+                    );
+                } else {
+                    valid = false;
+                    break;
+                }
+            }
+
+            if (valid) {
+                graph = new J2clClassDependencyGraph(
+                        classes,
+                        files
+                );
+            }
+        }
+
+        return Optional.ofNullable(graph);
+    }
+
+    private J2clClassDependencyGraph(final Map<String, J2clClassDependencyGraphClass> classes,
+                                     final Map<String, String> files) {
+        super();
+        this.classes = classes;
+        this.files = files;
+
+        final Map<String, Set<String>> units = Maps.sorted();
+        for (final Entry<String, J2clClassDependencyGraphClass> nameAndClass : classes.entrySet()) {
+            units.computeIfAbsent(
+                    nameAndClass.getValue().unit,
+                    (u) -> SortedSets.tree()
+            ).add(nameAndClass.getKey());
+        }
+        this.units = units;
+    }
+
+    /**
+     * Returns the internal names of the classes compiled from the given compilation unit, eg walkingkooka/Example and
+     * walkingkooka/Example$Inner for walkingkooka/Example.java.
+     */
+    public Set<String> classes(final String unit) {
+        return this.units.getOrDefault(
+                unit,
+                Sets.empty()
+        );
+    }
+
+    /**
+     * Returns a digest of the {@link AbiDigest} of each class transitively referenced by the classes of the given
+     * compilation unit, excluding its own classes, or nothing if the compilation unit has no classes. References include
+     * super classes and interfaces, so the digest changes when anything another compilation unit may observe changes,
+     * such as a method inherited by a referenced class.
+     */
+    public Optional<String> referencesAbiDigest(final String unit,
+                                                final HashAlgorithm algorithm) {
+        String digest = null;
+
+        final Set<String> classes = this.classes(unit);
+        if (false == classes.isEmpty()) {
+            final Set<String> references = SortedSets.tree();
+            final List<String> pending = Lists.array();
+            pending.addAll(classes);
+
+            while (false == pending.isEmpty()) {
+                final String name = pending.remove(pending.size() - 1);
+                for (final String reference : this.classes.get(name).references) {
+                    if (false == classes.contains(reference) && references.add(reference)) {
+                        pending.add(reference);
+                    }
+                }
+            }
+
+            final HashBuilder hash = HashBuilder.with(algorithm);
+            for (final String reference : references) {
+                hash.append(reference);
+                hash.append(this.classes.get(reference).abi);
+            }
+            digest = hash.build();
+        }
+
+        return Optional.ofNullable(digest);
+    }
+
+    /**
+     * Returns the compilation units that changed between this, the graph of the last successful build and the current
+     * graph, along with the compilation units that reference a changed class. Nothing is returned when a file other
+     * than a class file changed, as the effect of that cannot be known and everything must be built.
+     */
+    Optional<Set<String>> changedCompilationUnits(final J2clClassDependencyGraph current) {
+        Set<String> units = null;
+
+        if (this.files.equals(current.files)) {
+            final Set<String> changed = SortedSets.tree();
+            units = SortedSets.tree();
+
+            for (final Entry<String, J2clClassDependencyGraphClass> nameAndClass : current.classes.entrySet()) {
+                final String name = nameAndClass.getKey();
+                final J2clClassDependencyGraphClass clazz = nameAndClass.getValue();
+                final J2clClassDependencyGraphClass previous = this.classes.get(name);
+
+                if (null == previous || false == previous.digest.equals(clazz.digest)) {
+                    changed.add(name);
+                    units.add(clazz.unit);
+                    if (null != previous) {
+                        units.add(previous.unit);
+                    }
+                }
+            }
+
+            for (final Entry<String, J2clClassDependencyGraphClass> nameAndClass : this.classes.entrySet()) {
+                if (false == current.classes.containsKey(nameAndClass.getKey())) {
+                    changed.add(nameAndClass.getKey());
+                    units.add(nameAndClass.getValue().unit);
+                }
+            }
+
+            // classes that referenced a removed class are only found in the previous graph
+            for (final J2clClassDependencyGraph graph : Lists.of(this, current)) {
+                for (final J2clClassDependencyGraphClass clazz : graph.classes.values()) {
+                    if (false == Collections.disjoint(clazz.references, changed)) {
+                        units.add(clazz.unit);
+                    }
+                }
+            }
+        }
+
+        return Optional.ofNullable(units);
+    }
+
+    /**
+     * Writes this graph so it can be read by a later build.
+     */
+    void write(final J2clPath file) throws IOException {
+        final List<String> lines = Lists.array();
+
+        for (final Entry<String, J2clClassDependencyGraphClass> nameAndClass : this.classes.entrySet()) {
+            final J2clClassDependencyGraphClass clazz = nameAndClass.getValue();
+            lines.add(
+                    String.join(
+                            SEPARATOR,
+                            CLASS_LINE,
+                            nameAndClass.getKey(),
+                            clazz.unit,
+                            clazz.digest,
+                            clazz.abi,
+                            String.join(REFERENCE_SEPARATOR, clazz.references)
+                    )
+            );
+        }
+
+        for (final Entry<String, String> fileAndDigest : this.files.entrySet()) {
+            lines.add(
+                    String.join(
+                            SEPARATOR,
+                            FILE_LINE,
+                            fileAndDigest.getKey(),
+                            fileAndDigest.getValue()
+                    )
+            );
+        }
+
+        Files.write(
+                file.path(),
+                lines
+        );
+    }
+
+    private final static String SEPARATOR = "\t";
+
+    private final static String REFERENCE_SEPARATOR = ",";
+
+    private final static String CLASS_LINE = "class";
+
+    private final static String FILE_LINE = "file";
+
+    /**
+     * Each class under the directory by its internal name.
+     */
+    private final Map<String, J2clClassDependencyGraphClass> classes;
+
+    /**
+     * The digest of each file under the directory that is not a class file by its relative path.
+     */
+    private final Map<String, String> files;
+
+    /**
+     * The internal names of the classes of each compilation unit.
+     */
+    private final Map<String, Set<String>> units;
+
+    @Override
+    public String toString() {
+        return this.classes.size() + " class(es) " + this.files.size() + " other file(s)";
+    }
+
+    /**
+     * The compilation unit, digests and the classes referenced by a single class.
+     */
+    private static final class J2clClassDependencyGraphClass {
+
+        J2clClassDependencyGraphClass(final String unit,
+                                      final String digest,
+                                      final String abi,
+                                      final Set<String> references) {
+            this.unit = unit;
+            this.digest = digest;
+            this.abi = abi;
+            this.references = references;
+        }
+
+        /**
+         * The path of the source file relative to a source root, eg walkingkooka/j2cl/Example.java
+         */
+        final String unit;
+
+        final String digest;
+
+        /**
+         * The digest of the {@link AbiDigest} of the class.
+         */
+        final String abi;
+
+        final Set<String> references;
+    }
+}
@@ -22,32 +22,46 @@ import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import walkingkooka.Context;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.Sets;
 import walkingkooka.collect.set.SortedSets;
 import walkingkooka.j2cl.maven.closure.ClosureFormattingOption;
+import walkingkooka.j2cl.maven.hash.AbiDigest;
+import walkingkooka.j2cl.maven.hash.FileDigestIndex;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
 import walkingkooka.j2cl.maven.hash.HashBuilder;
+import walkingkooka.j2cl.maven.hash.MerkleTree;
+import walkingkooka.j2cl.maven.javac.JavacCompilerService;
 import walkingkooka.j2cl.maven.log.MavenLogger;
 import walkingkooka.j2cl.maven.log.TreeLogger;
-
-import java.time.Duration;
-import java.time.Instant;
+import walkingkooka.j2cl.maven.transpile.J2clTranspilerService;
+import walkingkooka.text.CharSequences;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
@@ -66,11 +80,15 @@ public abstract class J2clMavenContext implements Context {
                      final Map<String, String> defines,
                      final Set<String> externs,
                      final Set<ClosureFormattingOption> formatting,
+                     final HashAlgorithm hashAlgorithm,
                      final Set<String> javaCompilerArguments,
+                     final boolean singleJavac,
                      final LanguageMode languageOut,
                      final Optional<String> sourceMaps,
                      final J2clMavenMiddleware middleware,
+                     final int ioThreadPoolSize,
                      final int threadPoolSize,
+                     final int closureThreadPoolSize,
                      final MavenLogger logger) {
         super();
 
@@ -86,13 +104,25 @@ public abstract class J2clMavenContext implements Context {
         this.defines = defines;
         this.externs = externs;
         this.formatting = formatting;
+        this.hashAlgorithm = hashAlgorithm;
+        this.blobStore = J2clBlobStore.with(
+                cache.append(J2clBlobStore.DIRECTORY),
+                hashAlgorithm
+        );
         this.javaCompilerArguments = javaCompilerArguments;
+        this.singleJavac = singleJavac;
         this.languageOut = languageOut;
         this.sourceMaps = sourceMaps;
 
         this.middleware = middleware;
+        this.ioThreadPoolSize = ioThreadPoolSize;
         this.threadPoolSize = threadPoolSize;
+        this.closureThreadPoolSize = closureThreadPoolSize;
         this.logger = logger;
+        this.workspace = J2clWorkspace.with(
+                Runtime.getRuntime().maxMemory() / WORKSPACE_HEAP_FRACTION,
+                logger
+        );
     }
 
     final void computeEntryPointAndInitialScriptFilenameHash(final List<String> entryPoints,
@@ -196,14 +226,74 @@ public abstract class J2clMavenContext implements Context {
 
     private final Set<ClosureFormattingOption> formatting;
 
+    /**
+     * The {@link HashAlgorithm} used to compute the hash and select the cache directory of each artifact.
+     */
+    public final HashAlgorithm hashAlgorithm() {
+        return this.hashAlgorithm;
+    }
+
+    private final HashAlgorithm hashAlgorithm;
+
+    /**
+     * The {@link J2clBlobStore} shared by the outputs of all tasks in the cache.
+     */
+    final J2clBlobStore blobStore() {
+        return this.blobStore;
+    }
+
+    private final J2clBlobStore blobStore;
+
+    /**
+     * The {@link J2clWorkspace} tasks use to hand files to each other during a build.
+     */
+    public final J2clWorkspace workspace() {
+        return this.workspace;
+    }
+
+    private final J2clWorkspace workspace;
+
+    /**
+     * The workspace may keep up to this fraction of the maximum heap in memory.
+     */
+    private final static int WORKSPACE_HEAP_FRACTION = 8;
+
     public abstract J2clPath initialScriptFilename(final J2clArtifact artifact);
 
     private final Set<String> javaCompilerArguments;
 
+    /**
+     * The {@link JavacCompilerService} shared by all javac tasks of a build.
+     */
+    public final JavacCompilerService javacCompilerService() {
+        return this.javacCompilerService;
+    }
+
+    private final JavacCompilerService javacCompilerService = JavacCompilerService.empty();
+
+    /**
+     * The {@link J2clTranspilerService} shared by all transpile tasks of a build, and by a watch for all its rebuilds.
+     */
+    public final J2clTranspilerService transpilerService() {
+        return this.transpilerService;
+    }
+
+    private final J2clTranspilerService transpilerService = J2clTranspilerService.empty();
+
     public final Set<String> javaCompilerArguments() {
         return this.javaCompilerArguments;
     }
 
+    /**
+     * When true @GwtIncompatible is stripped in memory by JAVAC_ANNOTATION_PROCESSORS_ENABLED, whose class files are
+     * then reused by JAVAC_COMPILE_GWT_INCOMPATIBLE_STRIPPED_JAVA_SOURCE.
+     */
+    public final boolean isSingleJavac() {
+        return this.singleJavac;
+    }
+
+    private final boolean singleJavac;
+
     public final LanguageMode languageOut() {
         return this.languageOut;
     }
@@ -220,17 +310,92 @@ public abstract class J2clMavenContext implements Context {
 
     public final List<J2clPath> sources(final J2clArtifact artifact) {
         return artifact.isDependency() ?
-                this.unpackOutputDirectory(artifact) :
+                this.unpackSources(artifact) :
                 artifact.sourceRoots();
     }
 
-    private List<J2clPath> unpackOutputDirectory(final J2clArtifact artifact) {
-        return Lists.of(
-                artifact.taskDirectory(J2clTaskKind.UNPACK)
-                        .output()
+    /**
+     * The sources of a dependency are the archives listed by its UNPACK mounted as zip file systems, or the output of
+     * UNPACK when its sources included directories and were copied. The listed file names are resolved against the
+     * current source roots and archive of the artifact, which may have moved since UNPACK executed.
+     */
+    private List<J2clPath> unpackSources(final J2clArtifact artifact) {
+        final J2clTaskDirectory unpack = artifact.taskDirectory(J2clTaskKind.UNPACK);
+        final J2clPath archives = unpack.archivesFile();
+
+        final List<J2clPath> sources;
+        if (archives.isFile()) {
+            final List<String> filenames;
+            try {
+                filenames = Files.readAllLines(archives.path(), StandardCharsets.UTF_8);
+            } catch (final IOException cause) {
+                throw new J2clException("Failed to read " + archives + ": " + cause.getMessage(), cause);
+            }
+
+            final Map<String, J2clPath> filenameToArchive = Maps.sorted();
+            artifact.artifactFile()
+                    .ifPresent(a -> filenameToArchive.put(a.filename(), a));
+            for (final J2clPath sourceRoot : artifact.sourceRoots()) {
+                filenameToArchive.put(sourceRoot.filename(), sourceRoot);
+            }
+
+            sources = Lists.array();
+            for (final String filename : filenames) {
+                if (false == filename.isEmpty()) {
+                    final J2clPath archive = filenameToArchive.get(filename);
+                    if (null == archive || false == archive.isFile()) {
+                        throw new J2clException("Unable to find archive " + CharSequences.quote(filename) + " listed in " + archives + " for " + artifact.coords() + ", delete the directory " + artifact.directory() + " and build again");
+                    }
+                    sources.add(
+                            this.archiveRoot(archive)
+                    );
+                }
+            }
+        } else {
+            sources = Lists.of(
+                    unpack.output()
+            );
+        }
+
+        return sources;
+    }
+
+    /**
+     * Returns the root of the given archive mounted as a zip {@link FileSystem}. Each archive is mounted once and
+     * remains open until the build completes.
+     */
+    public final J2clPath archiveRoot(final J2clPath archive) {
+        return J2clPath.with(
+                this.archiveFileSystems.computeIfAbsent(
+                        archive,
+                        (a) -> {
+                            try {
+                                return FileSystems.newFileSystem(a.path(), (ClassLoader) null);
+                            } catch (final IOException cause) {
+                                throw new J2clException("Failed to open " + a + ": " + cause.getMessage(), cause);
+                            }
+                        }
+                ).getPath("/")
         );
     }
 
+    private void closeArchiveFileSystems() {
+        for (final FileSystem fileSystem : this.archiveFileSystems.values()) {
+            try {
+                fileSystem.close();
+            } catch (final IOException cause) {
+                this.mavenLogger()
+                        .warn("Failed to close " + fileSystem + ": " + cause.getMessage());
+            }
+        }
+        this.archiveFileSystems.clear();
+    }
+
+    /**
+     * Archives mounted by {@link #archiveRoot(J2clPath)}, closed when the build completes.
+     */
+    private final Map<J2clPath, FileSystem> archiveFileSystems = Maps.concurrent();
+
     public abstract J2clPath compiledBinaries(final J2clArtifact artifact);
 
     final J2clPath compiledBinariesTaskDirectory(final J2clArtifact artifact) {
@@ -273,43 +438,124 @@ public abstract class J2clMavenContext implements Context {
      */
     abstract public boolean shouldCheckCache();
 
+    /**
+     * The compilation units of the given artifact whose outputs must be rebuilt, as paths relative to a source root
+     * such as walkingkooka/j2cl/Example.java. The outputs of all other compilation units are kept from the previous
+     * build. When empty all outputs are built.
+     */
+    public Optional<Set<String>> changedCompilationUnits(final J2clArtifact artifact) {
+        return Optional.empty();
+    }
+
+    /**
+     * Invoked when the last task of the project has completed.
+     */
+    void projectCompleted(final J2clArtifact project) {
+        // nop
+    }
+
     // tasks............................................................................................................
 
     /**
-     * Holds of artifacts and the artifacts it requires to complete before it can start with its own first task.
-     * When the {link Set} of required (the map value) becomes empty the {@link J2clArtifact coords} can have its tasks started.
+     * Holds each artifact and the artifacts it requires. This is not modified once prepared.
      */
     private final Map<J2clArtifact, Set<J2clArtifact>> tasks = Maps.concurrent();
 
+    /**
+     * Reverse index holding the nodes of dependents that are waiting for a node to complete.
+     * This is not modified once prepared.
+     */
+    private final Map<J2clTaskNode, List<J2clTaskNode>> dependents = Maps.concurrent();
+
+    /**
+     * The number of nodes each node is waiting for. This includes the previous task of the same artifact, and
+     * for tasks with a {@link J2clTaskKind#dependencyTaskKind()}, one task for each dependency. The node that decrements
+     * the count to zero submits the node.
+     */
+    private final Map<J2clTaskNode, AtomicInteger> pending = Maps.concurrent();
+
+    /**
+     * The number of leading {@link J2clTaskKind} of each artifact that have completed or were skipped because their
+     * output was already cached. An artifact with all its tasks completed has a progress equal to the number of tasks.
+     */
+    private final Map<J2clArtifact, AtomicInteger> progress = Maps.concurrent();
+
     /**
      * Executes the given project.
      */
     final void prepareAndStart(final J2clArtifact project,
                                final TreeLogger logger) {
         this.tasks.clear();
-
+        this.dependents.clear();
+        this.pending.clear();
+        this.progress.clear();
+        this.priorities.clear();
+        this.heapAdmission().clear();
+        this.trace.clear();
+        this.persistFailure.set(null);
+
+        this.prepareHistory();
+        this.prepareFileDigests();
+        this.dependencyFingerprints.clear();
+        this.archiveAbiDigests.clear();
+        this.outputDigests.clear();
+        this.outputBytes.clear();
+        this.abiDigests.clear();
         this.prepareTasks(project);
+        this.prepareDependents();
+        this.preparePriorities();
+        this.logPlan(logger);
+
+        final List<J2clTaskNode> ready = Lists.array();
+        for (final J2clArtifact artifact : this.tasks.keySet()) {
+            this.taskReady(
+                    J2clTaskNode.with(
+                            artifact,
+                            this.firstTaskKind(artifact)
+                    ),
+                    ready
+            );
+        }
 
-        if (0 == this.trySubmitTasks(logger)) {
-            throw new J2clException("Unable to find a leaf dependencies(dependency without dependencies), task failed.");
+        if (ready.isEmpty()) {
+            throw new J2clException("Unable to find a task without waiting dependencies, task failed.");
         }
-    }
 
-    private ExecutorService executor() {
-        final int threadPoolSize = this.threadPoolSize;
+        // a task that completes before the remaining ready nodes are submitted must not finish the build.
+        final J2clTaskCompletion completion = this.completion();
+        completion.hold();
+        try {
+            this.submitTasks(
+                    ready,
+                    logger
+            );
+        } finally {
+            completion.release();
+        }
+    }
 
-        return Executors.newFixedThreadPool(0 != threadPoolSize ?
-                threadPoolSize :
-                Runtime.getRuntime().availableProcessors() * 2);
+    /**
+     * Creates an {@link java.util.concurrent.ExecutorService} for each {@link J2clTaskResourceClass}.
+     */
+    private J2clTaskExecutors executors() {
+        return J2clTaskExecutors.with(
+                this.ioThreadPoolSize,
+                this.threadPoolSize,
+                this.closureThreadPoolSize
+        );
     }
 
     private void prepareTasks(final J2clArtifact artifact) {
         if (false == this.tasks.containsKey(artifact)) {
 
-            // keep transitive dependencies alphabetical sorted for better readability when trySubmitTasks pretty prints queue processing.
+            // keep transitive dependencies alphabetical sorted for better readability when debugging.
             final Set<J2clArtifact> required = SortedSets.tree();
 
             this.tasks.put(artifact, required);
+            this.progress.put(
+                    artifact,
+                    new AtomicInteger()
+            );
 
             if (!this.shouldSkipSubmittingDependencyTasks()) {
                 for (final J2clArtifact dependency : artifact.dependencies()) {
@@ -330,298 +576,1298 @@ public abstract class J2clMavenContext implements Context {
     abstract boolean shouldSkipSubmittingDependencyTasks();
 
     /**
-     * Loops over all {@link #tasks} submitting a task for each that has no required artifacts aka the value is an empty {@link Set}.
+     * Watch returns false, keeping the {@link J2clTranspilerService} open for all the rebuilds that follow, only closing
+     * the archives not used by the last rebuild.
      */
-    private int trySubmitTasks(final TreeLogger logger) {
-        final List<J2clArtifact> submits = Lists.array();
+    abstract boolean shouldCloseTranspilerService();
 
-        this.executeWithLock(() -> {
-            final String message;
-
-            logger.line("Submitting tasks");
-            logger.indent();
-            {
-                logger.line("Queue");
-                logger.indent();
-                {
+    /**
+     * Watch returns false, as its rebuilds rewrite outputs in place, which would change every file linked to the same
+     * blob of the {@link J2clBlobStore}.
+     */
+    abstract boolean shouldShareOutputs();
 
-                    //for readability sort tasks alphabetically as they will be printed and possibly submitted.....................
-                    final SortedMap<J2clArtifact, Set<J2clArtifact>> tasksAlphaSorted = Maps.sorted();
-                    tasksAlphaSorted.putAll(this.tasks);
-
-                    for (final Entry<J2clArtifact, Set<J2clArtifact>> artifactAndDependencies : tasksAlphaSorted.entrySet()) {
-                        final J2clArtifact artifact = artifactAndDependencies.getKey();
-                        final Set<J2clArtifact> required = artifactAndDependencies.getValue();
-
-                        logger.line(artifact.toString());
-                        logger.indent();
-                        {
-                            if (required.isEmpty()) {
-                                this.tasks.remove(artifact);
-                                submits.add(artifact);
-                                logger.line("Queued " + artifact + " for submission " + submits.size());
-                            } else {
-                                logger.line("Waiting for " + required.size() + " dependencies");
-                                logger.indent();
-                                {
-                                    required.forEach(r -> logger.line(r.toString()));
-                                }
-                                logger.outdent();
-                            }
-                        }
-                        logger.outdent();
+    /**
+     * Fills the {@link #dependents} reverse index and the {@link #pending} count of every node.
+     */
+    private void prepareDependents() {
+        for (final Entry<J2clArtifact, Set<J2clArtifact>> artifactAndRequired : this.tasks.entrySet()) {
+            final J2clArtifact artifact = artifactAndRequired.getKey();
+
+            for (final J2clTaskKind kind : this.tasks(artifact)) {
+                final J2clTaskNode node = J2clTaskNode.with(
+                        artifact,
+                        kind
+                );
+                int count = 1; // the previous task of the same artifact or the start for the first task.
+
+                final Optional<J2clTaskKind> dependencyTaskKind = kind.dependencyTaskKind();
+                if (dependencyTaskKind.isPresent()) {
+                    for (final J2clArtifact dependency : artifactAndRequired.getValue()) {
+                        this.dependents.computeIfAbsent(
+                                J2clTaskNode.with(
+                                        dependency,
+                                        this.gatingTaskKind(
+                                                dependency,
+                                                dependencyTaskKind.get()
+                                        )
+                                ),
+                                (n) -> Lists.array()
+                        ).add(node);
+                        count++;
                     }
+                }
 
-                    final int submitCount = submits.size();
-                    final int waiting = tasksAlphaSorted.size() - submits.size();
-                    final int running = this.running.get();
+                this.pending.put(
+                        node,
+                        new AtomicInteger(count)
+                );
+            }
+        }
+    }
 
-                    if (0 == submitCount && waiting > 0 && 0 == running) {
-                        throw new J2clException(submitCount + " tasks submitted with " + waiting + " several waiting and " + running + " running.");
-                    }
+    /**
+     * Returns the task of the given dependency that must complete, before a dependent waiting for the given kind may start.
+     * If the dependency does not have the task, the dependency must complete all its tasks.
+     */
+    private J2clTaskKind gatingTaskKind(final J2clArtifact dependency,
+                                        final J2clTaskKind kind) {
+        final List<J2clTaskKind> tasks = this.tasks(dependency);
+        return tasks.contains(kind) ?
+                kind :
+                tasks.get(tasks.size() - 1);
+    }
 
-                    message = submitCount + " task(s) submitted, " + running + " running " + waiting + " waiting.";
-                }
-                logger.outdent();
+    /**
+     * Computes the {@link J2clTaskPriority} for every {@link J2clTaskNode}. Because the required {@link Set}
+     * holds all transitive dependencies, inverting it gives all transitive dependents of each artifact.
+     */
+    private void preparePriorities() {
+        final Map<J2clArtifact, Set<J2clArtifact>> dependents = Maps.sorted();
+
+        for (final Entry<J2clArtifact, Set<J2clArtifact>> artifactAndRequired : this.tasks.entrySet()) {
+            for (final J2clArtifact required : artifactAndRequired.getValue()) {
+                dependents.computeIfAbsent(
+                        required,
+                        (r) -> SortedSets.tree()
+                ).add(artifactAndRequired.getKey());
             }
-            logger.outdent();
-
-            logger.line(message);
-            logger.flush();
+        }
 
-            submits.forEach(
-                    (d) -> this.submitTask(
-                            () -> this.callable(
-                                    d,
-                                    logger
-                            )
-                    )
-            );
-        });
+        final Map<J2clTaskNode, Long> criticalPaths = Maps.sorted();
 
-        return submits.size();
+        for (final J2clArtifact artifact : this.tasks.keySet()) {
+            final int dependentsCount = dependents.getOrDefault(
+                    artifact,
+                    Sets.empty()
+            ).size();
+
+            for (final J2clTaskKind kind : this.tasks(artifact)) {
+                final J2clTaskNode node = J2clTaskNode.with(
+                        artifact,
+                        kind
+                );
+
+                this.priorities.put(
+                        node,
+                        J2clTaskPriority.with(
+                                node,
+                                dependentsCount,
+                                this.criticalPath(
+                                        node,
+                                        criticalPaths
+                                )
+                        )
+                );
+            }
+        }
     }
 
     /**
-     * Lazily create {@link ExecutorService} and {@link CompletionService}, this helps support the watch task which
-     * creates a new instance of each for each file event.
+     * Returns the estimated cost of the given node plus the most expensive chain of nodes that must wait for it, which
+     * includes the next task of the same artifact and any task of a dependent waiting for this task.
      */
-    public void submitTask(final Callable<Void> task) {
-        // lazily create ExecutorService, the watch service will clear any ExecutorService & CompletionService after each build run.
-        if (null == this.executorService.get()) {
-            final ExecutorService executorService = this.executor();
-            this.executorService.set(executorService);
-            this.completionService.set(
-                    new ExecutorCompletionService<>(executorService)
+    private long criticalPath(final J2clTaskNode node,
+                              final Map<J2clTaskNode, Long> criticalPaths) {
+        Long criticalPath = criticalPaths.get(node);
+        if (null == criticalPath) {
+            final J2clArtifact artifact = node.artifact();
+
+            long longestWaiting = 0;
+
+            final Optional<J2clTaskKind> next = this.nextTask(
+                    artifact,
+                    node.kind()
             );
-            this.running.set(0);
+            if (next.isPresent()) {
+                longestWaiting = this.criticalPath(
+                        J2clTaskNode.with(
+                                artifact,
+                                next.get()
+                        ),
+                        criticalPaths
+                );
+            }
+
+            final List<J2clTaskNode> dependents = this.dependents.get(node);
+            if (null != dependents) {
+                for (final J2clTaskNode dependent : dependents) {
+                    longestWaiting = Math.max(
+                            longestWaiting,
+                            this.criticalPath(
+                                    dependent,
+                                    criticalPaths
+                            )
+                    );
+                }
+            }
+
+            criticalPath = this.estimatedCost(node) + longestWaiting;
+            criticalPaths.put(node, criticalPath);
         }
 
-        this.completionService.get()
-                .submit(task);
+        return criticalPath;
+    }
 
-        this.running.incrementAndGet(); // increment here because watch task will submit a Callable and it shouldnt be counted by await()
+    /**
+     * The estimated cost in millis of executing the given node, which is the average of its recent durations in the
+     * {@link J2clTaskHistory} or {@link #DEFAULT_ESTIMATED_COST} for a node without history.
+     */
+    long estimatedCost(final J2clTaskNode node) {
+        return this.history.estimate(node)
+                .orElse(DEFAULT_ESTIMATED_COST);
     }
 
-    private Void callable(final J2clArtifact artifact,
-                          final TreeLogger logger) throws Exception {
-        final Thread thread = Thread.currentThread();
-        final String threadName = thread.getName();
+    /**
+     * The estimated cost of a task that has never been executed.
+     */
+    private final static long DEFAULT_ESTIMATED_COST = 1000;
 
-        try {
-            final String coords = artifact.coords().toString();
-            final Instant start = Instant.now();
+    /**
+     * Prints the predicted critical path, which starts with the node with the longest critical path and follows the
+     * waiting node with the longest critical path. The predicted total time is the longer of the critical path and
+     * the total cost shared by all CPU cores.
+     */
+    private void logPlan(final TreeLogger logger) {
+        final Optional<J2clTaskPriority> first = this.priorities.values()
+                .stream()
+                .min(Comparator.naturalOrder());
+
+        if (first.isPresent()) {
+            long totalCost = 0;
+            for (final J2clTaskNode node : this.priorities.keySet()) {
+                totalCost += this.estimatedCost(node);
+            }
 
-            logger.line(coords);
+            final long criticalPath = first.get()
+                    .criticalPath();
+
+            logger.line("Plan");
             logger.indent();
             {
-                J2clTaskKind kind = this.firstTaskKind(artifact);
-
-                do {
-                    // skip this and any more tasks, watch task probably issued a shutdown because of a new file watch event.
-                    if (!this.isRunning()) {
-                        break;
-                    }
-                    thread.setName(coords + "-" + kind);
-
-                    kind = kind.execute(
-                            artifact,
-                            logger,
-                            this
-                    ).orElse(null);
-
-                    thread.setName(threadName);
-                } while (null != kind);
+                logger.line("Predicted total time " + Math.max(criticalPath, totalCost / Runtime.getRuntime().availableProcessors()) + "ms");
+                logger.line("Total cost " + totalCost + "ms of " + this.priorities.size() + " task(s)");
+                logger.line("Predicted critical path " + criticalPath + "ms");
+                logger.indent();
+                {
+                    J2clTaskNode node = first.get()
+                            .node();
+                    do {
+                        logger.line(node + " " + this.estimatedCost(node) + "ms");
+                        node = this.longestWaiting(node)
+                                .orElse(null);
+                    } while (null != node);
+                }
+                logger.outdent();
             }
             logger.outdent();
+            logger.flush();
+        }
+    }
 
-            logger.line(coords + " completed.");
-            logger.timeTaken(
-                    Duration.between(
-                            start,
-                            Instant.now()
-                    )
-            );
+    /**
+     * Returns the node waiting for the given node with the longest critical path.
+     */
+    private Optional<J2clTaskNode> longestWaiting(final J2clTaskNode node) {
+        final List<J2clTaskNode> waiting = Lists.array();
+
+        this.nextTask(
+                node.artifact(),
+                node.kind()
+        ).ifPresent(
+                (n) -> waiting.add(
+                        J2clTaskNode.with(
+                                node.artifact(),
+                                n
+                        )
+                )
+        );
 
-            this.taskCompleted(
-                    artifact,
-                    logger
-            );
-        } finally {
-            thread.setName(threadName);
+        final List<J2clTaskNode> dependents = this.dependents.get(node);
+        if (null != dependents) {
+            waiting.addAll(dependents);
         }
 
-        return null;
+        return waiting.stream()
+                .min(Comparator.comparing(this::priority));
     }
 
-    private final AtomicInteger running = new AtomicInteger();
-
     /**
-     * Finds all tasks that have the given artifact as a dependency and remove that dependency from the waiting list.
+     * Loads the {@link J2clTaskHistory} the first time a build is prepared, the watch goal keeps the history between builds.
+     * The heap ratios learnt by earlier builds seed the {@link J2clTaskHeapAdmission}.
      */
-    final J2clMavenContext taskCompleted(final J2clArtifact completed,
-                                         final TreeLogger logger) {
-        this.executeWithLock(() -> {
-            this.tasks.remove(completed);
-
-            for (final Set<J2clArtifact> dependencies : this.tasks.values()) {
-                dependencies.remove(completed);
+    private void prepareHistory() {
+        if (null == this.history) {
+            final J2clPath file = this.historyFile();
+
+            try {
+                this.history = J2clTaskHistory.load(file);
+            } catch (final IOException cause) {
+                this.mavenLogger()
+                        .warn("Failed to read " + file + ": " + cause.getMessage());
+                this.history = J2clTaskHistory.empty();
             }
 
-            this.trySubmitTasks(logger);
-        });
-        return this;
+            this.heapAdmission().load(this.history);
+        }
     }
 
-    private void executeWithLock(final Runnable execute) {
+    /**
+     * Writes the {@link J2clTaskHistory} to the cache directory, a failure is logged but not fatal.
+     */
+    private void writeHistory() {
+        final J2clPath file = this.historyFile();
+        this.heapAdmission().save(this.history);
+
         try {
-            if (false == this.tasksLock.tryLock(3, TimeUnit.SECONDS)) {
-                throw new J2clException("Failed to get tasks lock");
-            }
-            execute.run();
-        } catch (final InterruptedException fail) {
-            throw new J2clException("Failed to get tasks lock: " + fail.getMessage(), fail);
-        } finally {
-            this.tasksLock.unlock();
+            this.history.save(file);
+        } catch (final IOException cause) {
+            this.mavenLogger()
+                    .warn("Failed to write " + file + ": " + cause.getMessage());
         }
     }
 
+    private J2clPath historyFile() {
+        return this.cache()
+                .append(J2clTaskHistory.FILE);
+    }
+
+    private J2clTaskHistory history;
+
     /**
-     * A lock used to by {@link #trySubmitTasks(TreeLogger)} to avoid concurrent modification of {@link #tasks}.
+     * The {@link FileDigestIndex} shared by all {@link J2clTaskKind#HASH} tasks.
      */
-    private final Lock tasksLock = new ReentrantLock();
+    public final FileDigestIndex fileDigests() {
+        return this.fileDigests;
+    }
 
     /**
-     * Waits (aka Blocks) for all outstanding tasks to complete.
+     * Loads the {@link FileDigestIndex} the first time a build is prepared.
      */
-    public void waitUntilCompletion() throws Throwable {
-        final ExecutorService executorService = this.executorService.get();
-        final CompletionService<?> completionService = this.completionService.get();
-
-        if (null != executorService && null != completionService) {
-            while (false == executorService.isTerminated()) {
-                try {
-                    final Future<?> task = completionService.poll(
-                            AWAIT_POLL_TIMEOUT,
-                            TimeUnit.MILLISECONDS
-                    );
-                    if (null != task) {
-                        task.get();
-                        if (0 == this.running.decrementAndGet()) {
-                            this.executorService.set(null);
-                            this.completionService.set(null);
-
-                            executorService.shutdown();
-                        }
-                    }
-                } catch (final Exception cause) {
-                    cause.printStackTrace();
-                    this.cancel(cause);
-                    throw cause;
-                }
-            }
-
-            final Throwable cause = this.cause.get();
-            if (null != cause) {
-                throw cause;
+    private void prepareFileDigests() {
+        if (null == this.fileDigests) {
+            final J2clPath file = this.fileDigestsFile();
+
+            try {
+                this.fileDigests = FileDigestIndex.load(
+                        file,
+                        this.hashAlgorithm
+                );
+            } catch (final IOException cause) {
+                this.mavenLogger()
+                        .warn("Failed to read " + file + ": " + cause.getMessage());
+                this.fileDigests = FileDigestIndex.empty(this.hashAlgorithm);
             }
         }
     }
 
-    private final static int AWAIT_POLL_TIMEOUT = 50;
-
     /**
-     * Used to cancel any outstanding tasks typically done because one task has failed and any future work is pointless
-     * and should be immediately aborted.
+     * Writes the {@link FileDigestIndex} to the cache directory, a failure is logged but not fatal.
      */
-    final void cancel(final Throwable cause) {
-        final ExecutorService executorService = this.executorService.get();
+    private void writeFileDigests() {
+        final J2clPath file = this.fileDigestsFile();
 
-        if (this.isRunning()) {
-            this.cause.compareAndSet(null, cause);
+        try {
+            this.fileDigests.save(file);
+        } catch (final IOException cause) {
+            this.mavenLogger()
+                    .warn("Failed to write " + file + ": " + cause.getMessage());
+        }
+    }
 
-            final MavenLogger logger = this.mavenLogger();
-            logger.warn("Killing all running tasks");
+    private J2clPath fileDigestsFile() {
+        return this.cache()
+                .append(FileDigestIndex.FILE);
+    }
 
-            executorService.shutdown();
+    private FileDigestIndex fileDigests;
 
-            while (!executorService.isTerminated()) {
-                try {
-                    executorService.awaitTermination(
-                            AWAIT_POLL_TIMEOUT,
-                            TimeUnit.MILLISECONDS
-                    );
-                } catch (final InterruptedException interrupted) {
-                    interrupted.printStackTrace();
-                }
+    /**
+     * Returns a fingerprint of the given dependency archive, which is the checksum published alongside it in the local
+     * repository or its digest. Each archive is fingerprinted once per build no matter how many artifacts depend on it.
+     */
+    public final String dependencyFingerprint(final J2clPath file) throws IOException {
+        String fingerprint = this.dependencyFingerprints.get(file);
+        if (null == fingerprint) {
+            final Path path = file.path();
+            fingerprint = this.mavenMiddleware()
+                    .checksum(file)
+                    .orElse(null);
+            if (null == fingerprint) {
+                fingerprint = this.fileDigests()
+                        .digest(
+                                path,
+                                Files.readAttributes(
+                                        path,
+                                        BasicFileAttributes.class
+                                )
+                        );
             }
-
-            logger.warn("Cancelled tasks completed");
+            this.dependencyFingerprints.put(
+                    file,
+                    fingerprint
+            );
         }
-
-        this.executorService.set(null);
-        this.completionService.set(null);
-        this.running.set(0);
+        return fingerprint;
     }
 
     /**
-     * Returns true if the {@link ExecutorService} is still alive and executing new or pending tasks.
+     * Fingerprints of dependency archives, cleared at the start of each build.
      */
-    private boolean isRunning() {
-        final ExecutorService executorService = this.executorService.get();
-        return null != executorService && !executorService.isShutdown();
-    }
+    private final Map<J2clPath, String> dependencyFingerprints = Maps.concurrent();
 
     /**
-     * This value is used when creating a {@link ExecutorService}
+     * Returns the digest an artifact hashes for one of its dependencies. Dependencies that are never built, such as the
+     * JRE or annotation processors, contribute the fingerprint of their archive. The annotation processors of a
+     * dependent still compile against the archive of a dependency built by this build, which contributes the
+     * {@link AbiDigest} of its archive so a change to a method body leaves dependents cached. The outputs of built
+     * dependencies are part of the {@link #dependenciesDigest(J2clArtifact, J2clTaskKind)} of the tasks that read them,
+     * so hashing need not wait for dependencies to complete.
      */
-    private final int threadPoolSize;
+    public final String dependencyDigest(final J2clArtifact dependency) throws IOException {
+        final J2clPath file = dependency.artifactFileOrFail();
+        return this.tasks.containsKey(dependency) ?
+                this.archiveAbiDigest(file) :
+                this.dependencyFingerprint(file);
+    }
 
     /**
-     * The build and test goals only create a single {@link ExecutorService}, while the watch goal will create
-     * a new {@link ExecutorService} each time it runs.
+     * Returns the {@link AbiDigest} of the class files within the given archive, computed once per build.
      */
-    private final AtomicReference<ExecutorService> executorService = new AtomicReference<>();
+    private String archiveAbiDigest(final J2clPath archive) throws IOException {
+        try {
+            return this.archiveAbiDigests.computeIfAbsent(
+                    archive,
+                    (a) -> {
+                        try {
+                            return AbiDigest.compute(
+                                    Lists.of(
+                                            this.archiveRoot(a)
+                                                    .path()
+                                    ),
+                                    this.fileDigests()
+                            );
+                        } catch (final IOException cause) {
+                            throw new UncheckedIOException(cause);
+                        }
+                    }
+            );
+        } catch (final UncheckedIOException cause) {
+            throw cause.getCause();
+        }
+    }
 
     /**
-     * An instance is created when a new {@link ExecutorService} is created.
+     * {@link AbiDigest} of dependency archives, cleared at the start of each build.
      */
-    private final AtomicReference<CompletionService<Void>> completionService = new AtomicReference<>();
+    private final Map<J2clPath, String> archiveAbiDigests = Maps.concurrent();
 
-    private final AtomicReference<Throwable> cause = new AtomicReference<>();
+    /**
+     * Returns a digest of the outputs of the dependencies built by this build that are read by the given task of the
+     * artifact, which is recorded by the task and executes it again when it changes. The closure compiler reads the
+     * transpiled javascript and hashes the digest of all the outputs of each dependency, so a dependency that is
+     * rebuilt but produces identical outputs leaves the task cached. All other tasks only read class files and hash
+     * the {@link AbiDigest} of each dependency, so a change to a method body of a dependency does not execute them again.
+     */
+    public final String dependenciesDigest(final J2clArtifact artifact,
+                                           final J2clTaskKind kind) throws IOException {
+        final HashBuilder hash = HashBuilder.with(this.hashAlgorithm);
+
+        for (final J2clArtifact dependency : new TreeSet<>(artifact.dependencies())) {
+            if (this.tasks.containsKey(dependency)) {
+                hash.append(
+                        dependency.coords()
+                                .toString()
+                );
+                hash.append(
+                        J2clTaskKind.CLOSURE_COMPILE == kind ?
+                                this.outputDigest(dependency) :
+                                this.abiDigest(dependency)
+                );
+            }
+        }
 
-    // hash..............................................................................................................
+        return hash.build();
+    }
 
     /**
-     * Returns a sha1 hash in hex digits that uniquely identifies this request using components.
-     * Requests should cache the hash for performance reasons.
+     * Returns a digest of the {@link AbiDigest} of every dependency of the given artifact built by this build and the
+     * fingerprint of all other dependencies. It only changes when the classes the artifact is compiled and transpiled
+     * against change.
      */
-    public abstract void computeHash(final J2clArtifact artifact,
-                                     final HashBuilder hash,
-                                     final Set<String> hashItemNames);
+    public final String dependenciesAbiDigest(final J2clArtifact artifact) throws IOException {
+        final HashBuilder hash = HashBuilder.with(this.hashAlgorithm);
+
+        for (final J2clArtifact dependency : new TreeSet<>(artifact.dependencies())) {
+            hash.append(
+                    dependency.coords()
+                            .toString()
+            );
+            hash.append(
+                    this.tasks.containsKey(dependency) ?
+                            this.abiDigest(dependency) :
+                            this.dependencyFingerprint(dependency.artifactFileOrFail())
+            );
+        }
+
+        return hash.build();
+    }
 
     /**
-     * Creates a {@link HashBuilder} and hashes most of the properties of a request.
+     * Returns the {@link AbiDigest} of the class files of the given artifact that appear on the classpath of its
+     * dependents, computed once by the first dependent that requires it while concurrent dependents wait.
+     */
+    private String abiDigest(final J2clArtifact artifact) throws IOException {
+        try {
+            return this.abiDigests.computeIfAbsent(
+                    artifact,
+                    this::computeAbiDigest
+            );
+        } catch (final UncheckedIOException cause) {
+            throw cause.getCause();
+        }
+    }
+
+    /**
+     * Reads the {@link AbiDigest} saved in the directory of the last task producing class files, or computes and saves
+     * it. A task that is executed again removes the directories of all later tasks, and with them any saved digest.
+     */
+    private String computeAbiDigest(final J2clArtifact artifact) {
+        try {
+            final List<J2clTaskKind> tasks = Lists.array();
+            for (final J2clTaskKind kind : ABI_TASKS) {
+                if (this.tasks(artifact).contains(kind)) {
+                    tasks.add(kind);
+                }
+            }
+
+            final J2clPath file = artifact.taskDirectory(tasks.get(tasks.size() - 1))
+                    .path()
+                    .append(ABI_DIGEST_FILE);
+
+            String digest;
+            if (file.exists().isPresent()) {
+                digest = readDigest(file);
+            } else {
+                final List<Path> classFiles = Lists.array();
+                for (final J2clTaskKind kind : tasks) {
+                    classFiles.add(
+                            artifact.taskDirectory(kind)
+                                    .output()
+                                    .path()
+                    );
+                }
+
+                this.workspace.flush(artifact.directory());
+
+                digest = AbiDigest.compute(
+                        classFiles,
+                        this.fileDigests()
+                );
+
+                writeDigest(
+                        file,
+                        digest
+                );
+            }
+
+            return digest;
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+    }
+
+    /**
+     * The tasks producing the class files that dependents compile and transpile against.
+     */
+    private final static List<J2clTaskKind> ABI_TASKS = Lists.of(
+            J2clTaskKind.JAVAC_ANNOTATION_PROCESSORS_ENABLED,
+            J2clTaskKind.JAVAC_COMPILE_GWT_INCOMPATIBLE_STRIPPED_JAVA_SOURCE,
+            J2clTaskKind.SHADE_CLASS_FILES
+    );
+
+    private final static String ABI_DIGEST_FILE = "abi-digest.txt";
+
+    /**
+     * ABI digests of completed artifacts, cleared at the start of each build.
+     */
+    private final Map<J2clArtifact, String> abiDigests = Maps.concurrent();
+
+    /**
+     * Returns the digest of the output directories of all the tasks of the given completed artifact, computed once by
+     * the first dependent that requires it while concurrent dependents wait.
+     */
+    private String outputDigest(final J2clArtifact artifact) throws IOException {
+        try {
+            return this.outputDigests.computeIfAbsent(
+                    artifact,
+                    this::computeOutputDigest
+            );
+        } catch (final UncheckedIOException cause) {
+            throw cause.getCause();
+        }
+    }
+
+    /**
+     * Reads the digest saved in the directory of the last task of the artifact, or computes and saves it, so later builds
+     * that find the artifact cached need not compute it again.
+     */
+    private String computeOutputDigest(final J2clArtifact artifact) {
+        try {
+            final List<J2clTaskKind> tasks = this.tasks(artifact);
+            final J2clPath file = artifact.taskDirectory(tasks.get(tasks.size() - 1))
+                    .path()
+                    .append(OUTPUT_DIGEST_FILE);
+
+            String digest;
+            if (file.exists().isPresent()) {
+                digest = readDigest(file);
+            } else {
+                final List<Path> outputs = Lists.array();
+                for (final J2clTaskKind kind : tasks) {
+                    if (J2clTaskKind.HASH != kind) {
+                        outputs.add(
+                                artifact.taskDirectory(kind)
+                                        .output()
+                                        .path()
+                        );
+                    }
+                }
+
+                this.workspace.flush(artifact.directory());
+
+                final MerkleTree tree = MerkleTree.compute(
+                        outputs,
+                        this.fileDigests()
+                );
+                final HashBuilder hash = HashBuilder.with(this.hashAlgorithm);
+                for (final Path output : outputs) {
+                    hash.append(
+                            tree.digest(output)
+                    );
+                }
+                digest = hash.build();
+
+                writeDigest(
+                        file,
+                        digest
+                );
+            }
+
+            return digest;
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+    }
+
+    private final static String OUTPUT_DIGEST_FILE = "output-digest.txt";
+
+    /**
+     * Output digests of completed artifacts, cleared at the start of each build.
+     */
+    private final Map<J2clArtifact, String> outputDigests = Maps.concurrent();
+
+    private static String readDigest(final J2clPath file) throws IOException {
+        return new String(
+                Files.readAllBytes(file.path()),
+                StandardCharsets.UTF_8
+        ).trim();
+    }
+
+    /**
+     * Writes the digest to a temporary file which is then moved, so a concurrent build never reads a partial digest.
+     */
+    private static void writeDigest(final J2clPath file,
+                                    final String digest) throws IOException {
+        final Path path = file.path();
+        final Path parent = path.getParent();
+        Files.createDirectories(parent);
+
+        final Path temp = Files.createTempFile(
+                parent,
+                path.getFileName().toString(),
+                TEMP_FILE_SUFFIX
+        );
+        try {
+            Files.write(
+                    temp,
+                    digest.getBytes(StandardCharsets.UTF_8)
+            );
+            Files.move(
+                    temp,
+                    path,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING
+            );
+        } catch (final IOException cause) {
+            Files.deleteIfExists(temp);
+            throw cause;
+        }
+    }
+
+    private final static String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * The priority of each {@link J2clTaskNode}, used to order the execution of ready nodes.
+     */
+    private final Map<J2clTaskNode, J2clTaskPriority> priorities = Maps.concurrent();
+
+    /**
+     * Decrements the {@link #pending} count of the given node, adding it to the ready {@link List} when it reaches zero.
+     */
+    private void taskReady(final J2clTaskNode node,
+                           final List<J2clTaskNode> ready) {
+        if (0 == this.pending.get(node).decrementAndGet()) {
+            ready.add(node);
+        }
+    }
+
+    /**
+     * Submits the given ready nodes, highest priority first, the executor queue will also order any tasks waiting for a thread.
+     */
+    private void submitTasks(final List<J2clTaskNode> ready,
+                             final TreeLogger logger) {
+        ready.sort(
+                Comparator.comparing(this::priority)
+        );
+
+        if (logger.isDebugEnabled()) {
+            this.logQueue(logger);
+        }
+
+        for (final J2clTaskNode node : ready) {
+            if (false == this.admit(node, logger)) {
+                continue;
+            }
+
+            final J2clTaskPriority priority = this.priority(node);
+            logger.line("Submitting " + priority);
+
+            this.trace.queued(node);
+
+            this.submitTask(
+                    () -> this.callable(
+                            node,
+                            logger
+                    ),
+                    node.kind()
+                            .resourceClass(),
+                    Optional.of(priority)
+            );
+        }
+
+        logger.flush();
+    }
+
+    /**
+     * Heap heavy nodes are only submitted when {@link J2clTaskHeapAdmission} admits them, otherwise they are held
+     * and submitted again when another heavy node completes.
+     */
+    private boolean admit(final J2clTaskNode node,
+                          final TreeLogger logger) {
+        final boolean admit = false == J2clTaskHeapAdmission.isRequired(node.kind()) ||
+                this.heapAdmission().tryAdmit(
+                        node,
+                        this.inputBytes(node)
+                );
+        if (false == admit) {
+            logger.line("Holding " + node + " until more heap is free");
+        }
+        return admit;
+    }
+
+    /**
+     * The size of the output of the previous task of the same artifact and the outputs of dependencies the node waited for.
+     */
+    private long inputBytes(final J2clTaskNode node) {
+        final J2clArtifact artifact = node.artifact();
+        final J2clTaskKind kind = node.kind();
+
+        final List<J2clTaskNode> inputs = Lists.array();
+
+        final List<J2clTaskKind> tasks = this.tasks(artifact);
+        final int index = tasks.indexOf(kind);
+        if (index > 0) {
+            inputs.add(
+                    J2clTaskNode.with(
+                            artifact,
+                            tasks.get(index - 1)
+                    )
+            );
+        }
+
+        final Optional<J2clTaskKind> dependencyTaskKind = kind.dependencyTaskKind();
+        if (dependencyTaskKind.isPresent()) {
+            for (final J2clArtifact dependency : this.tasks.get(artifact)) {
+                inputs.add(
+                        J2clTaskNode.with(
+                                dependency,
+                                this.gatingTaskKind(
+                                        dependency,
+                                        dependencyTaskKind.get()
+                                )
+                        )
+                );
+            }
+        }
+
+        long bytes = 0;
+        for (final J2clTaskNode input : inputs) {
+            bytes += this.outputBytes(input);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the size of the output of the given node, which is computed once when the node completes, or the first
+     * time it is required for a node that was skipped because its output was cached.
+     */
+    private long outputBytes(final J2clTaskNode node) {
+        return this.outputBytes.computeIfAbsent(
+                node,
+                (n) -> {
+                    try {
+                        return n.artifact()
+                                .taskDirectory(n.kind())
+                                .output()
+                                .size();
+                    } catch (final IOException cause) {
+                        throw new J2clException("Failed to compute size of output of " + n + ": " + cause.getMessage(), cause);
+                    }
+                }
+        );
+    }
+
+    /**
+     * The size of the output of each completed node, cleared at the start of each build.
+     */
+    private final Map<J2clTaskNode, Long> outputBytes = Maps.concurrent();
+
+    /**
+     * Lazily creates the {@link J2clTaskHeapAdmission}, which keeps the learnt ratios for all builds of the watch goal.
+     */
+    private synchronized J2clTaskHeapAdmission heapAdmission() {
+        if (null == this.heapAdmission) {
+            this.heapAdmission = J2clTaskHeapAdmission.with(
+                    this.memory()
+            );
+        }
+        return this.heapAdmission;
+    }
+
+    private J2clTaskHeapAdmission heapAdmission;
+
+    /**
+     * The source of the free heap, consulted before a heap heavy node is submitted.
+     */
+    // @VisibleForTesting
+    MemoryMXBean memory() {
+        return ManagementFactory.getMemoryMXBean();
+    }
+
+    /**
+     * Prints a snapshot of the nodes that have not yet completed and the number of nodes each is waiting for.
+     */
+    private void logQueue(final TreeLogger logger) {
+        final SortedMap<J2clTaskNode, Integer> waiting = Maps.sorted();
+
+        for (final Entry<J2clTaskNode, AtomicInteger> nodeAndPending : this.pending.entrySet()) {
+            final J2clTaskNode node = nodeAndPending.getKey();
+            final int pending = nodeAndPending.getValue().get();
+
+            if (pending > 0 && false == this.isCompleted(node)) {
+                waiting.put(node, pending);
+            }
+        }
+
+        logger.debugLine("Queue");
+        logger.indent();
+        {
+            waiting.forEach(
+                    (n, p) -> logger.debugLine(n + " waiting for " + p + " task(s)")
+            );
+        }
+        logger.outdent();
+    }
+
+    /**
+     * Tests if the given node has completed or was skipped.
+     */
+    private boolean isCompleted(final J2clTaskNode node) {
+        final J2clArtifact artifact = node.artifact();
+
+        return this.progress.get(artifact).get() > this.tasks(artifact)
+                .indexOf(node.kind());
+    }
+
+    private J2clTaskPriority priority(final J2clTaskNode node) {
+        final J2clTaskPriority priority = this.priorities.get(node);
+        if (null == priority) {
+            throw new IllegalStateException("Priority missing for " + node);
+        }
+        return priority;
+    }
+
+    /**
+     * Submits a task without a {@link J2clTaskPriority} to the {@link J2clTaskResourceClass#IO} executor, which will be
+     * executed before any other waiting tasks.
+     */
+    public void submitTask(final Callable<Void> task) {
+        this.submitTask(
+                task,
+                J2clTaskResourceClass.IO,
+                Optional.empty()
+        );
+    }
+
+    private void submitTask(final Callable<Void> task,
+                            final J2clTaskResourceClass resourceClass,
+                            final Optional<J2clTaskPriority> priority) {
+        final J2clTaskCompletion completion = this.completion();
+        completion.submitted();
+
+        try {
+            this.executors.get()
+                    .execute(
+                            resourceClass,
+                            J2clTaskFuture.with(
+                                    task,
+                                    priority,
+                                    this.sequence.incrementAndGet(),
+                                    completion
+                            )
+                    );
+        } catch (final RejectedExecutionException cause) {
+            completion.rejected();
+            throw cause;
+        }
+    }
+
+    /**
+     * Lazily create {@link J2clTaskExecutors} and {@link J2clTaskCompletion}, this helps support the watch task which
+     * creates a new instance of each for each file event.
+     */
+    private J2clTaskCompletion completion() {
+        // lazily create executors, the watch service will clear any executors & completion after each build run.
+        if (null == this.executors.get()) {
+            this.completion.set(
+                    J2clTaskCompletion.with(this::buildCompleted)
+            );
+            this.executors.set(
+                    this.executors()
+            );
+        }
+
+        return this.completion.get();
+    }
+
+    /**
+     * Used to keep tasks with the same priority in submission order.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private Void callable(final J2clTaskNode node,
+                          final TreeLogger logger) throws Exception {
+        final Thread thread = Thread.currentThread();
+        final String threadName = thread.getName();
+
+        try {
+            // skip this and any more tasks, watch task probably issued a shutdown because of a new file watch event.
+            if (this.isRunning()) {
+                thread.setName(node.toString());
+                this.trace.started(node);
+
+                final long start = System.nanoTime();
+
+                final Optional<J2clTaskKind> next = this.execute(
+                        node,
+                        logger
+                );
+
+                final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                // the output size is kept, a dependent heavy task includes it in its input size.
+                final long outputBytes = node.artifact()
+                        .taskDirectory(node.kind())
+                        .output()
+                        .size();
+                this.outputBytes.put(
+                        node,
+                        outputBytes
+                );
+
+                this.history.executed(
+                        node,
+                        millis,
+                        outputBytes
+                );
+
+                thread.setName(threadName);
+
+                this.taskCompleted(
+                        node,
+                        next,
+                        logger
+                );
+            }
+        } finally {
+            thread.setName(threadName);
+            this.trace.completed(node);
+
+            if (J2clTaskHeapAdmission.isRequired(node.kind())) {
+                this.heapReleased(
+                        node,
+                        logger
+                );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Executes the task of the given node, returning the next task of its artifact.
+     */
+    // @VisibleForTesting
+    Optional<J2clTaskKind> execute(final J2clTaskNode node,
+                                   final TreeLogger logger) throws Exception {
+        return node.kind()
+                .execute(
+                        node.artifact(),
+                        logger,
+                        this
+                );
+    }
+
+    /**
+     * Releases the heap reserved for the given node and submits any nodes that were held back.
+     */
+    private void heapReleased(final J2clTaskNode node,
+                              final TreeLogger logger) {
+        final List<J2clTaskNode> held = this.heapAdmission().release(node);
+        if (false == held.isEmpty() && this.isRunning()) {
+            this.submitTasks(
+                    held,
+                    logger
+            );
+        }
+    }
+
+    /**
+     * Records the progress of the artifact of the completed node and submits any nodes of the same artifact or its
+     * dependents that are no longer waiting. All tasks between the completed and the next task were skipped, eg
+     * a HASH which found cached output, and also release their dependents.
+     */
+    final J2clMavenContext taskCompleted(final J2clTaskNode completed,
+                                         final Optional<J2clTaskKind> next,
+                                         final TreeLogger logger) {
+        final J2clArtifact artifact = completed.artifact();
+        final List<J2clTaskKind> tasks = this.tasks(artifact);
+        final int nextIndex = next.map(tasks::indexOf)
+                .orElse(tasks.size());
+
+        this.progress.get(artifact)
+                .set(nextIndex);
+
+        final List<J2clTaskNode> ready = Lists.array();
+
+        final int completedIndex = tasks.indexOf(completed.kind());
+        for (int i = completedIndex; i < nextIndex; i++) {
+            final J2clTaskNode node = J2clTaskNode.with(
+                    artifact,
+                    tasks.get(i)
+            );
+            if (i > completedIndex) {
+                this.history.cached(node);
+            }
+
+            final List<J2clTaskNode> dependents = this.dependents.get(node);
+            if (null != dependents) {
+                for (final J2clTaskNode dependent : dependents) {
+                    this.trace.dependency(
+                            completed,
+                            dependent
+                    );
+                    this.taskReady(
+                            dependent,
+                            ready
+                    );
+                }
+            }
+        }
+
+        if (next.isPresent()) {
+            final J2clTaskNode nextNode = J2clTaskNode.with(
+                    artifact,
+                    next.get()
+            );
+            this.trace.dependency(
+                    completed,
+                    nextNode
+            );
+            this.taskReady(
+                    nextNode,
+                    ready
+            );
+        } else {
+            logger.line(artifact.coords() + " completed.");
+
+            if (false == artifact.isDependency()) {
+                this.projectCompleted(artifact);
+            }
+        }
+
+        // cancelled tasks should not be followed by more tasks.
+        if (this.isRunning()) {
+            this.submitTasks(
+                    ready,
+                    logger
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Waits (aka Blocks) for all outstanding tasks to complete.
+     */
+    public void waitUntilCompletion() throws Throwable {
+        final J2clTaskExecutors executors = this.executors.get();
+        final J2clTaskCompletion completion = this.completion.get();
+
+        if (null != executors && null != completion) {
+            try {
+                try {
+                    completion.awaitFinished();
+                } catch (final Throwable cause) {
+                    cause.printStackTrace();
+                    this.cancel(cause);
+                    throw cause;
+                }
+
+                this.executors.set(null);
+                this.completion.set(null);
+                executors.shutdown();
+
+                final Throwable cause = this.cause.get();
+                if (null != cause) {
+                    throw cause;
+                }
+
+                // the completed hook persists the workspace, whose deferred actions may have failed.
+                completion.awaitIdle();
+                final Throwable persistFailure = this.persistFailure.getAndSet(null);
+                if (null != persistFailure) {
+                    throw persistFailure;
+                }
+
+                this.verifyAllTasksCompleted();
+            } finally {
+                // the build is only complete once the completed hook has run.
+                completion.awaitIdle();
+            }
+        }
+    }
+
+    /**
+     * Called by {@link J2clTaskCompletion} once every task of a build has completed or was cancelled. This includes the
+     * rebuilds of the watch goal, which are never waited for.
+     */
+    private void buildCompleted() {
+        final MavenLogger logger = this.mavenLogger();
+
+        try {
+            this.workspace.close();
+        } catch (final IOException cause) {
+            // fails the build once waitUntilCompletion returns, the watch goal only logs it.
+            logger.error("Failed to persist workspace: " + cause.getMessage(), cause);
+            this.persistFailure.set(cause);
+        } catch (final InterruptedException cause) {
+            logger.warn("Interrupted while persisting workspace: " + cause.getMessage());
+            Thread.currentThread()
+                    .interrupt();
+        }
+        this.writeTrace();
+        this.writeHistory();
+        this.writeFileDigests();
+        this.pruneBlobStore();
+        this.pruneTranspilerUnitCache();
+        this.closeArchiveFileSystems();
+        this.javacCompilerService.close(logger);
+        if (this.shouldCloseTranspilerService()) {
+            this.transpilerService.close(logger);
+        } else {
+            this.transpilerService.closeUnused(logger);
+        }
+    }
+
+    /**
+     * Deletes blobs no longer linked by any cache entry, a failure is logged but not fatal.
+     */
+    private void pruneBlobStore() {
+        final MavenLogger logger = this.mavenLogger();
+        try {
+            final int pruned = this.blobStore.prune();
+            if (pruned > 0) {
+                logger.info("Pruned " + pruned + " unused blob(s) from " + this.blobStore);
+            }
+        } catch (final IOException cause) {
+            logger.warn("Failed to prune " + this.blobStore + ": " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Deletes transpiled compilation units not used recently, a failure is logged but not fatal.
+     */
+    private void pruneTranspilerUnitCache() {
+        final MavenLogger logger = this.mavenLogger();
+        try {
+            final int pruned = this.transpilerService.pruneUnitCache(this.cache());
+            if (pruned > 0) {
+                logger.info("Pruned " + pruned + " unused transpiled compilation unit(s)");
+            }
+        } catch (final IOException cause) {
+            logger.warn("Failed to prune transpiled compilation units: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Writes the {@link J2clTaskTrace} of the last build to the cache directory, a failure is logged but not fatal.
+     */
+    private void writeTrace() {
+        final J2clPath file = this.cache()
+                .append(J2clTaskTrace.FILE);
+        try {
+            this.trace.write(file);
+        } catch (final IOException cause) {
+            this.mavenLogger()
+                    .warn("Failed to write " + file + ": " + cause.getMessage());
+        }
+    }
+
+    private final J2clTaskTrace trace = J2clTaskTrace.empty();
+
+    /**
+     * Fails if any artifact has tasks that were never submitted, because they were still waiting when all running tasks completed.
+     */
+    private void verifyAllTasksCompleted() {
+        final Set<J2clArtifact> incomplete = SortedSets.tree();
+
+        for (final Entry<J2clArtifact, AtomicInteger> artifactAndProgress : this.progress.entrySet()) {
+            final J2clArtifact artifact = artifactAndProgress.getKey();
+            if (artifactAndProgress.getValue().get() < this.tasks(artifact).size()) {
+                incomplete.add(artifact);
+            }
+        }
+
+        if (false == incomplete.isEmpty()) {
+            throw new J2clException(incomplete.size() + " artifact(s) with waiting tasks but none running: " + join(incomplete));
+        }
+    }
+
+    /**
+     * Used to cancel any outstanding tasks typically done because one task has failed and any future work is pointless
+     * and should be immediately aborted.
+     */
+    final void cancel(final Throwable cause) {
+        final J2clTaskExecutors executors = this.executors.get();
+
+        if (this.isRunning()) {
+            this.cause.compareAndSet(null, cause);
+
+            final MavenLogger logger = this.mavenLogger();
+            logger.warn("Killing all running tasks");
+
+            executors.shutdown();
+
+            // queued tasks still run but skip their work, wait until the last has completed.
+            try {
+                this.completion.get()
+                        .awaitIdle();
+            } catch (final InterruptedException interrupted) {
+                interrupted.printStackTrace();
+            }
+
+            logger.warn("Cancelled tasks completed");
+        }
+
+        this.executors.set(null);
+        this.completion.set(null);
+    }
+
+    /**
+     * Returns true if the {@link J2clTaskExecutors} is still alive and executing new or pending tasks.
+     */
+    // @VisibleForTesting
+    boolean isRunning() {
+        final J2clTaskExecutors executors = this.executors.get();
+        return null != executors && !executors.isShutdown();
+    }
+
+    /**
+     * The size of the {@link J2clTaskResourceClass#IO} executor, where zero selects virtual threads when available.
+     */
+    private final int ioThreadPoolSize;
+
+    /**
+     * The size of the {@link J2clTaskResourceClass#CPU} executor, where zero selects the CPU core count.
+     */
+    private final int threadPoolSize;
+
+    /**
+     * The size of the {@link J2clTaskResourceClass#CLOSURE} executor, where zero selects a single thread.
+     */
+    private final int closureThreadPoolSize;
+
+    /**
+     * The build and test goals only create a single {@link J2clTaskExecutors}, while the watch goal will create
+     * a new {@link J2clTaskExecutors} each time it runs.
+     */
+    private final AtomicReference<J2clTaskExecutors> executors = new AtomicReference<>();
+
+    /**
+     * An instance is created when a new {@link J2clTaskExecutors} is created, and receives each {@link J2clTaskFuture} when it completes.
+     */
+    private final AtomicReference<J2clTaskCompletion> completion = new AtomicReference<>();
+
+    private final AtomicReference<Throwable> cause = new AtomicReference<>();
+
+    /**
+     * Set by {@link #buildCompleted()} when the {@link J2clWorkspace} failed to persist a file or complete a deferred action.
+     */
+    private final AtomicReference<Throwable> persistFailure = new AtomicReference<>();
+
+    // hash..............................................................................................................
+
+    /**
+     * Returns a sha1 hash in hex digits that uniquely identifies this request using components.
+     * Requests should cache the hash for performance reasons.
+     */
+    public abstract void computeHash(final J2clArtifact artifact,
+                                     final HashBuilder hash,
+                                     final Set<String> hashItemNames);
+
+    /**
+     * Creates a {@link HashBuilder} and hashes most of the properties of a request.
      */
     final void computeHash0(final J2clArtifact artifact,
                             final HashBuilder hash,
@@ -659,6 +1905,11 @@ public abstract class J2clMavenContext implements Context {
         hashItemNames.add("language-out: " + languageOut);
         hash.append(languageOut);
 
+        if (this.singleJavac) {
+            hashItemNames.add("single-javac: true");
+            hash.append("single-javac");
+        }
+
         final Optional<String> sourceMaps = this.sourceMaps();
         if (sourceMaps.isPresent()) {
             final String path = sourceMaps.get();
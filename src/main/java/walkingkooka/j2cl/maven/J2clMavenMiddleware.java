@@ -56,4 +56,11 @@ public interface J2clMavenMiddleware {
      * Fetches the file for the given coords
      */
     Optional<J2clPath> mavenFile(final String coords);
+
+    /**
+     * Returns the checksum of the given file from the <code>.sha1</code> or <code>.sha256</code> file that
+     * accompanies it in the local repository, without reading the file itself. A checksum file older than the file
+     * is ignored because the file was probably installed locally after the checksum was downloaded.
+     */
+    Optional<String> checksum(final J2clPath file);
 }
@@ -36,6 +36,10 @@ import org.eclipse.aether.resolution.ArtifactResolutionException;
 import walkingkooka.collect.map.Maps;
 import walkingkooka.text.CharSequences;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -130,6 +134,47 @@ final class J2clMavenMiddlewareImpl implements J2clMavenMiddleware {
         return Optional.ofNullable(file);
     }
 
+    /**
+     * The sha1 is preferred because it matches the digest computed when no checksum file exists, the sha256 is
+     * prefixed so the two are never confused.
+     */
+    @Override
+    public Optional<String> checksum(final J2clPath file) {
+        final Path path = file.path();
+
+        Optional<String> checksum = checksumFile(path, ".sha1", 40);
+        if (false == checksum.isPresent()) {
+            checksum = checksumFile(path, ".sha256", 64)
+                    .map(c -> "sha256:" + c);
+        }
+        return checksum;
+    }
+
+    private static Optional<String> checksumFile(final Path file,
+                                                 final String extension,
+                                                 final int length) {
+        final Path checksumFile = file.resolveSibling(file.getFileName() + extension);
+
+        String checksum = null;
+        try {
+            if (Files.isRegularFile(checksumFile) &&
+                    Files.getLastModifiedTime(checksumFile).compareTo(Files.getLastModifiedTime(file)) >= 0) {
+                // some checksum files are followed by the file name.
+                final String text = new String(Files.readAllBytes(checksumFile), StandardCharsets.US_ASCII)
+                        .trim();
+                final int space = text.indexOf(' ');
+                final String hex = (-1 == space ? text : text.substring(0, space))
+                        .toLowerCase();
+                if (hex.length() == length && hex.chars().allMatch(c -> Character.digit(c, 16) != -1)) {
+                    checksum = hex;
+                }
+            }
+        } catch (final IOException ignore) {
+            // unreadable checksum file, the file will be hashed instead.
+        }
+        return Optional.ofNullable(checksum);
+    }
+
     private final MavenSession mavenSession;
     private final ProjectBuilder projectBuilder;
     private final List<ArtifactRepository> remoteArtifactRepositories;
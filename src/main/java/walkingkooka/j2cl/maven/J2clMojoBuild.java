@@ -71,12 +71,16 @@ public final class J2clMojoBuild extends J2clMojoBuildWatch {
                 this.externs(),
                 entryPoints,
                 this.formatting(),
+                this.hashAlgorithm(),
                 initialScriptFilename,
                 this.javaCompilerArguments(),
+                this.singleJavac(),
                 this.languageOut(),
                 this.sourceMaps(),
                 this.mavenMiddleware(),
+                this.ioThreadPoolSize(),
                 this.threadPoolSize(),
+                this.closureThreadPoolSize(),
                 this.logger()
         );
     }
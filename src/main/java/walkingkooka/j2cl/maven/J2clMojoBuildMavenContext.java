@@ -21,6 +21,7 @@ import com.google.javascript.jscomp.CompilationLevel;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.j2cl.maven.closure.ClosureFormattingOption;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
 import walkingkooka.j2cl.maven.hash.HashBuilder;
 import walkingkooka.j2cl.maven.log.MavenLogger;
 
@@ -45,12 +46,16 @@ final class J2clMojoBuildMavenContext extends J2clMavenContext {
                                           final Set<String> externs,
                                           final List<String> entryPoints,
                                           final Set<ClosureFormattingOption> formatting,
+                                          final HashAlgorithm hashAlgorithm,
                                           final J2clPath initialScriptFilename,
                                           final Set<String> javaCompilerArguments,
+                                          final boolean singleJavac,
                                           final LanguageMode languageOut,
                                           final Optional<String> sourceMaps,
                                           final J2clMavenMiddleware middleware,
+                                          final int ioThreadPoolSize,
                                           final int threadPoolSize,
+                                          final int closureThreadPoolSize,
                                           final MavenLogger logger) {
         return new J2clMojoBuildMavenContext(
                 cache,
@@ -64,12 +69,16 @@ final class J2clMojoBuildMavenContext extends J2clMavenContext {
                 externs,
                 entryPoints,
                 formatting,
+                hashAlgorithm,
                 initialScriptFilename,
                 javaCompilerArguments,
+                singleJavac,
                 languageOut,
                 sourceMaps,
                 middleware,
+                ioThreadPoolSize,
                 threadPoolSize,
+                closureThreadPoolSize,
                 logger
         );
     }
@@ -85,12 +94,16 @@ final class J2clMojoBuildMavenContext extends J2clMavenContext {
                                       final Set<String> externs,
                                       final List<String> entryPoints,
                                       final Set<ClosureFormattingOption> formatting,
+                                      final HashAlgorithm hashAlgorithm,
                                       final J2clPath initialScriptFilename,
                                       final Set<String> javaCompilerArguments,
+                                      final boolean singleJavac,
                                       final LanguageMode languageOut,
                                       final Optional<String> sourceMaps,
                                       final J2clMavenMiddleware middleware,
+                                      final int ioThreadPoolSize,
                                       final int threadPoolSize,
+                                      final int closureThreadPoolSize,
                                       final MavenLogger logger) {
         super(
                 cache,
@@ -103,11 +116,15 @@ final class J2clMojoBuildMavenContext extends J2clMavenContext {
                 defines,
                 externs,
                 formatting,
+                hashAlgorithm,
                 javaCompilerArguments,
+                singleJavac,
                 languageOut,
                 sourceMaps,
                 middleware,
+                ioThreadPoolSize,
                 threadPoolSize,
+                closureThreadPoolSize,
                 logger
         );
         this.entryPoints = entryPoints;
@@ -195,4 +212,14 @@ final class J2clMojoBuildMavenContext extends J2clMavenContext {
     boolean shouldSkipSubmittingDependencyTasks() {
         return false;
     }
+
+    @Override
+    boolean shouldCloseTranspilerService() {
+        return true;
+    }
+
+    @Override
+    boolean shouldShareOutputs() {
+        return true;
+    }
 }
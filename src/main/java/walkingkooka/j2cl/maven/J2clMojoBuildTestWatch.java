@@ -31,6 +31,7 @@ import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.repository.RemoteRepository;
 import walkingkooka.collect.set.SortedSets;
 import walkingkooka.j2cl.maven.closure.ClosureFormattingOption;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.text.CharSequences;
 
@@ -214,6 +215,21 @@ abstract class J2clMojoBuildTestWatch extends J2clMojo {
     @Parameter(required = true)
     private final List<String> formatting = new ArrayList<>();
 
+    // hashAlgorithm.....................................................................................................
+
+    final HashAlgorithm hashAlgorithm() {
+        return HashAlgorithm.fromCommandLine(this.hashAlgorithm.trim());
+    }
+
+    /**
+     * The algorithm used to hash artifacts, one of SHA-1, SHA-256 or MURMUR3-128. The algorithm is included in the
+     * name of the cache directory of each artifact.
+     */
+    @Parameter(
+            alias = "hash-algorithm",
+            defaultValue = "SHA-1")
+    private String hashAlgorithm;
+
     // javaCompilerArguments.............................................................................................
 
     /**
@@ -239,6 +255,22 @@ abstract class J2clMojoBuildTestWatch extends J2clMojo {
             required = true)
     private LanguageMode languageOut;
 
+    // single-javac.....................................................................................................
+
+    final boolean singleJavac() {
+        return this.singleJavac;
+    }
+
+    /**
+     * When true @GwtIncompatible is stripped in memory from the sources and generated sources given to the javac with
+     * annotation processors enabled, and its class files are reused rather than invoking javac on the stripped sources.
+     * Annotation processors will not see any @GwtIncompatible members.
+     */
+    @Parameter(
+            alias = "single-javac",
+            defaultValue = "false")
+    private boolean singleJavac;
+
     // source-maps......................................................................................................
 
     final Optional<String> sourceMaps() {
@@ -266,7 +298,8 @@ abstract class J2clMojoBuildTestWatch extends J2clMojo {
     // threadPool.......................................................................................................
 
     /**
-     * If a value of zero is passed or defaulted the a thread pool equal to the CPU core count * 2 is created.
+     * The size of the thread pool executing the java compiler, GwtIncompatible stripper and transpiler.
+     * If a value of zero is passed or defaulted the a thread pool equal to the CPU core count is created.
      * <br>
      * It may be useful to set this value to 1 to aide ordering and have console output in an ordered non interrupted
      * single thread.
@@ -279,12 +312,48 @@ abstract class J2clMojoBuildTestWatch extends J2clMojo {
     final int threadPoolSize() {
         final int threadPoolSize = this.threadPoolSize;
         if (threadPoolSize < 0) {
-            throw new IllegalStateException("Invalid threadPoolSize expected 0 to select CPU cores *2, or a positive value but got " + threadPoolSize);
+            throw new IllegalStateException("Invalid threadPoolSize expected 0 to select CPU cores, or a positive value but got " + threadPoolSize);
         }
 
         return threadPoolSize;
     }
 
+    /**
+     * The size of the thread pool executing tasks that mostly read and write files. If a value of zero is passed or
+     * defaulted virtual threads are used when available otherwise a thread pool equal to CPU core count * 4 is created.
+     */
+    @Parameter(
+            alias = "io-thread-pool-size",
+            defaultValue = "0")
+    private int ioThreadPoolSize;
+
+    final int ioThreadPoolSize() {
+        final int ioThreadPoolSize = this.ioThreadPoolSize;
+        if (ioThreadPoolSize < 0) {
+            throw new IllegalStateException("Invalid ioThreadPoolSize expected 0 to select virtual threads, or a positive value but got " + ioThreadPoolSize);
+        }
+
+        return ioThreadPoolSize;
+    }
+
+    /**
+     * The size of the thread pool executing the closure compiler. If a value of zero is passed or defaulted a single
+     * thread is used.
+     */
+    @Parameter(
+            alias = "closure-thread-pool-size",
+            defaultValue = "0")
+    private int closureThreadPoolSize;
+
+    final int closureThreadPoolSize() {
+        final int closureThreadPoolSize = this.closureThreadPoolSize;
+        if (closureThreadPoolSize < 0) {
+            throw new IllegalStateException("Invalid closureThreadPoolSize expected 0 to select a single thread, or a positive value but got " + closureThreadPoolSize);
+        }
+
+        return closureThreadPoolSize;
+    }
+
     // mavenMiddleware..................................................................................................
 
     @Component
@@ -120,7 +120,9 @@ public final class J2clMojoTest extends J2clMojoBuildTestWatch {
                 this.defines(),
                 this.externs(),
                 this.formatting(),
+                this.hashAlgorithm(),
                 this.javaCompilerArguments(),
+                this.singleJavac(),
                 this.languageOut(),
                 this.sourceMaps(),
                 this.browsers(),
@@ -128,7 +130,9 @@ public final class J2clMojoTest extends J2clMojoBuildTestWatch {
                 testClassName,
                 this.testTimeout(),
                 this.mavenMiddleware(),
+                this.ioThreadPoolSize(),
                 this.threadPoolSize(),
+                this.closureThreadPoolSize(),
                 this.logger());
     }
 
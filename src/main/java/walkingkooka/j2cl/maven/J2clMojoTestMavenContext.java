@@ -21,6 +21,7 @@ import com.google.javascript.jscomp.CompilationLevel;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.j2cl.maven.closure.ClosureFormattingOption;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
 import walkingkooka.j2cl.maven.hash.HashBuilder;
 import walkingkooka.j2cl.maven.log.BrowserLogLevel;
 import walkingkooka.j2cl.maven.log.MavenLogger;
@@ -47,7 +48,9 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                                          final Map<String, String> defines,
                                          final Set<String> externs,
                                          final Set<ClosureFormattingOption> formatting,
+                                         final HashAlgorithm hashAlgorithm,
                                          final Set<String> javaCompilerArguments,
+                                         final boolean singleJavac,
                                          final LanguageMode languageOut,
                                          final Optional<String> sourceMaps,
                                          final List<J2clTaskWebDriverUnitTestRunnerBrowser> browsers,
@@ -55,7 +58,9 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                                          final String testClassName,
                                          final int testTimeout,
                                          final J2clMavenMiddleware middleware,
+                                         final int ioThreadPoolSize,
                                          final int threadPoolSize,
+                                         final int closureThreadPoolSize,
                                          final MavenLogger logger) {
         return new J2clMojoTestMavenContext(
                 cache,
@@ -68,7 +73,9 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                 defines,
                 externs,
                 formatting,
+                hashAlgorithm,
                 javaCompilerArguments,
+                singleJavac,
                 languageOut,
                 sourceMaps,
                 browsers,
@@ -76,7 +83,9 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                 testClassName,
                 testTimeout,
                 middleware,
+                ioThreadPoolSize,
                 threadPoolSize,
+                closureThreadPoolSize,
                 logger
         );
     }
@@ -91,7 +100,9 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                                      final Map<String, String> defines,
                                      final Set<String> externs,
                                      final Set<ClosureFormattingOption> formatting,
+                                     final HashAlgorithm hashAlgorithm,
                                      final Set<String> javaCompilerArguments,
+                                     final boolean singleJavac,
                                      final LanguageMode languageOut,
                                      final Optional<String> sourceMaps,
                                      final List<J2clTaskWebDriverUnitTestRunnerBrowser> browsers,
@@ -99,7 +110,9 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                                      final String testClassName,
                                      final int testTimeout,
                                      final J2clMavenMiddleware middleware,
+                                     final int ioThreadPoolSize,
                                      final int threadPoolSize,
+                                     final int closureThreadPoolSize,
                                      final MavenLogger logger) {
         super(
                 cache,
@@ -112,11 +125,15 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
                 defines,
                 externs,
                 formatting,
+                hashAlgorithm,
                 javaCompilerArguments,
+                singleJavac,
                 languageOut,
                 sourceMaps,
                 middleware,
+                ioThreadPoolSize,
                 threadPoolSize,
+                closureThreadPoolSize,
                 logger
         );
         this.browsers = browsers;
@@ -216,6 +233,16 @@ public final class J2clMojoTestMavenContext extends J2clMavenContext {
         return false;
     }
 
+    @Override
+    boolean shouldCloseTranspilerService() {
+        return true;
+    }
+
+    @Override
+    boolean shouldShareOutputs() {
+        return true;
+    }
+
     // test only props..................................................................................................
 
     public List<J2clTaskWebDriverUnitTestRunnerBrowser> browsers() {
@@ -81,7 +81,11 @@ public final class J2clMojoWatch extends J2clMojoBuildWatch {
                     context
             );
 
-            this.prepareWatchBuild(project);
+            this.prepareWatchBuild(
+                    project,
+                    logger,
+                    context
+            );
 
             context.prepareAndStart(
                     project,
@@ -119,12 +123,16 @@ public final class J2clMojoWatch extends J2clMojoBuildWatch {
                 this.externs(),
                 this.entryPoints(),
                 this.formatting(),
+                this.hashAlgorithm(),
                 this.initialScriptFilename(),
                 this.javaCompilerArguments(),
+                this.singleJavac(),
                 this.languageOut(),
                 this.sourceMaps(),
                 this.mavenMiddleware(),
+                this.ioThreadPoolSize(),
                 this.threadPoolSize(),
+                this.closureThreadPoolSize(),
                 this.logger()
         );
     }
@@ -222,10 +230,14 @@ public final class J2clMojoWatch extends J2clMojoBuildWatch {
 
     private void build(final J2clArtifact project,
                        final TreeLogger logger,
-                       final J2clMojoWatchMavenContext context) throws IOException {
+                       final J2clMojoWatchMavenContext context) throws IOException, InterruptedException {
         final Instant start = Instant.now();
 
-        this.prepareWatchBuild(project);
+        this.prepareWatchBuild(
+                project,
+                logger,
+                context
+        );
 
         logger.info("Build");
         logger.indent();
@@ -249,16 +261,28 @@ public final class J2clMojoWatch extends J2clMojoBuildWatch {
         );
     }
 
-    private void prepareWatchBuild(final J2clArtifact project) throws IOException {
+    /**
+     * Prepares the "-watch" directory of the project, which is emptied unless only the changed compilation units will
+     * be rebuilt.
+     */
+    private void prepareWatchBuild(final J2clArtifact project,
+                                   final TreeLogger logger,
+                                   final J2clMojoWatchMavenContext context) throws IOException, InterruptedException {
         // the cache directory will not have a hash and will have a trailing "-watch"
         final J2clPath output = project.setDirectory("watch")
                 .directory();
 
-        // empty the previous watch rebuild or create an empty dir
-        if (output.exists().isPresent()) {
-            output.removeAll();
-        } else {
-            output.createIfNecessary();
+        // files of the previous build are read from disk from now on.
+        context.workspace()
+                .close();
+
+        if (false == context.prepareIncrementalBuild(project, logger)) {
+            // empty the previous watch rebuild or create an empty dir
+            if (output.exists().isPresent()) {
+                output.removeAll();
+            } else {
+                output.createIfNecessary();
+            }
         }
     }
 }
@@ -21,9 +21,12 @@ import com.google.javascript.jscomp.CompilationLevel;
 import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.j2cl.maven.closure.ClosureFormattingOption;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
 import walkingkooka.j2cl.maven.hash.HashBuilder;
 import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.j2cl.maven.log.TreeLogger;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,12 +49,16 @@ final class J2clMojoWatchMavenContext extends J2clMavenContext {
                                           final Set<String> externs,
                                           final List<String> entryPoints,
                                           final Set<ClosureFormattingOption> formatting,
+                                          final HashAlgorithm hashAlgorithm,
                                           final J2clPath initialScriptFilename,
                                           final Set<String> javaCompilerArguments,
+                                          final boolean singleJavac,
                                           final LanguageMode languageOut,
                                           final Optional<String> sourceMaps,
                                           final J2clMavenMiddleware middleware,
+                                          final int ioThreadPoolSize,
                                           final int threadPoolSize,
+                                          final int closureThreadPoolSize,
                                           final MavenLogger logger) {
         return new J2clMojoWatchMavenContext(
                 cache,
@@ -66,12 +73,16 @@ final class J2clMojoWatchMavenContext extends J2clMavenContext {
                 externs,
                 entryPoints,
                 formatting,
+                hashAlgorithm,
                 initialScriptFilename,
                 javaCompilerArguments,
+                singleJavac,
                 languageOut,
                 sourceMaps,
                 middleware,
+                ioThreadPoolSize,
                 threadPoolSize,
+                closureThreadPoolSize,
                 logger
         );
     }
@@ -88,12 +99,16 @@ final class J2clMojoWatchMavenContext extends J2clMavenContext {
                                       final Set<String> externs,
                                       final List<String> entryPoints,
                                       final Set<ClosureFormattingOption> formatting,
+                                      final HashAlgorithm hashAlgorithm,
                                       final J2clPath initialScriptFilename,
                                       final Set<String> javaCompilerArguments,
+                                      final boolean singleJavac,
                                       final LanguageMode languageOut,
                                       final Optional<String> sourceMaps,
                                       final J2clMavenMiddleware middleware,
+                                      final int ioThreadPoolSize,
                                       final int threadPoolSize,
+                                      final int closureThreadPoolSize,
                                       final MavenLogger logger) {
         super(
                 cache,
@@ -106,11 +121,15 @@ final class J2clMojoWatchMavenContext extends J2clMavenContext {
                 defines,
                 externs,
                 formatting,
+                hashAlgorithm,
                 javaCompilerArguments,
+                singleJavac,
                 languageOut,
                 sourceMaps,
                 middleware,
+                ioThreadPoolSize,
                 threadPoolSize,
+                closureThreadPoolSize,
                 logger
         );
         this.buildOutputDirectory = buildOutputDirectory;
@@ -207,6 +226,87 @@ final class J2clMojoWatchMavenContext extends J2clMavenContext {
         return false == this.fileEventRebuildPhase;
     }
 
+    // incremental......................................................................................................
+
+    /**
+     * Builds the {@link J2clClassDependencyGraph} of the classes in the build-output-directory and compares it with the
+     * graph of the last successful build, returning true if only the changed compilation units and those that
+     * reference them are to be rebuilt. Everything is built for the first build, when a file other than a class
+     * file changed or when the project shades its own packages.
+     */
+    boolean prepareIncrementalBuild(final J2clArtifact project,
+                                    final TreeLogger logger) throws IOException {
+        final J2clClassDependencyGraph current = J2clClassDependencyGraph.build(
+                this.buildOutputDirectory,
+                this.hashAlgorithm()
+        );
+        this.classDependencyGraph = current;
+
+        Optional<Set<String>> changed = Optional.empty();
+
+        if (this.fileEventRebuildPhase && project.shadeMappings().isEmpty()) {
+            final Optional<J2clClassDependencyGraph> previous = J2clClassDependencyGraph.read(
+                    classDependencyGraphFile(project)
+            );
+            if (previous.isPresent()) {
+                changed = previous.get()
+                        .changedCompilationUnits(current);
+            }
+        }
+
+        this.changedCompilationUnits = changed;
+
+        if (changed.isPresent()) {
+            logger.strings(
+                    "Changed compilation unit(s)",
+                    changed.get()
+            );
+        } else {
+            logger.line("Building all compilation unit(s)");
+        }
+
+        return changed.isPresent();
+    }
+
+    @Override
+    public Optional<Set<String>> changedCompilationUnits(final J2clArtifact artifact) {
+        return artifact.isDependency() ?
+                Optional.empty() :
+                this.changedCompilationUnits;
+    }
+
+    /**
+     * The changed compilation units of the project for the current build.
+     */
+    private Optional<Set<String>> changedCompilationUnits = Optional.empty();
+
+    /**
+     * Saves the graph of the build that just completed, the next build rebuilds the compilation units changed since.
+     */
+    @Override
+    void projectCompleted(final J2clArtifact project) {
+        final J2clClassDependencyGraph graph = this.classDependencyGraph;
+        if (null != graph) {
+            final J2clPath file = classDependencyGraphFile(project);
+            try {
+                graph.write(file);
+            } catch (final IOException cause) {
+                this.mavenLogger()
+                        .warn("Failed to write " + file + ": " + cause.getMessage());
+            }
+        }
+    }
+
+    private static J2clPath classDependencyGraphFile(final J2clArtifact project) {
+        return project.directory()
+                .append(J2clClassDependencyGraph.FILE);
+    }
+
+    /**
+     * The graph of the build-output-directory when the current build was prepared.
+     */
+    private J2clClassDependencyGraph classDependencyGraph;
+
     // J2clMavenContext.................................................................................................
 
     @Override
@@ -214,5 +314,15 @@ final class J2clMojoWatchMavenContext extends J2clMavenContext {
         return this.fileEventRebuildPhase;
     }
 
+    @Override
+    boolean shouldCloseTranspilerService() {
+        return false;
+    }
+
+    @Override
+    boolean shouldShareOutputs() {
+        return false;
+    }
+
     boolean fileEventRebuildPhase = false;
 }
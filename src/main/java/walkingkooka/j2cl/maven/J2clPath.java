@@ -18,6 +18,9 @@
 package walkingkooka.j2cl.maven;
 
 import com.google.j2cl.common.SourceUtils.FileInfo;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
 import walkingkooka.collect.list.Lists;
 import walkingkooka.collect.map.Maps;
 import walkingkooka.collect.set.Sets;
@@ -27,25 +30,28 @@ import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.reflect.PackageName;
 import walkingkooka.text.CaseSensitivity;
+import walkingkooka.text.CharSequences;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.charset.Charset;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystemAlreadyExistsException;
-import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -54,6 +60,9 @@ import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * A more object oriented path abstraction with numerous methods to do useful stuff.
@@ -95,10 +104,15 @@ public final class J2clPath implements Comparable<J2clPath> {
      */
     public static final Predicate<Path> JAVA_FILES = ALL_FILES.and(JAVA_FILEEXTENSION);
 
+    /**
+     * Matches paths with a js file extension.
+     */
+    public static final Predicate<Path> JAVASCRIPT_FILEEXTENSION = fileEndsWith(".js");
+
     /**
      * Matches existing js files.
      */
-    public static final Predicate<Path> JAVASCRIPT_FILES = ALL_FILES.and(fileEndsWith(".js"));
+    public static final Predicate<Path> JAVASCRIPT_FILES = ALL_FILES.and(JAVASCRIPT_FILEEXTENSION);
 
     /**
      * Matches existing native.js files.
@@ -148,10 +162,11 @@ public final class J2clPath implements Comparable<J2clPath> {
 
     public J2clPath append(final String directory) {
         return J2clPath.with(
-                Paths.get(
-                        this.path.toString(),
-                        directory
-                )
+                this.path.getFileSystem()
+                        .getPath(
+                                this.path.toString(),
+                                directory
+                        )
         );
     }
 
@@ -191,6 +206,36 @@ public final class J2clPath implements Comparable<J2clPath> {
         return copied;
     }
 
+    /**
+     * Hard links the files from the given source to this directory, copying when a link cannot be created such as
+     * when this directory is on another file system.
+     */
+    public Collection<J2clPath> linkFiles(final J2clPath src,
+                                          final Collection<J2clPath> files) throws IOException {
+        final Path srcPath = src.path();
+        final Path destPath = this.path();
+
+        final List<J2clPath> linked = Lists.array();
+
+        for (final J2clPath file : files) {
+            final Path filePath = file.path();
+            final String relative = srcPath.relativize(filePath).toString();
+            final Path linkTarget = destPath.resolve(relative);
+
+            Files.createDirectories(linkTarget.getParent());
+
+            try {
+                Files.createLink(linkTarget, filePath);
+            } catch (final UnsupportedOperationException | FileSystemException cannotLink) {
+                Files.copy(filePath, linkTarget);
+            }
+
+            linked.add(J2clPath.with(linkTarget));
+        }
+
+        return linked;
+    }
+
     public J2clPath createIfNecessary() throws IOException {
         Files.createDirectories(this.path());
         return this;
@@ -204,74 +249,136 @@ public final class J2clPath implements Comparable<J2clPath> {
      * This may be used to test if a path is a source root for a generated sources directory like generated-sources.
      */
     public boolean isGeneratedDirectory() {
-        final File file = this.file();
-        return file.isDirectory() && file.getName().startsWith("generated");
+        final Path path = this.path();
+        final Path filename = path.getFileName();
+        return null != filename && Files.isDirectory(path) && filename.toString().startsWith("generated");
     }
 
+    /**
+     * When this path is the root of an archive mounted as a zip {@link java.nio.file.FileSystem}, returns the archive.
+     */
+    public Optional<J2clPath> archiveFile() {
+        J2clPath archive = null;
+
+        final Path path = this.path();
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            // jar:file:///repository/group/artifact-sources.jar!/
+            final String uri = path.toUri().toString();
+            final int separator = uri.indexOf(ARCHIVE_SEPARATOR);
+            if (uri.startsWith(ARCHIVE_SCHEME) && -1 != separator) {
+                archive = J2clPath.with(
+                        Paths.get(
+                                URI.create(
+                                        uri.substring(ARCHIVE_SCHEME.length(), separator)
+                                )
+                        )
+                );
+            }
+        }
+
+        return Optional.ofNullable(archive);
+    }
+
+    private final static String ARCHIVE_SCHEME = "jar:";
+
+    private final static String ARCHIVE_SEPARATOR = "!/";
+
     // extract..........................................................................................................
 
     /**
-     * Extract ALL the files from this archive, returning number of files extracted
+     * Extracts the files matching the filter from this archive into the target directory, existing files are not
+     * overwritten. The filter is given the path of each entry from the root of the archive, eg /META-INF/MANIFEST.MF,
+     * and must not read the file system. Directories are created first and then entries are inflated in parallel.
+     * The returned files are not sorted, the {@link TreeLogger} sorts them only when they are printed.
      */
     public Set<J2clPath> extractArchiveFiles(final Predicate<Path> filter,
                                              final J2clPath target,
                                              final TreeLogger logger) throws IOException {
-        final URI uri = URI.create("jar:" + this.path().toAbsolutePath().toUri());
-        try (final FileSystem zip = FileSystems.newFileSystem(uri, Maps.empty())) {
-            return this.extractArchiveFiles0(zip.getPath("/"),
-                    filter,
-                    target,
-                    logger);
-        } catch (final FileSystemAlreadyExistsException cause) {
-            throw new IOException("File " + uri + " exists", cause);
+        final Path targetPath = target.path()
+                .toAbsolutePath()
+                .normalize();
+
+        try (final ZipFile zip = new ZipFile(this.path().toFile())) {
+            final Map<ZipEntry, Path> entryToFile = Maps.ordered();
+            final Set<Path> directories = Sets.ordered();
+
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                final String name = entry.getName();
+                if (false == filter.test(ARCHIVE_ROOT.resolve(name))) {
+                    continue;
+                }
+
+                final Path file = targetPath.resolve(name)
+                        .normalize();
+                if (false == file.startsWith(targetPath)) {
+                    throw new IOException("Archive " + this + " entry " + CharSequences.quoteAndEscape(name) + " is outside " + target);
+                }
+                entryToFile.put(entry, file);
+                directories.add(file.getParent());
+            }
+
+            if (entryToFile.isEmpty()) {
+                logger.indentedLine("No files");
+            } else {
+                for (final Path directory : directories) {
+                    Files.createDirectories(directory);
+                }
+
+                try {
+                    entryToFile.entrySet()
+                            .parallelStream()
+                            .forEach(e -> extractArchiveFile(zip, e.getKey(), e.getValue()));
+                } catch (final UncheckedIOException cause) {
+                    throw cause.getCause();
+                }
+            }
+
+            final Set<J2clPath> files = entryToFile.values()
+                    .stream()
+                    .map(J2clPath::with)
+                    .collect(Collectors.toCollection(Sets::ordered));
+            logger.paths("", files, TreeFormat.TREE);
+
+            return Sets.readOnly(files);
         }
     }
 
     /**
-     * First gets an alphabetical listing of all files in the given source and then proceeds to copy them to the destination.
-     * This produces output that shows the files processed in alphabetical order.
+     * The root used to give archive entries to the filter of {@link #extractArchiveFiles(Predicate, J2clPath, TreeLogger)}.
      */
-    private Set<J2clPath> extractArchiveFiles0(final Path source,
-                                               final Predicate<Path> filter,
-                                               final J2clPath target,
-                                               final TreeLogger logger) throws IOException {
-        final Set<J2clPath> files = J2clPath.with(source).gatherFiles(filter.and(J2clPath.ALL_FILES));
-        if (files.isEmpty()) {
-            logger.indentedLine("No files");
-        } else {
-            this.extractArchivesFiles1(source, target, files, logger);
-        }
-
-        return Sets.readOnly(files);
-    }
+    private final static Path ARCHIVE_ROOT = Paths.get("/");
 
     /**
-     * Extracts the given files, note existing files will not be overwritten.
+     * Inflates a single entry, if the file already exists it is not overwritten.
      */
-    private void extractArchivesFiles1(final Path root,
-                                       final J2clPath target,
-                                       final Set<J2clPath> files,
-                                       final TreeLogger logger) throws IOException {
-        for (final J2clPath file : files) {
-            final Path filePath = file.path();
-            final Path pathInZip = root.relativize(filePath);
-            final Path copyTarget = Paths.get(target.toString()).resolve(pathInZip.toString());
-            if (Files.exists(copyTarget)) {
-                continue;
-            }
-
-            Files.createDirectories(copyTarget.getParent());
-            Files.copy(filePath, copyTarget, StandardCopyOption.REPLACE_EXISTING);
+    private static void extractArchiveFile(final ZipFile zip,
+                                           final ZipEntry entry,
+                                           final Path file) {
+        try (final InputStream input = zip.getInputStream(entry);
+             final OutputStream output = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)) {
+            input.transferTo(output);
+        } catch (final FileAlreadyExistsException ignore) {
+            // existing files are not overwritten
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
         }
-
-        logger.paths("", files, TreeFormat.TREE);
     }
 
     /**
-     * Uses to collect all files that match the {@link BiPredicate} and returns a sorted {@link Set}.
+     * Uses to collect all files that match the {@link BiPredicate} and returns a sorted {@link Set}. The META-INF
+     * directory of an archive mounted as a source root is skipped, as it was never unpacked.
      */
     public Set<J2clPath> gatherFiles(final Predicate<Path> filter) throws IOException {
-        return Files.find(this.path(), Integer.MAX_VALUE, (p, a) -> filter.test(p))
+        final Predicate<Path> filter2 = this.archiveFile().isPresent() ?
+                filter.and(WITHOUT_META_INF) :
+                filter;
+        return Files.find(this.path(), Integer.MAX_VALUE, (p, a) -> filter2.test(p))
                 .map(J2clPath::with)
                 .sorted()
                 .collect(Collectors.toCollection(SortedSets::tree));
@@ -281,6 +388,29 @@ public final class J2clPath implements Comparable<J2clPath> {
         return Files.isRegularFile(this.path());
     }
 
+    /**
+     * Returns the total size in bytes of this file or all files under this directory, or zero if nothing exists.
+     */
+    public long size() throws IOException {
+        final long[] size = new long[1];
+
+        if (this.exists().isPresent()) {
+            Files.walkFileTree(
+                    this.path(),
+                    new SimpleFileVisitor<>() {
+                        @Override
+                        public FileVisitResult visitFile(final Path file,
+                                                         final BasicFileAttributes attributes) {
+                            size[0] += attributes.size();
+                            return FileVisitResult.CONTINUE;
+                        }
+                    }
+            );
+        }
+
+        return size[0];
+    }
+
     /**
      * Builds a new path holding the ignore file. Note that ignored files are simply ignored with no logging happening.
      */
@@ -331,6 +461,15 @@ public final class J2clPath implements Comparable<J2clPath> {
 
     private final static String HASH_FILE = "hash.txt";
 
+    /**
+     * The file that holds the digest of each source file and directory, saved alongside the {@link #hashFile()}.
+     */
+    J2clPath hashTreeFile() {
+        return this.append(HASH_TREE_FILE);
+    }
+
+    private final static String HASH_TREE_FILE = "hash-tree.txt";
+
     /**
      * Builds a new path holding the output directory within this directory.
      */
@@ -339,12 +478,17 @@ public final class J2clPath implements Comparable<J2clPath> {
     }
 
     /**
-     * Only returns true if this path is the output directory of an UNPACK.
+     * Only returns true if this path is the output directory of an UNPACK or an archive mounted in its place.
      */
     public boolean isUnpackOutput(final J2clArtifact artifact,
                                   final J2clMavenContext context) {
         return artifact.isDependency() &&
-                this.filename().equals(OUTPUT) &&
+                (this.archiveFile().isPresent() || this.isUnpackOutputDirectory(artifact, context));
+    }
+
+    private boolean isUnpackOutputDirectory(final J2clArtifact artifact,
+                                            final J2clMavenContext context) {
+        return this.filename().equals(OUTPUT) &&
                 this.path()
                         .getParent()
                         .getFileName()
@@ -421,6 +565,103 @@ public final class J2clPath implements Comparable<J2clPath> {
         return this;
     }
 
+    /**
+     * Removes the files in this directory belonging to the given compilation units, returning the removed files.
+     */
+    public Set<J2clPath> removeCompilationUnitFiles(final Set<String> units) throws IOException {
+        final Set<J2clPath> removed = this.compilationUnitFiles(units);
+
+        for (final J2clPath file : removed) {
+            Files.delete(file.path());
+        }
+
+        return removed;
+    }
+
+    /**
+     * Finds the files in this directory belonging to the given compilation units, eg walkingkooka/Example.java finds
+     * walkingkooka/Example.java, walkingkooka/Example.class, walkingkooka/Example$Inner.class and
+     * walkingkooka/Example.impl.java.js. The class files of other top level classes declared by the compilation unit
+     * are found by their source file attribute, their javascript files are only found when their own name is given.
+     */
+    public Set<J2clPath> compilationUnitFiles(final Set<String> units) throws IOException {
+        final Set<J2clPath> found = SortedSets.tree();
+
+        for (final String unit : units) {
+            final int slash = unit.lastIndexOf('/');
+            final Path directory = this.path()
+                    .resolve(unit.substring(0, slash + 1));
+            final String sourceFile = unit.substring(slash + 1);
+            final String name = sourceFile.substring(
+                    0,
+                    sourceFile.length() - JAVA_FILE_SUFFIX.length()
+            );
+
+            if (Files.isDirectory(directory)) {
+                final List<Path> files;
+                try (final Stream<Path> list = Files.list(directory)) {
+                    files = list.filter(ALL_FILES)
+                            .collect(Collectors.toList());
+                }
+
+                for (final Path file : files) {
+                    final String filename = file.getFileName()
+                            .toString();
+                    if (filename.startsWith(name + '.') || filename.startsWith(name + '$') ||
+                            (CLASS_FILEEXTENSION.test(file) && sourceFile.equals(classFileSource(file)))) {
+                        found.add(J2clPath.with(file));
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Reads the source file attribute of the given class file, returning null when it is absent or the file is not a
+     * valid class file.
+     */
+    private static String classFileSource(final Path file) throws IOException {
+        final String[] source = new String[1];
+
+        try {
+            new ClassReader(Files.readAllBytes(file))
+                    .accept(
+                            new ClassVisitor(Opcodes.ASM7) {
+                                @Override
+                                public void visitSource(final String s,
+                                                        final String debug) {
+                                    source[0] = s;
+                                }
+                            },
+                            ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES
+                    );
+        } catch (final RuntimeException invalid) {
+            source[0] = null;
+        }
+
+        return source[0];
+    }
+
+    /**
+     * Returns the compilation unit of this file relative to the given source root, eg walkingkooka/Example.java for
+     * both walkingkooka/Example.java and walkingkooka/Example.native.js.
+     */
+    public String compilationUnit(final J2clPath root) {
+        final String relative = root.path()
+                .relativize(this.path())
+                .toString()
+                .replace('\\', '/');
+        return relative.endsWith(NATIVE_JAVASCRIPT_FILE_SUFFIX) ?
+                relative.substring(0, relative.length() - NATIVE_JAVASCRIPT_FILE_SUFFIX.length()) + JAVA_FILE_SUFFIX :
+                relative;
+    }
+
+    private final static String JAVA_FILE_SUFFIX = ".java";
+
+    private final static String NATIVE_JAVASCRIPT_FILE_SUFFIX = ".native.js";
+
     /**
      * Builds a new path holding the shade mapping file.
      */
@@ -433,7 +674,7 @@ public final class J2clPath implements Comparable<J2clPath> {
      */
     Map<PackageName, PackageName> readShadeFile() throws IOException {
         return J2clArtifactShadeFile.readShadeFile(
-                new FileInputStream(this.file())
+                Files.newInputStream(this.path())
         );
     }
 
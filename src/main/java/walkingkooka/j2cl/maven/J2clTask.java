@@ -19,6 +19,11 @@ package walkingkooka.j2cl.maven;
 
 import walkingkooka.j2cl.maven.log.TreeLogger;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
 @SuppressWarnings("StaticInitializerReferencesSubClass")
 public interface J2clTask<C extends J2clMavenContext> {
 
@@ -44,6 +49,7 @@ public interface J2clTask<C extends J2clMavenContext> {
                 if (context.shouldCheckCache()) {
                     result = executeIfNecessary0(
                             artifact,
+                            kind,
                             directory,
                             context,
                             logger
@@ -51,9 +57,16 @@ public interface J2clTask<C extends J2clMavenContext> {
                 } else {
                     final J2clPath path = directory.path();
                     if (path.exists().isPresent()) {
-                        path.removeAll();
+                        // the output of the previous build is kept when only changed compilation units are rebuilt.
+                        if (this.isIncremental() && context.changedCompilationUnits(artifact).isPresent()) {
+                            directory.removeAllExceptOutput();
+
+                            logger.indentedLine("Removed all files except output");
+                        } else {
+                            path.removeAll();
 
-                        logger.indentedLine("Removed all files");
+                            logger.indentedLine("Removed all files");
+                        }
                     }
                     path.createIfNecessary();
 
@@ -74,12 +87,47 @@ public interface J2clTask<C extends J2clMavenContext> {
         return result;
     }
 
+    /**
+     * Keeps the result of a previous build unless it FAILED, or the task reads the outputs of dependencies and their
+     * digest changed. A task that is executed again removes the directories of all later tasks of the artifact, as
+     * they were produced from its previous output.
+     */
     private J2clTaskResult executeIfNecessary0(final J2clArtifact artifact,
+                                               final J2clTaskKind kind,
                                                final J2clTaskDirectory directory,
                                                final C context,
                                                final TreeLogger logger) throws Exception {
         J2clTaskResult result = directory.result()
                 .orElse(null);
+        if (J2clTaskResult.FAILED == result) {
+            logger.indentedLine("Cache " + result + " result present, task will be executed again");
+            result = null;
+        }
+
+        final Optional<String> dependenciesDigest = kind.dependencyTaskKind().isPresent() ?
+                Optional.of(
+                        context.dependenciesDigest(
+                                artifact,
+                                kind
+                        )
+                ) :
+                Optional.empty();
+        if (null != result && dependenciesDigest.isPresent()) {
+            final J2clPath file = directory.dependenciesDigestFile();
+            final boolean unchanged = file.exists().isPresent() &&
+                    dependenciesDigest.get()
+                            .equals(
+                                    new String(
+                                            Files.readAllBytes(file.path()),
+                                            StandardCharsets.UTF_8
+                                    )
+                            );
+            if (false == unchanged) {
+                logger.indentedLine("Dependencies changed, task will be executed again");
+                result = null;
+            }
+        }
+
         if (null == result) {
             final J2clPath path = directory.path();
             if (path.exists().isPresent()) {
@@ -89,6 +137,25 @@ public interface J2clTask<C extends J2clMavenContext> {
             }
             path.createIfNecessary();
 
+            final List<J2clTaskKind> tasks = context.tasks(artifact);
+            for (final J2clTaskKind later : tasks.subList(tasks.indexOf(kind) + 1, tasks.size())) {
+                final J2clPath laterPath = artifact.taskDirectory(later)
+                        .path();
+                if (laterPath.exists().isPresent()) {
+                    laterPath.removeAll();
+
+                    logger.indentedLine("Removed all files of " + later);
+                }
+            }
+
+            if (dependenciesDigest.isPresent()) {
+                directory.dependenciesDigestFile()
+                        .writeFile(
+                                dependenciesDigest.get()
+                                        .getBytes(StandardCharsets.UTF_8)
+                        );
+            }
+
             // aborted tasks for the project are transformed into skipped.
             final J2clTaskResult nextResult = this.executeWithDirectory(
                     artifact,
@@ -99,6 +166,19 @@ public interface J2clTask<C extends J2clMavenContext> {
             result = J2clTaskResult.ABORTED == nextResult && false == artifact.isDependency() ?
                     J2clTaskResult.SKIPPED :
                     nextResult;
+
+            // outputs that will be cached share identical files with other cache entries.
+            if (J2clTaskResult.SUCCESS == result && context.shouldShareOutputs()) {
+                final J2clPath output = directory.output();
+                context.workspace()
+                        .whenPersisted(
+                                output,
+                                () -> context.blobStore()
+                                        .link(output)
+                        ).ifPresent(
+                                shared -> logger.line(shared + " file(s) shared with blob store")
+                        );
+            }
         } else {
             logger.indentedLine("Cache " + result + " result present and will be kept, task not executed again");
         }
@@ -106,6 +186,14 @@ public interface J2clTask<C extends J2clMavenContext> {
         return result;
     }
 
+    /**
+     * Tasks that only rebuild the outputs of {@link J2clMavenContext#changedCompilationUnits(J2clArtifact)} return true,
+     * their output of the previous build is then kept.
+     */
+    default boolean isIncremental() {
+        return false;
+    }
+
     J2clTaskResult executeWithDirectory(final J2clArtifact artifact,
                                         final J2clTaskDirectory directory,
                                         final C context,
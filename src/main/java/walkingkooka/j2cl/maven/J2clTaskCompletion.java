@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the {@link J2clTaskFuture} submitted to a {@link J2clTaskExecutors} and signals without polling when the
+ * build finishes. The first failure completes the build immediately, while waiting for idle waits until every
+ * submitted task including those that were cancelled has completed and the completed hook has run. The hook ends every
+ * build, including the rebuilds of the watch goal which are never waited for.
+ */
+final class J2clTaskCompletion {
+
+    static J2clTaskCompletion with(final Runnable completed) {
+        return new J2clTaskCompletion(completed);
+    }
+
+    private J2clTaskCompletion(final Runnable completed) {
+        super();
+        this.completed = completed;
+    }
+
+    /**
+     * Must be called before the task is given to an executor, so the count never drops to zero while a task that
+     * submits further tasks is still running.
+     */
+    void submitted() {
+        this.outstanding.incrementAndGet();
+    }
+
+    /**
+     * Counts the caller as outstanding, so the build cannot finish while it submits several tasks, even when the first
+     * completes before the next is submitted. Must be followed by {@link #release()}.
+     */
+    void hold() {
+        this.submitted();
+    }
+
+    /**
+     * Ends a {@link #hold()}, completing the build if every task it submitted has already completed.
+     */
+    void release() {
+        this.decrement();
+    }
+
+    /**
+     * Called when an executor refused a task that was counted by {@link #submitted()}.
+     */
+    void rejected() {
+        this.decrement();
+    }
+
+    /**
+     * Called by each {@link J2clTaskFuture} when it is done, successfully or not.
+     */
+    void completed(final Future<Void> task) {
+        try {
+            task.get();
+        } catch (final ExecutionException cause) {
+            this.finished.completeExceptionally(cause.getCause());
+        } catch (final CancellationException | InterruptedException cause) {
+            this.finished.completeExceptionally(cause);
+        }
+
+        this.decrement();
+    }
+
+    private void decrement() {
+        if (0 == this.outstanding.decrementAndGet()) {
+            this.finished.complete(null);
+            try {
+                this.completed.run();
+            } finally {
+                this.idle.complete(null);
+            }
+        }
+    }
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * Run once by the thread that completed the last task.
+     */
+    private final Runnable completed;
+
+    /**
+     * Blocks until all tasks have completed or one task has failed, in which case its failure is thrown.
+     */
+    void awaitFinished() throws Throwable {
+        try {
+            this.finished.get();
+        } catch (final ExecutionException cause) {
+            throw cause.getCause();
+        }
+    }
+
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+    /**
+     * Blocks until every submitted task has completed and the completed hook has run, used after a shutdown to wait for
+     * running tasks to stop.
+     */
+    void awaitIdle() throws InterruptedException {
+        try {
+            this.idle.get();
+        } catch (final ExecutionException never) {
+            throw new IllegalStateException(never);
+        }
+    }
+
+    private final CompletableFuture<Void> idle = new CompletableFuture<>();
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.outstanding + " outstanding";
+    }
+}
@@ -25,6 +25,8 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Represents a single compile task directory. Each and every dependency will have multiple tasks and each task will
@@ -77,6 +79,21 @@ public final class J2clTaskDirectory {
         return this.path.append("log.txt");
     }
 
+    /**
+     * The file listing the archives an UNPACK mounts as source roots rather than unpacking them to {@link #output()}.
+     */
+    public J2clPath archivesFile() {
+        return this.path.append("archives.txt");
+    }
+
+    /**
+     * The file holding the {@link J2clMavenContext#dependenciesDigest(J2clArtifact, J2clTaskKind)} of a task reading the
+     * outputs of dependencies, when it was last executed.
+     */
+    public J2clPath dependenciesDigestFile() {
+        return this.path.append("dependencies-digest.txt");
+    }
+
     /**
      * The file that will capture the components of a hashing.
      */
@@ -84,6 +101,13 @@ public final class J2clTaskDirectory {
         return this.path.hashFile();
     }
 
+    /**
+     * The file that will capture the digest of each source file and directory.
+     */
+    public J2clPath hashTreeFile() {
+        return this.path.hashTreeFile();
+    }
+
     /**
      * The output directory for the javac compiler, transpiler etc.
      */
@@ -99,10 +123,40 @@ public final class J2clTaskDirectory {
         return this.path.append("!SUCCESSFUL");
     }
 
+    /**
+     * The file present when a task produced an output identical to its input, such as a GWT_INCOMPATIBLE_STRIP_JAVA_SOURCE
+     * that found nothing to strip.
+     */
+    public J2clPath unchangedFile() {
+        return this.path.append("unchanged.txt");
+    }
+
     public J2clPath path() {
         return this.path;
     }
 
+    /**
+     * Removes the marker, log and other files of this directory, keeping the {@link #output()} of a previous build.
+     */
+    void removeAllExceptOutput() throws IOException {
+        final Path output = this.output()
+                .path();
+
+        final List<Path> files;
+        try (final Stream<Path> list = Files.list(this.path.path())) {
+            files = list.filter(p -> false == p.equals(output))
+                    .collect(Collectors.toList());
+        }
+
+        for (final Path file : files) {
+            if (Files.isDirectory(file)) {
+                J2clPath.with(file)
+                        .removeAll();
+            }
+            Files.delete(file);
+        }
+    }
+
     /**
      * Writes the given lines to a log file under this task directory.
      * Each task is given its own directory and will also have its own local log file showing the output for a particular single task.
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds one {@link ExecutorService} for each {@link J2clTaskResourceClass}, which are shutdown together.
+ */
+final class J2clTaskExecutors {
+
+    static J2clTaskExecutors with(final int ioThreadPoolSize,
+                                  final int cpuThreadPoolSize,
+                                  final int closureThreadPoolSize) {
+        final Map<J2clTaskResourceClass, ExecutorService> executors = new EnumMap<>(J2clTaskResourceClass.class);
+        executors.put(
+                J2clTaskResourceClass.IO,
+                J2clTaskResourceClass.IO.executor(ioThreadPoolSize)
+        );
+        executors.put(
+                J2clTaskResourceClass.CPU,
+                J2clTaskResourceClass.CPU.executor(cpuThreadPoolSize)
+        );
+        executors.put(
+                J2clTaskResourceClass.CLOSURE,
+                J2clTaskResourceClass.CLOSURE.executor(closureThreadPoolSize)
+        );
+
+        return new J2clTaskExecutors(executors);
+    }
+
+    private J2clTaskExecutors(final Map<J2clTaskResourceClass, ExecutorService> executors) {
+        super();
+        this.executors = executors;
+    }
+
+    void execute(final J2clTaskResourceClass resourceClass,
+                 final Runnable task) {
+        this.executors.get(resourceClass)
+                .execute(task);
+    }
+
+    void shutdown() {
+        this.executors.values()
+                .forEach(ExecutorService::shutdown);
+    }
+
+    boolean isShutdown() {
+        return this.executors.values()
+                .stream()
+                .allMatch(ExecutorService::isShutdown);
+    }
+
+    private final Map<J2clTaskResourceClass, ExecutorService> executors;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.executors.toString();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * A {@link FutureTask} that may be ordered by a {@link PriorityBlockingQueue} using its {@link J2clTaskPriority}.
+ * Tasks without a priority, such as the watch rebuild, are always executed first, tasks with equal priority are
+ * executed in submission order. When done the task notifies the given {@link J2clTaskCompletion}.
+ */
+final class J2clTaskFuture extends FutureTask<Void> implements Comparable<J2clTaskFuture> {
+
+    static J2clTaskFuture with(final Callable<Void> task,
+                               final Optional<J2clTaskPriority> priority,
+                               final long sequence,
+                               final J2clTaskCompletion completion) {
+        return new J2clTaskFuture(
+                task,
+                priority,
+                sequence,
+                completion
+        );
+    }
+
+    private J2clTaskFuture(final Callable<Void> task,
+                           final Optional<J2clTaskPriority> priority,
+                           final long sequence,
+                           final J2clTaskCompletion completion) {
+        super(task);
+        this.priority = priority;
+        this.sequence = sequence;
+        this.completion = completion;
+    }
+
+    @Override
+    protected void done() {
+        this.completion.completed(this);
+    }
+
+    private final J2clTaskCompletion completion;
+
+    // Comparable.......................................................................................................
+
+    @Override
+    public int compareTo(final J2clTaskFuture other) {
+        final J2clTaskPriority priority = this.priority.orElse(null);
+        final J2clTaskPriority otherPriority = other.priority.orElse(null);
+
+        int result;
+        if (null == priority) {
+            result = null == otherPriority ?
+                    0 :
+                    -1;
+        } else {
+            result = null == otherPriority ?
+                    +1 :
+                    priority.compareTo(otherPriority);
+        }
+
+        return 0 != result ?
+                result :
+                Long.compare(this.sequence, other.sequence);
+    }
+
+    private final Optional<J2clTaskPriority> priority;
+
+    private final long sequence;
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.priority.map(Object::toString)
+                .orElse("") + " #" + this.sequence;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Holds back heap heavy tasks such as the transpiler and closure compiler, until the free heap reported by a
+ * {@link MemoryMXBean} has room for the estimated heap of the task and all other admitted heavy tasks. A task is
+ * always admitted when no other heavy task is running, so a task larger than the heap is still executed alone.
+ * <br>
+ * The estimate is the size of the task inputs multiplied by a ratio, starting with the ratio learnt by an earlier build
+ * and kept in the {@link J2clTaskHistory}, or {@link J2clTaskKind#heapPerInputByte()}, and adjusted by the heap growth
+ * observed when a heavy task ran alone.
+ */
+final class J2clTaskHeapAdmission {
+
+    /**
+     * Returns true if tasks of the given kind must be admitted before they are executed.
+     */
+    static boolean isRequired(final J2clTaskKind kind) {
+        return kind.heapPerInputByte() > 0;
+    }
+
+    static J2clTaskHeapAdmission with(final MemoryMXBean memory) {
+        return new J2clTaskHeapAdmission(memory);
+    }
+
+    private J2clTaskHeapAdmission(final MemoryMXBean memory) {
+        super();
+        this.memory = memory;
+    }
+
+    /**
+     * Tries to admit the given node, if the free heap is too small the node is held and will be returned by a
+     * following {@link #release(J2clTaskNode)}.
+     */
+    synchronized boolean tryAdmit(final J2clTaskNode node,
+                                  final long inputBytes) {
+        final long estimate = this.estimate(
+                node.kind(),
+                inputBytes
+        );
+
+        final Map<J2clTaskNode, Admitted> admitted = this.admitted;
+        final boolean admit = admitted.isEmpty() ||
+                this.reserved + estimate <= this.free();
+        if (admit) {
+            // other heavy tasks are running, the heap used by this task cannot be observed.
+            admitted.values()
+                    .forEach(a -> a.alone = false);
+
+            admitted.put(
+                    node,
+                    new Admitted(
+                            estimate,
+                            inputBytes,
+                            this.used(),
+                            admitted.isEmpty()
+                    )
+            );
+            this.reserved += estimate;
+        } else {
+            this.held.add(node);
+        }
+
+        return admit;
+    }
+
+    /**
+     * Releases the heap reserved by the given node, returning all held nodes which should be submitted again.
+     */
+    synchronized List<J2clTaskNode> release(final J2clTaskNode node) {
+        final Admitted admitted = this.admitted.remove(node);
+
+        if (null != admitted) {
+            this.reserved -= admitted.estimate;
+
+            if (admitted.alone && admitted.inputBytes > 0) {
+                this.learn(
+                        node.kind(),
+                        (double) Math.max(0, this.used() - admitted.usedBefore) / admitted.inputBytes
+                );
+            }
+        }
+
+        final List<J2clTaskNode> held = Lists.array();
+        held.addAll(this.held);
+        this.held.clear();
+        return held;
+    }
+
+    /**
+     * Forgets any admitted or held tasks, but not the learnt ratios. This is necessary when the watch goal starts a new build.
+     */
+    synchronized void clear() {
+        this.admitted.clear();
+        this.held.clear();
+        this.reserved = 0;
+    }
+
+    /**
+     * Seeds the ratio of each task kind that has not yet been learnt with the ratio learnt by an earlier build.
+     */
+    synchronized void load(final J2clTaskHistory history) {
+        for (final J2clTaskKind kind : J2clTaskKind.values()) {
+            if (isRequired(kind) && false == this.ratios.containsKey(kind)) {
+                final OptionalDouble ratio = history.heapPerInputByte(kind);
+                if (ratio.isPresent()) {
+                    this.ratios.put(
+                            kind,
+                            ratio.getAsDouble()
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Records all ratios in the given history, so later builds start with them.
+     */
+    synchronized void save(final J2clTaskHistory history) {
+        this.ratios.forEach(history::heapPerInputByte);
+    }
+
+    private long estimate(final J2clTaskKind kind,
+                          final long inputBytes) {
+        return Math.max(
+                MINIMUM_ESTIMATE,
+                (long) (this.ratio(kind) * inputBytes)
+        );
+    }
+
+    /**
+     * The smallest estimate for any heavy task, this covers the compiler itself when the inputs are tiny.
+     */
+    private final static long MINIMUM_ESTIMATE = 64 * 1024 * 1024;
+
+    private double ratio(final J2clTaskKind kind) {
+        return this.ratios.getOrDefault(
+                kind,
+                (double) kind.heapPerInputByte()
+        );
+    }
+
+    /**
+     * Moves the ratio half way towards the observed ratio, but never below a single byte of heap per input byte.
+     */
+    private void learn(final J2clTaskKind kind,
+                       final double observed) {
+        this.ratios.put(
+                kind,
+                Math.max(
+                        1,
+                        (this.ratio(kind) + observed) / 2
+                )
+        );
+    }
+
+    private final Map<J2clTaskKind, Double> ratios = new EnumMap<>(J2clTaskKind.class);
+
+    private long free() {
+        final MemoryUsage heap = this.memory.getHeapMemoryUsage();
+        final long max = heap.getMax();
+
+        return (-1 != max ? max : Runtime.getRuntime().maxMemory()) - heap.getUsed();
+    }
+
+    private long used() {
+        return this.memory.getHeapMemoryUsage()
+                .getUsed();
+    }
+
+    private final MemoryMXBean memory;
+
+    /**
+     * The sum of the estimates of all admitted nodes.
+     */
+    private long reserved;
+
+    private final Map<J2clTaskNode, Admitted> admitted = Maps.sorted();
+
+    private final List<J2clTaskNode> held = Lists.array();
+
+    /**
+     * Captures the estimate and heap used when a node was admitted.
+     */
+    private final static class Admitted {
+
+        Admitted(final long estimate,
+                 final long inputBytes,
+                 final long usedBefore,
+                 final boolean alone) {
+            this.estimate = estimate;
+            this.inputBytes = inputBytes;
+            this.usedBefore = usedBefore;
+            this.alone = alone;
+        }
+
+        final long estimate;
+
+        final long inputBytes;
+
+        final long usedBefore;
+
+        /**
+         * True when no other heavy task was running at any time while this task was running.
+         */
+        boolean alone;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return "reserved=" + this.reserved + " admitted=" + this.admitted.keySet() + " held=" + this.held;
+    }
+}
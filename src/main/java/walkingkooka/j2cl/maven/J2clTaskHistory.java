@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.SortedMap;
+
+/**
+ * A persistent history of the most recent executions of each {@link J2clTaskKind} of each artifact, holding the
+ * duration, output size and whether the output was already cached. The history is read from and written to a file in
+ * the cache directory and used to estimate the cost of tasks in future builds.
+ * <br>
+ * Each line of the file holds a single execution with tab separated coords, task kind, duration in millis,
+ * output size in bytes and either <code>cached</code> or <code>executed</code>. The heap used by each byte of input
+ * learnt by {@link J2clTaskHeapAdmission} is held by lines with a task kind, <code>heap-per-input-byte</code> and the ratio.
+ */
+final class J2clTaskHistory {
+
+    /**
+     * The file name of the history, which is kept in the cache directory.
+     */
+    final static String FILE = "task-history.txt";
+
+    /**
+     * The maximum number of executions kept for each task.
+     */
+    final static int RECENT = 5;
+
+    private final static String CACHED = "cached";
+
+    private final static String EXECUTED = "executed";
+
+    private final static String HEAP_PER_INPUT_BYTE = "heap-per-input-byte";
+
+    /**
+     * Loads the history from the given file if it exists, lines that cannot be parsed are ignored.
+     */
+    static J2clTaskHistory load(final J2clPath file) throws IOException {
+        final J2clTaskHistory history = empty();
+
+        if (file.exists().isPresent()) {
+            for (final String line : Files.readAllLines(file.path(), StandardCharsets.UTF_8)) {
+                final String[] columns = line.split("\t");
+                if (5 == columns.length) {
+                    try {
+                        history.add(
+                                columns[0] + "\t" + J2clTaskKind.valueOf(columns[1]),
+                                Long.parseLong(columns[2]),
+                                Long.parseLong(columns[3]),
+                                CACHED.equals(columns[4])
+                        );
+                    } catch (final IllegalArgumentException ignore) {
+                        // unknown task kind or invalid number, probably written by an older version.
+                    }
+                }
+                if (3 == columns.length && HEAP_PER_INPUT_BYTE.equals(columns[1])) {
+                    try {
+                        history.heapPerInputByte(
+                                J2clTaskKind.valueOf(columns[0]),
+                                Double.parseDouble(columns[2])
+                        );
+                    } catch (final IllegalArgumentException ignore) {
+                        // unknown task kind or invalid number, probably written by an older version.
+                    }
+                }
+            }
+        }
+
+        return history;
+    }
+
+    static J2clTaskHistory empty() {
+        return new J2clTaskHistory();
+    }
+
+    private J2clTaskHistory() {
+        super();
+    }
+
+    /**
+     * Records an execution of the given node.
+     */
+    void executed(final J2clTaskNode node,
+                  final long millis,
+                  final long outputBytes) {
+        this.add(
+                key(node),
+                millis,
+                outputBytes,
+                false
+        );
+    }
+
+    /**
+     * Records the given node was skipped because its output was already cached, keeping the last known output size.
+     */
+    void cached(final J2clTaskNode node) {
+        final String key = key(node);
+        final List<Execution> executions = this.executions.get(key);
+
+        long outputBytes = 0;
+        if (null != executions) {
+            synchronized (executions) {
+                if (false == executions.isEmpty()) {
+                    outputBytes = executions.get(executions.size() - 1).outputBytes;
+                }
+            }
+        }
+
+        this.add(
+                key,
+                0,
+                outputBytes,
+                true
+        );
+    }
+
+    private void add(final String key,
+                     final long millis,
+                     final long outputBytes,
+                     final boolean cached) {
+        final List<Execution> executions = this.executions.computeIfAbsent(
+                key,
+                (k) -> Lists.array()
+        );
+
+        synchronized (executions) {
+            executions.add(
+                    new Execution(
+                            millis,
+                            outputBytes,
+                            cached
+                    )
+            );
+            while (executions.size() > RECENT) {
+                executions.remove(0);
+            }
+        }
+    }
+
+    /**
+     * Returns the average duration in millis of the recent executions of the given node, where cached executions
+     * count as zero, or empty if the node has no history.
+     */
+    OptionalLong estimate(final J2clTaskNode node) {
+        final List<Execution> executions = this.executions.get(key(node));
+
+        OptionalLong estimate = OptionalLong.empty();
+        if (null != executions) {
+            synchronized (executions) {
+                if (false == executions.isEmpty()) {
+                    long total = 0;
+                    for (final Execution execution : executions) {
+                        total += execution.millis;
+                    }
+                    estimate = OptionalLong.of(total / executions.size());
+                }
+            }
+        }
+
+        return estimate;
+    }
+
+    /**
+     * Returns the heap used by each byte of input by the given task kind, learnt by an earlier build.
+     */
+    OptionalDouble heapPerInputByte(final J2clTaskKind kind) {
+        final Double ratio = this.heapPerInputByte.get(kind);
+        return null != ratio ?
+                OptionalDouble.of(ratio) :
+                OptionalDouble.empty();
+    }
+
+    /**
+     * Records the heap used by each byte of input by the given task kind.
+     */
+    void heapPerInputByte(final J2clTaskKind kind,
+                          final double ratio) {
+        this.heapPerInputByte.put(
+                kind,
+                ratio
+        );
+    }
+
+    private final Map<J2clTaskKind, Double> heapPerInputByte = Maps.concurrent();
+
+    /**
+     * Writes the history to the given file, sorted by coords and task kind.
+     */
+    void save(final J2clPath file) throws IOException {
+        final SortedMap<String, List<Execution>> sorted = Maps.sorted();
+        sorted.putAll(this.executions);
+
+        final StringBuilder text = new StringBuilder();
+        for (final Entry<String, List<Execution>> keyAndExecutions : sorted.entrySet()) {
+            final List<Execution> executions = keyAndExecutions.getValue();
+
+            synchronized (executions) {
+                for (final Execution execution : executions) {
+                    text.append(keyAndExecutions.getKey())
+                            .append('\t')
+                            .append(execution.millis)
+                            .append('\t')
+                            .append(execution.outputBytes)
+                            .append('\t')
+                            .append(execution.cached ? CACHED : EXECUTED)
+                            .append('\n');
+                }
+            }
+        }
+
+        for (final J2clTaskKind kind : J2clTaskKind.values()) {
+            final Double ratio = this.heapPerInputByte.get(kind);
+            if (null != ratio) {
+                text.append(kind)
+                        .append('\t')
+                        .append(HEAP_PER_INPUT_BYTE)
+                        .append('\t')
+                        .append(ratio)
+                        .append('\n');
+            }
+        }
+
+        file.writeFile(
+                text.toString()
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private static String key(final J2clTaskNode node) {
+        return node.artifact().coords() + "\t" + node.kind();
+    }
+
+    /**
+     * The recent executions of each task, oldest first.
+     */
+    private final Map<String, List<Execution>> executions = Maps.concurrent();
+
+    /**
+     * A single execution of a task.
+     */
+    private final static class Execution {
+
+        Execution(final long millis,
+                  final long outputBytes,
+                  final boolean cached) {
+            this.millis = millis;
+            this.outputBytes = outputBytes;
+            this.cached = cached;
+        }
+
+        final long millis;
+
+        final long outputBytes;
+
+        final boolean cached;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.executions.size() + " task(s)";
+    }
+}
@@ -42,7 +42,7 @@ public enum J2clTaskKind {
     /**
      * Computes the hash for the given {@link J2clArtifact} including its dependencies.
      */
-    HASH {
+    HASH(J2clTaskResourceClass.IO) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.hash();
@@ -52,7 +52,7 @@ public enum J2clTaskKind {
     /**
      * For archives (dependencies) unpack the accompanying sources.
      */
-    UNPACK {
+    UNPACK(J2clTaskResourceClass.IO) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.unpack();
@@ -62,7 +62,7 @@ public enum J2clTaskKind {
     /**
      * Calls javac on the unpack directory along with its dependencies on the classpath.
      */
-    JAVAC_ANNOTATION_PROCESSORS_ENABLED {
+    JAVAC_ANNOTATION_PROCESSORS_ENABLED(J2clTaskResourceClass.CPU) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.compileJavaSource();
@@ -72,7 +72,7 @@ public enum J2clTaskKind {
     /**
      * Calls the @GwtIncompatible stripper on /compile saving into /gwt-incompatible-strip
      */
-    GWT_INCOMPATIBLE_STRIP_JAVA_SOURCE {
+    GWT_INCOMPATIBLE_STRIP_JAVA_SOURCE(J2clTaskResourceClass.CPU) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.gwtIncompatStrip();
@@ -82,18 +82,26 @@ public enum J2clTaskKind {
     /**
      * Compiles /gwt-incompatible-strip along with dependencies on the classpath into /gwt-incompatible-strip-compiled
      */
-    JAVAC_COMPILE_GWT_INCOMPATIBLE_STRIPPED_JAVA_SOURCE {
+    JAVAC_COMPILE_GWT_INCOMPATIBLE_STRIPPED_JAVA_SOURCE(J2clTaskResourceClass.CPU) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.compileGwtIncompatStripped();
         }
+
+        /**
+         * The classpath includes the shaded class files of dependencies.
+         */
+        @Override
+        Optional<J2clTaskKind> dependencyTaskKind() {
+            return Optional.of(SHADE_CLASS_FILES);
+        }
     },
 
     /**
      * Attempts to find files called "j2cl-maven-plugin-shade.txt" in the root of the dependency files and uses that to
      * shade java source files.
      */
-    SHADE_JAVA_SOURCE {
+    SHADE_JAVA_SOURCE(J2clTaskResourceClass.IO) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.shadeJavaSource();
@@ -104,7 +112,7 @@ public enum J2clTaskKind {
      * Attempts to find files called "j2cl-maven-plugin-shade.txt" in the root of the dependency files and if found
      * shares matching files.
      */
-    SHADE_CLASS_FILES {
+    SHADE_CLASS_FILES(J2clTaskResourceClass.IO) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.shadeClassFiles();
@@ -115,25 +123,51 @@ public enum J2clTaskKind {
     /**
      * Calls the transpiler on the output of previous tasks.
      */
-    TRANSPILE_JAVA_TO_JAVASCRIPT {
+    TRANSPILE_JAVA_TO_JAVASCRIPT(J2clTaskResourceClass.CPU) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.transpiler();
         }
+
+        /**
+         * The classpath includes the shaded class files of dependencies.
+         */
+        @Override
+        Optional<J2clTaskKind> dependencyTaskKind() {
+            return Optional.of(SHADE_CLASS_FILES);
+        }
+
+        @Override
+        long heapPerInputByte() {
+            return 20;
+        }
     },
     /**
      * Calls the closure compiler on the /transpiler along with other "files" into /closure-compiled.
      */
-    CLOSURE_COMPILE {
+    CLOSURE_COMPILE(J2clTaskResourceClass.CLOSURE) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.closure();
         }
+
+        /**
+         * The sources include the transpiled javascript of dependencies.
+         */
+        @Override
+        Optional<J2clTaskKind> dependencyTaskKind() {
+            return Optional.of(TRANSPILE_JAVA_TO_JAVASCRIPT);
+        }
+
+        @Override
+        long heapPerInputByte() {
+            return 40;
+        }
     },
     /**
      * Assembles the output and copies files to that place.
      */
-    OUTPUT_ASSEMBLE {
+    OUTPUT_ASSEMBLE(J2clTaskResourceClass.IO) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return J2clTasks.outputAssembler();
@@ -142,7 +176,7 @@ public enum J2clTaskKind {
     /**
      * Uses webdriver to execute a junit test.
      */
-    JUNIT_TESTS {
+    JUNIT_TESTS(J2clTaskResourceClass.IO) {
         @Override
         J2clTask<? super J2clMavenContext> task() {
             return Cast.to(
@@ -151,6 +185,21 @@ public enum J2clTaskKind {
         }
     };
 
+    J2clTaskKind(final J2clTaskResourceClass resourceClass) {
+        this.resourceClass = resourceClass;
+    }
+
+    // resourceClass....................................................................................................
+
+    /**
+     * The resource this task mostly consumes, which selects the {@link java.util.concurrent.ExecutorService} that executes it.
+     */
+    final J2clTaskResourceClass resourceClass() {
+        return this.resourceClass;
+    }
+
+    private final J2clTaskResourceClass resourceClass;
+
     // work methods.....................................................................................................
 
     /**
@@ -203,8 +252,14 @@ public enum J2clTaskKind {
                         logger
                 );
 
-                result.path(directory)
-                        .createIfNecessary();
+                // the result is only marked once any output written through the workspace has been persisted.
+                final J2clTaskResult marked = result;
+                context.workspace()
+                        .whenPersisted(
+                                directory.output(),
+                                () -> marked.path(directory)
+                                        .createIfNecessary()
+                        );
             }
             return result.next(
                     artifact,
@@ -263,4 +318,25 @@ public enum J2clTaskKind {
     }
 
     abstract J2clTask<? super J2clMavenContext> task();
+
+    // dependencies.....................................................................................................
+
+    /**
+     * The task kind that all dependencies must have completed before this task may begin. Tasks that only read the
+     * artifact's own sources or the dependency archives return {@link Optional#empty()} and may run in parallel with
+     * any task of a dependency.
+     */
+    Optional<J2clTaskKind> dependencyTaskKind() {
+        return Optional.empty();
+    }
+
+    // heap.............................................................................................................
+
+    /**
+     * The initial estimate of heap used for each byte of input, tasks returning zero are never held back by
+     * {@link J2clTaskHeapAdmission}.
+     */
+    long heapPerInputByte() {
+        return 0;
+    }
 }
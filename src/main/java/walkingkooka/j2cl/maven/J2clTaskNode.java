@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import java.util.Objects;
+
+/**
+ * A single node in the build graph, that is one {@link J2clTaskKind} of one {@link J2clArtifact}. Nodes of the same
+ * artifact execute in the order given by {@link J2clMavenContext#tasks(J2clArtifact)}, while a node may also need to
+ * wait for the dependencies of its artifact to complete the {@link J2clTaskKind#dependencyTaskKind()}.
+ */
+final class J2clTaskNode implements Comparable<J2clTaskNode> {
+
+    static J2clTaskNode with(final J2clArtifact artifact,
+                             final J2clTaskKind kind) {
+        return new J2clTaskNode(
+                Objects.requireNonNull(artifact, "artifact"),
+                Objects.requireNonNull(kind, "kind")
+        );
+    }
+
+    private J2clTaskNode(final J2clArtifact artifact,
+                         final J2clTaskKind kind) {
+        super();
+        this.artifact = artifact;
+        this.kind = kind;
+    }
+
+    J2clArtifact artifact() {
+        return this.artifact;
+    }
+
+    private final J2clArtifact artifact;
+
+    J2clTaskKind kind() {
+        return this.kind;
+    }
+
+    private final J2clTaskKind kind;
+
+    // Comparable.......................................................................................................
+
+    @Override
+    public int compareTo(final J2clTaskNode other) {
+        final int result = this.artifact.compareTo(other.artifact);
+        return 0 != result ?
+                result :
+                this.kind.compareTo(other.kind);
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                this.artifact,
+                this.kind
+        );
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return this == other || other instanceof J2clTaskNode && this.equals0((J2clTaskNode) other);
+    }
+
+    private boolean equals0(final J2clTaskNode other) {
+        return this.artifact.equals(other.artifact) &&
+                this.kind == other.kind;
+    }
+
+    /**
+     * The coords followed by the kind, which is also used as the name of the thread executing the node.
+     */
+    @Override
+    public String toString() {
+        return this.artifact.coords() + "-" + this.kind;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+/**
+ * The priority of a {@link J2clTaskNode} used to select which ready node should be executed next. Nodes with the longest
+ * critical path, that is the estimated cost of the node and the longest chain of nodes that must wait for it,
+ * are executed first, ties are broken by the number of transitive dependents of the artifact and finally the node itself.
+ */
+final class J2clTaskPriority implements Comparable<J2clTaskPriority> {
+
+    static J2clTaskPriority with(final J2clTaskNode node,
+                                 final int dependents,
+                                 final long criticalPath) {
+        return new J2clTaskPriority(
+                node,
+                dependents,
+                criticalPath
+        );
+    }
+
+    private J2clTaskPriority(final J2clTaskNode node,
+                             final int dependents,
+                             final long criticalPath) {
+        super();
+        this.node = node;
+        this.dependents = dependents;
+        this.criticalPath = criticalPath;
+    }
+
+    J2clTaskNode node() {
+        return this.node;
+    }
+
+    private final J2clTaskNode node;
+
+    /**
+     * The number of transitive dependents waiting on the artifact of this node.
+     */
+    int dependents() {
+        return this.dependents;
+    }
+
+    private final int dependents;
+
+    /**
+     * The estimated cost of this node plus the most expensive chain of nodes waiting for it.
+     */
+    long criticalPath() {
+        return this.criticalPath;
+    }
+
+    private final long criticalPath;
+
+    // Comparable.......................................................................................................
+
+    /**
+     * Higher priorities sort before lower priorities.
+     */
+    @Override
+    public int compareTo(final J2clTaskPriority other) {
+        int result = Long.compare(other.criticalPath, this.criticalPath);
+        if (0 == result) {
+            result = Integer.compare(other.dependents, this.dependents);
+            if (0 == result) {
+                result = this.node.compareTo(other.node);
+            }
+        }
+        return result;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.node + " critical-path=" + this.criticalPath + " dependents=" + this.dependents;
+    }
+}
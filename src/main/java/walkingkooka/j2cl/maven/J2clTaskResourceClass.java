@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The resource a {@link J2clTaskKind} mostly consumes, each has its own {@link ExecutorService}, so I/O bound tasks
+ * do not compete for threads with the CPU and heap heavy compilers.
+ */
+enum J2clTaskResourceClass {
+
+    /**
+     * Tasks that mostly read and write files such as hashing, unpacking and copying outputs.
+     */
+    IO {
+        /**
+         * A size of zero selects virtual threads if the JDK supports them, otherwise a pool of CPU cores * 4 threads.
+         */
+        @Override
+        ExecutorService executor(final int size) {
+            ExecutorService executor = null;
+
+            if (0 == size) {
+                executor = virtualThreadExecutor();
+            }
+
+            return null != executor ?
+                    executor :
+                    fixedPriorityExecutor(
+                            0 != size ?
+                                    size :
+                                    availableProcessors() * 4
+                    );
+        }
+    },
+
+    /**
+     * The java compiler, stripper and transpiler. A size of zero selects a pool equal to the CPU core count.
+     */
+    CPU {
+        @Override
+        ExecutorService executor(final int size) {
+            return fixedPriorityExecutor(
+                    0 != size ?
+                            size :
+                            availableProcessors()
+            );
+        }
+    },
+
+    /**
+     * The closure compiler which uses a lot of heap. A size of zero selects a single thread.
+     */
+    CLOSURE {
+        @Override
+        ExecutorService executor(final int size) {
+            return fixedPriorityExecutor(
+                    0 != size ?
+                            size :
+                            1
+            );
+        }
+    };
+
+    /**
+     * Factory that creates a new {@link ExecutorService} with the given size, where zero selects a default.
+     */
+    abstract ExecutorService executor(final int size);
+
+    /**
+     * Creates a fixed size thread pool, that selects the queued task with the highest {@link J2clTaskPriority} rather
+     * than the oldest.
+     */
+    private static ExecutorService fixedPriorityExecutor(final int size) {
+        return new ThreadPoolExecutor(
+                size,
+                size,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>()
+        );
+    }
+
+    /**
+     * The plugin targets java 11, so virtual threads are created using reflection, returning null when they are not
+     * available or are a preview feature that has not been enabled.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        ExecutorService executor;
+
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException | UnsupportedOperationException unsupported) {
+            executor = null;
+        }
+
+        return executor;
+    }
+
+    private static int availableProcessors() {
+        return Runtime.getRuntime()
+                .availableProcessors();
+    }
+}
@@ -34,8 +34,8 @@ public enum J2clTaskResult {
         }
 
         /**
-         * Used by the HASH task, to note the artifact computed hash matches the artifact directory. Try and find the last
-         * task directory. If that is FAIL then retry otherwise return the result of task's next as the next.
+         * Used by tasks that find nothing to process. Try and find the last task directory. If that is FAIL then retry
+         * otherwise return the result of task's next as the next.
          */
         @Override
         Optional<J2clTaskKind> next(final J2clArtifact artifact,
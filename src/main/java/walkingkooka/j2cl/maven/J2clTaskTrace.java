@@ -0,0 +1,291 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import walkingkooka.collect.map.Maps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the execution of each {@link J2clTaskNode} as events in the
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Chrome Trace Event Format</a>,
+ * which may be opened using Perfetto or chrome://tracing.
+ * <ul>
+ * <li>A complete slice for each task on the thread that executed it.</li>
+ * <li>An async slice for the time each task waited in an executor queue.</li>
+ * <li>A flow from each task to the tasks that were waiting for it.</li>
+ * </ul>
+ */
+final class J2clTaskTrace {
+
+    /**
+     * The file name of the trace, written in the cache directory.
+     */
+    final static String FILE = "trace.json";
+
+    static J2clTaskTrace empty() {
+        return new J2clTaskTrace();
+    }
+
+    private J2clTaskTrace() {
+        super();
+        this.clear();
+    }
+
+    /**
+     * Forgets all events, and restarts the clock. This is necessary when the watch goal starts a new build.
+     */
+    void clear() {
+        this.start = System.nanoTime();
+        this.events.clear();
+        this.threads.clear();
+        this.queued.clear();
+        this.started.clear();
+        this.flows.clear();
+    }
+
+    /**
+     * Records the given node was submitted to the executor of its {@link J2clTaskResourceClass}.
+     */
+    void queued(final J2clTaskNode node) {
+        final long id = this.ids.incrementAndGet();
+        final long now = this.now();
+
+        this.queued.put(node, id);
+        this.event(
+                node.toString(),
+                "queue",
+                "b",
+                now,
+                0,
+                ",\"id\":" + id
+        );
+    }
+
+    /**
+     * Records the given node has started executing on the current thread, ending its queue wait.
+     */
+    void started(final J2clTaskNode node) {
+        final long now = this.now();
+        final long tid = this.thread(node);
+
+        this.started.put(node, now);
+
+        final Long id = this.queued.remove(node);
+        if (null != id) {
+            this.event(
+                    node.toString(),
+                    "queue",
+                    "e",
+                    now,
+                    0,
+                    ",\"id\":" + id
+            );
+        }
+
+        final List<Long> flows = this.flows.remove(node);
+        if (null != flows) {
+            for (final Long flow : flows) {
+                this.event(
+                        "dependency",
+                        "dependency",
+                        "f",
+                        now,
+                        tid,
+                        ",\"bp\":\"e\",\"id\":" + flow
+                );
+            }
+        }
+    }
+
+    /**
+     * Records a flow from the completed node, which must be executing on the current thread, to a node that was waiting for it.
+     */
+    void dependency(final J2clTaskNode completed,
+                    final J2clTaskNode waiting) {
+        final long id = this.ids.incrementAndGet();
+
+        this.event(
+                "dependency",
+                "dependency",
+                "s",
+                this.now(),
+                this.thread(completed),
+                ",\"id\":" + id
+        );
+
+        this.flows.computeIfAbsent(
+                waiting,
+                (n) -> new CopyOnWriteArrayList<>()
+        ).add(id);
+    }
+
+    /**
+     * Records the slice of the given node which started with {@link #started(J2clTaskNode)} on the current thread.
+     */
+    void completed(final J2clTaskNode node) {
+        final Long start = this.started.remove(node);
+        if (null != start) {
+            this.events.add(
+                    "{\"name\":" + quote(node.kind().toString()) +
+                            ",\"cat\":" + quote(node.kind().resourceClass().toString()) +
+                            ",\"ph\":\"X\",\"pid\":1,\"tid\":" + this.thread(node) +
+                            ",\"ts\":" + start +
+                            ",\"dur\":" + (this.now() - start) +
+                            ",\"args\":{\"artifact\":" + quote(node.artifact().coords().toString()) + "}}"
+            );
+        }
+    }
+
+    private void event(final String name,
+                       final String category,
+                       final String phase,
+                       final long timestamp,
+                       final long tid,
+                       final String extra) {
+        this.events.add(
+                "{\"name\":" + quote(name) +
+                        ",\"cat\":" + quote(category) +
+                        ",\"ph\":\"" + phase +
+                        "\",\"pid\":1,\"tid\":" + tid +
+                        ",\"ts\":" + timestamp +
+                        extra +
+                        "}"
+        );
+    }
+
+    /**
+     * Returns the id of the current thread, recording its name the first time it is seen. Virtual threads have no
+     * name, so one is made from the resource class and id.
+     */
+    private long thread(final J2clTaskNode node) {
+        final Thread thread = Thread.currentThread();
+        final long tid = thread.getId();
+
+        this.threads.computeIfAbsent(
+                tid,
+                (t) -> node.kind().resourceClass() + "-" + t
+        );
+        return tid;
+    }
+
+    /**
+     * The number of microseconds since the trace was started.
+     */
+    private long now() {
+        return (System.nanoTime() - this.start) / 1000;
+    }
+
+    private volatile long start;
+
+    /**
+     * Writes all events to the given file.
+     */
+    void write(final J2clPath file) throws IOException {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+
+        String separator = "";
+
+        for (final Map.Entry<Long, String> tidAndName : new TreeMap<>(this.threads).entrySet()) {
+            json.append(separator)
+                    .append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":")
+                    .append(tidAndName.getKey())
+                    .append(",\"args\":{\"name\":")
+                    .append(quote(tidAndName.getValue()))
+                    .append("}}");
+            separator = ",\n";
+        }
+
+        for (final String event : this.events) {
+            json.append(separator)
+                    .append(event);
+            separator = ",\n";
+        }
+
+        json.append("\n]}\n");
+
+        file.writeFile(
+                json.toString()
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private static String quote(final String text) {
+        final StringBuilder quoted = new StringBuilder();
+        quoted.append('"');
+
+        for (final char c : text.toCharArray()) {
+            switch (c) {
+                case '"':
+                case '\\':
+                    quoted.append('\\').append(c);
+                    break;
+                default:
+                    if (c < ' ') {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                    break;
+            }
+        }
+
+        return quoted.append('"')
+                .toString();
+    }
+
+    /**
+     * Each event already formatted as a JSON object.
+     */
+    private final Queue<String> events = new ConcurrentLinkedQueue<>();
+
+    private final Map<Long, String> threads = Maps.concurrent();
+
+    /**
+     * The id of the queue async slice of each queued node.
+     */
+    private final Map<J2clTaskNode, Long> queued = Maps.concurrent();
+
+    /**
+     * The start timestamp of each executing node.
+     */
+    private final Map<J2clTaskNode, Long> started = Maps.concurrent();
+
+    /**
+     * The ids of the flows that end when a waiting node starts.
+     */
+    private final Map<J2clTaskNode, List<Long>> flows = Maps.concurrent();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.events.size() + " event(s)";
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.SortedSets;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * An in memory workspace that tasks use to hand files to each other. Files written are kept in memory up to a capacity
+ * and persisted to disk by a single background writer, so the next task may read them from memory while they are
+ * still being written. Files beyond the capacity are written immediately.
+ * <br>
+ * Tools that read files themselves, such as javac and the transpiler, must {@link #flush(Collection)} their inputs
+ * first, and the result of a task is only marked once its output has been persisted.
+ */
+public final class J2clWorkspace {
+
+    public static J2clWorkspace with(final long capacity,
+                                     final MavenLogger logger) {
+        return new J2clWorkspace(
+                capacity,
+                logger
+        );
+    }
+
+    private J2clWorkspace(final long capacity,
+                          final MavenLogger logger) {
+        super();
+        this.capacity = capacity;
+        this.logger = logger;
+    }
+
+    /**
+     * Reads the file from memory if it was written by this workspace or from disk.
+     */
+    public byte[] read(final J2clPath file) throws IOException {
+        byte[] content;
+        synchronized (this.contents) {
+            content = this.contents.get(file);
+        }
+        return null != content ?
+                content :
+                Files.readAllBytes(file.path());
+    }
+
+    /**
+     * Writes the file, keeping its content in memory and persisting it in the background when there is room,
+     * otherwise writing it immediately. Directories are always created immediately.
+     */
+    public void write(final J2clPath file,
+                      final byte[] content) throws IOException {
+        final Path path = file.path();
+        Files.createDirectories(path.getParent());
+
+        this.written.add(file);
+
+        final CompletableFuture<Void> persisted = new CompletableFuture<>();
+        if (this.reserve(file, content, persisted)) {
+            this.writer()
+                    .execute(() -> {
+                        // the file is no longer pending before anyone waiting for it continues
+                        try {
+                            persist(path, content);
+                            this.pending.remove(file, persisted);
+                            persisted.complete(null);
+                        } catch (final IOException | RuntimeException cause) {
+                            this.failures.put(file, cause);
+                            this.pending.remove(file, persisted);
+                            persisted.completeExceptionally(cause);
+                        }
+                    });
+        } else {
+            this.forget(file);
+            persist(path, content);
+            this.failures.remove(file);
+        }
+    }
+
+    /**
+     * Forgets the content of a file that is about to be written immediately, and waits for any earlier write of the
+     * same file still pending, so neither the stale content nor the earlier write replaces the new content.
+     */
+    private void forget(final J2clPath file) {
+        synchronized (this.contents) {
+            final byte[] forgotten = this.contents.remove(file);
+            if (null != forgotten) {
+                this.size -= forgotten.length;
+            }
+        }
+
+        final CompletableFuture<Void> persisted = this.pending.get(file);
+        if (null != persisted) {
+            try {
+                persisted.join();
+            } catch (final CompletionException ignore) {
+                // replaced by the immediate write
+            }
+        }
+    }
+
+    /**
+     * Replaces rather than overwrites any existing file, which may be a read only link to a blob of the
+     * {@link J2clBlobStore} shared with other files.
+     */
+    private static void persist(final Path path,
+                                final byte[] content) throws IOException {
+        Files.deleteIfExists(path);
+        Files.write(path, content);
+    }
+
+    /**
+     * Makes room for the content by forgetting files that have been persisted, returning false if there is no room.
+     * The file is marked pending before its content is kept, both under the same lock, so a concurrent reserve never
+     * forgets content that has not yet been persisted.
+     */
+    private boolean reserve(final J2clPath file,
+                            final byte[] content,
+                            final CompletableFuture<Void> persisted) {
+        final long size = content.length;
+        boolean reserved = false;
+
+        synchronized (this.contents) {
+            final Iterator<Entry<J2clPath, byte[]>> contents = this.contents.entrySet()
+                    .iterator();
+            while (this.size + size > this.capacity && contents.hasNext()) {
+                final Entry<J2clPath, byte[]> fileAndContent = contents.next();
+                if (false == this.pending.containsKey(fileAndContent.getKey())) {
+                    this.size -= fileAndContent.getValue().length;
+                    contents.remove();
+                }
+            }
+
+            if (this.size + size <= this.capacity) {
+                this.pending.put(file, persisted);
+                final byte[] replaced = this.contents.put(file, content);
+                this.size += size - (null != replaced ? replaced.length : 0);
+                reserved = true;
+            }
+        }
+
+        return reserved;
+    }
+
+    /**
+     * Reads each file from the source, transforms its content and writes it to the same relative path under the destination.
+     */
+    public Collection<J2clPath> copyFiles(final J2clPath src,
+                                          final Collection<J2clPath> files,
+                                          final J2clPath dest,
+                                          final BiFunction<byte[], J2clPath, byte[]> contentTransformer) throws IOException {
+        final Path srcPath = src.path();
+        final Path destPath = dest.path();
+
+        final List<J2clPath> copied = Lists.array();
+
+        for (final J2clPath file : files) {
+            final J2clPath copyTarget = J2clPath.with(
+                    destPath.resolve(
+                            srcPath.relativize(file.path())
+                                    .toString()
+                    )
+            );
+
+            this.write(
+                    copyTarget,
+                    contentTransformer.apply(
+                            this.read(file),
+                            copyTarget
+                    )
+            );
+
+            copied.add(copyTarget);
+        }
+
+        return copied;
+    }
+
+    /**
+     * Finds the files under the directory whose path matches the filter, including those written by this workspace
+     * which may not yet be on disk. The filter should only test the name of the file, not whether it exists.
+     */
+    public SortedSet<J2clPath> gatherFiles(final J2clPath directory,
+                                           final Predicate<Path> filter) throws IOException {
+        final SortedSet<J2clPath> files = SortedSets.tree();
+
+        if (directory.exists().isPresent()) {
+            files.addAll(
+                    directory.gatherFiles(J2clPath.ALL_FILES.and(filter))
+            );
+        }
+
+        final Path directoryPath = directory.path();
+        for (final J2clPath file : this.written) {
+            final Path path = file.path();
+            if (path.startsWith(directoryPath) && filter.test(path)) {
+                files.add(file);
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Waits for the files under each of the given paths to be persisted, failing if any could not be written.
+     */
+    public void flush(final Collection<J2clPath> paths) throws IOException {
+        for (final J2clPath path : paths) {
+            this.flush(path);
+        }
+    }
+
+    /**
+     * Waits for the files under the given path to be persisted, failing if any could not be written.
+     */
+    public void flush(final J2clPath path) throws IOException {
+        for (final Entry<J2clPath, CompletableFuture<Void>> fileAndPersisted : this.pending.entrySet()) {
+            if (isUnder(fileAndPersisted.getKey(), path)) {
+                try {
+                    fileAndPersisted.getValue()
+                            .join();
+                } catch (final CompletionException ignore) {
+                    // reported below
+                }
+            }
+        }
+
+        final Throwable cause = this.failure(path);
+        if (null != cause) {
+            throw new IOException("Failed to write " + path + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Runs the action once the files under the given directory have been persisted, immediately returning its result
+     * when none are pending, otherwise by the background writer after them returning nothing. When run by the writer
+     * a failure of the action or to persist any file is recorded and thrown by {@link #close()}.
+     */
+    <T> Optional<T> whenPersisted(final J2clPath directory,
+                                  final Callable<T> action) throws Exception {
+        final Optional<T> result;
+
+        if (this.pending.keySet()
+                .stream()
+                .noneMatch(f -> isUnder(f, directory))) {
+            this.failIfFailed(directory);
+            result = Optional.ofNullable(action.call());
+        } else {
+            result = Optional.empty();
+
+            this.writer()
+                    .execute(() -> {
+                        try {
+                            this.failIfFailed(directory);
+                            action.call();
+                        } catch (final Exception cause) {
+                            this.logger.error("Failed to complete " + directory + ": " + cause.getMessage(), cause);
+                            this.deferredFailed(
+                                    new IOException("Failed to complete " + directory + ": " + cause.getMessage(), cause)
+                            );
+                        }
+                    });
+        }
+
+        return result;
+    }
+
+    /**
+     * Records the failure of a deferred action, any later failures are added as suppressed.
+     */
+    private void deferredFailed(final IOException failure) {
+        if (false == this.deferredFailure.compareAndSet(null, failure)) {
+            this.deferredFailure.get()
+                    .addSuppressed(failure);
+        }
+    }
+
+    private void failIfFailed(final J2clPath directory) throws IOException {
+        final Throwable cause = this.failure(directory);
+        if (null != cause) {
+            throw new IOException("Failed to write " + directory + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    private Throwable failure(final J2clPath path) {
+        return this.failures.entrySet()
+                .stream()
+                .filter(e -> isUnder(e.getKey(), path))
+                .map(Entry::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean isUnder(final J2clPath file,
+                                   final J2clPath path) {
+        return file.path()
+                .startsWith(path.path());
+    }
+
+    /**
+     * Waits for all files and actions to be persisted and then forgets all files, this workspace may be used by a later build.
+     * The first failure of an action deferred by {@link #whenPersisted(J2clPath, Callable)} is then thrown.
+     */
+    void close() throws InterruptedException, IOException {
+        final ExecutorService writer;
+        synchronized (this) {
+            writer = this.writer;
+            this.writer = null;
+        }
+
+        if (null != writer) {
+            writer.shutdown();
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized (this.contents) {
+            this.contents.clear();
+            this.size = 0;
+        }
+        this.written.clear();
+        this.pending.clear();
+        this.failures.clear();
+
+        final IOException deferredFailure = this.deferredFailure.getAndSet(null);
+        if (null != deferredFailure) {
+            throw deferredFailure;
+        }
+    }
+
+    /**
+     * Lazily creates the single daemon thread that persists files in the order they were written.
+     */
+    private synchronized ExecutorService writer() {
+        ExecutorService writer = this.writer;
+        if (null == writer) {
+            writer = Executors.newSingleThreadExecutor(
+                    (r) -> {
+                        final Thread thread = new Thread(r, "j2cl-workspace-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+            );
+            this.writer = writer;
+        }
+        return writer;
+    }
+
+    private ExecutorService writer;
+
+    /**
+     * The maximum number of bytes of file content kept in memory.
+     */
+    private final long capacity;
+
+    /**
+     * The number of bytes of file content currently kept in memory.
+     */
+    private long size;
+
+    /**
+     * The content of files in the order they were written, guarded by itself.
+     */
+    private final Map<J2clPath, byte[]> contents = Maps.ordered();
+
+    /**
+     * All files written by this workspace during the current build.
+     */
+    private final Set<J2clPath> written = Collections.newSetFromMap(Maps.concurrent());
+
+    /**
+     * Files that have not yet been persisted.
+     */
+    private final Map<J2clPath, CompletableFuture<Void>> pending = Maps.concurrent();
+
+    /**
+     * Files that could not be persisted along with the cause.
+     */
+    private final Map<J2clPath, Throwable> failures = Maps.concurrent();
+
+    /**
+     * The first failure of an action run by the background writer.
+     */
+    private final AtomicReference<IOException> deferredFailure = new AtomicReference<>();
+
+    private final MavenLogger logger;
+
+    @Override
+    public String toString() {
+        return this.pending.size() + " pending " + this.size + "/" + this.capacity + " byte(s)";
+    }
+}
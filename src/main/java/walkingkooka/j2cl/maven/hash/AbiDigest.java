@@ -0,0 +1,331 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import walkingkooka.collect.list.Lists;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes a digest of the application binary interface of the class files under one or more directories. Only
+ * non private classes, fields, methods, constants and annotations contribute, method bodies and debug information are
+ * ignored, so a change to the implementation of a method leaves the digest unchanged. Files that are not class files
+ * contribute their content.
+ */
+public final class AbiDigest {
+
+    /**
+     * Computes the digest of the class files under the given roots, roots that do not exist are ignored.
+     */
+    public static String compute(final List<Path> roots,
+                                 final FileDigestIndex fileDigests) throws IOException {
+        final HashBuilder hash = HashBuilder.with(fileDigests.algorithm());
+
+        int i = 0;
+        for (final Path root : roots) {
+            hash.append("root-" + i);
+            i++;
+
+            if (Files.isDirectory(root)) {
+                final List<Path> files;
+                try (final Stream<Path> walk = Files.walk(root)) {
+                    files = walk.filter(Files::isRegularFile)
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
+
+                for (final Path file : files) {
+                    final String relative = root.relativize(file)
+                            .toString()
+                            .replace('\\', '/');
+                    hash.append(relative);
+                    hash.append(
+                            relative.endsWith(CLASS_FILE_SUFFIX) ?
+                                    abi(Files.readAllBytes(file)) :
+                                    fileDigests.digest(
+                                            file,
+                                            Files.readAttributes(
+                                                    file,
+                                                    BasicFileAttributes.class
+                                            )
+                                    )
+                    );
+                }
+            }
+        }
+
+        return hash.build();
+    }
+
+    private final static String CLASS_FILE_SUFFIX = ".class";
+
+    /**
+     * Returns a text form of the non private parts of the given class file with members sorted by their text.
+     */
+    public static String abi(final byte[] content) {
+        final StringBuilder header = new StringBuilder();
+        final List<StringBuilder> members = Lists.array();
+
+        new ClassReader(content).accept(new ClassVisitor(Opcodes.ASM7) {
+
+            @Override
+            public void visit(final int version,
+                              final int access,
+                              final String name,
+                              final String signature,
+                              final String superName,
+                              final String[] interfaces) {
+                header.append("class ")
+                        .append(access)
+                        .append(' ')
+                        .append(name)
+                        .append(' ')
+                        .append(signature)
+                        .append(' ')
+                        .append(superName)
+                        .append(' ')
+                        .append(Arrays.toString(interfaces));
+                this.name = name;
+            }
+
+            private String name;
+
+            @Override
+            public AnnotationVisitor visitAnnotation(final String descriptor,
+                                                     final boolean visible) {
+                return annotation(header, descriptor);
+            }
+
+            @Override
+            public void visitInnerClass(final String name,
+                                        final String outerName,
+                                        final String innerName,
+                                        final int access) {
+                // inner classes referenced but not declared by this class, such as MethodHandles.Lookup are ignored
+                if (isVisible(access) && this.name.equals(outerName)) {
+                    members.add(
+                            new StringBuilder("inner ")
+                                    .append(access)
+                                    .append(' ')
+                                    .append(name)
+                                    .append(' ')
+                                    .append(outerName)
+                                    .append(' ')
+                                    .append(innerName)
+                    );
+                }
+            }
+
+            @Override
+            public FieldVisitor visitField(final int access,
+                                           final String name,
+                                           final String descriptor,
+                                           final String signature,
+                                           final Object value) {
+                FieldVisitor visitor = null;
+
+                if (isVisible(access)) {
+                    final StringBuilder member = new StringBuilder("field ")
+                            .append(access)
+                            .append(' ')
+                            .append(name)
+                            .append(' ')
+                            .append(descriptor)
+                            .append(' ')
+                            .append(signature)
+                            .append(' ')
+                            .append(value);
+                    members.add(member);
+
+                    visitor = new FieldVisitor(Opcodes.ASM7) {
+                        @Override
+                        public AnnotationVisitor visitAnnotation(final String descriptor,
+                                                                 final boolean visible) {
+                            return annotation(member, descriptor);
+                        }
+                    };
+                }
+
+                return visitor;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(final int access,
+                                             final String name,
+                                             final String descriptor,
+                                             final String signature,
+                                             final String[] exceptions) {
+                MethodVisitor visitor = null;
+
+                if (isVisible(access)) {
+                    final StringBuilder member = new StringBuilder("method ")
+                            .append(access)
+                            .append(' ')
+                            .append(name)
+                            .append(' ')
+                            .append(descriptor)
+                            .append(' ')
+                            .append(signature)
+                            .append(' ')
+                            .append(Arrays.toString(exceptions));
+                    members.add(member);
+
+                    visitor = new MethodVisitor(Opcodes.ASM7) {
+                        @Override
+                        public AnnotationVisitor visitAnnotation(final String descriptor,
+                                                                 final boolean visible) {
+                            return annotation(member, descriptor);
+                        }
+
+                        @Override
+                        public AnnotationVisitor visitParameterAnnotation(final int parameter,
+                                                                          final String descriptor,
+                                                                          final boolean visible) {
+                            member.append(" parameter-")
+                                    .append(parameter);
+                            return annotation(member, descriptor);
+                        }
+
+                        @Override
+                        public AnnotationVisitor visitAnnotationDefault() {
+                            member.append(" default");
+                            return new AbiAnnotationVisitor(member);
+                        }
+                    };
+                }
+
+                return visitor;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return members.stream()
+                .map(StringBuilder::toString)
+                .sorted()
+                .collect(Collectors.joining("\n", header + "\n", ""));
+    }
+
+    /**
+     * Private and synthetic members, such as lambda bodies and bridge methods, are not part of the ABI.
+     */
+    private static boolean isVisible(final int access) {
+        return 0 == (access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC));
+    }
+
+    private static AnnotationVisitor annotation(final StringBuilder text,
+                                                final String descriptor) {
+        text.append(" @")
+                .append(descriptor);
+        return new AbiAnnotationVisitor(text);
+    }
+
+    /**
+     * Appends the names and values of an annotation, including nested annotations and arrays.
+     */
+    private static final class AbiAnnotationVisitor extends AnnotationVisitor {
+
+        AbiAnnotationVisitor(final StringBuilder text) {
+            super(Opcodes.ASM7);
+            this.text = text;
+            text.append('(');
+        }
+
+        @Override
+        public void visit(final String name,
+                          final Object value) {
+            this.name(name)
+                    .append(
+                            value.getClass().isArray() ?
+                                    arrayToString(value) :
+                                    String.valueOf(value)
+                    );
+        }
+
+        @Override
+        public void visitEnum(final String name,
+                              final String descriptor,
+                              final String value) {
+            this.name(name)
+                    .append(descriptor)
+                    .append('.')
+                    .append(value);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(final String name,
+                                                 final String descriptor) {
+            this.name(name)
+                    .append('@')
+                    .append(descriptor);
+            return new AbiAnnotationVisitor(this.text);
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(final String name) {
+            this.name(name);
+            return new AbiAnnotationVisitor(this.text);
+        }
+
+        @Override
+        public void visitEnd() {
+            this.text.append(')');
+        }
+
+        private StringBuilder name(final String name) {
+            return this.text.append(' ')
+                    .append(name)
+                    .append('=');
+        }
+
+        private final StringBuilder text;
+    }
+
+    /**
+     * Primitive arrays such as int[] are reported as a single value.
+     */
+    private static String arrayToString(final Object array) {
+        final StringBuilder b = new StringBuilder("[");
+        final int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                b.append(',');
+            }
+            b.append(Array.get(array, i));
+        }
+        return b.append(']').toString();
+    }
+
+    /**
+     * Stop creation
+     */
+    private AbiDigest() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import walkingkooka.collect.map.Maps;
+import walkingkooka.j2cl.maven.J2clPath;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * A persistent index of the digest of files, keyed by absolute path and validated using the size, last modified time
+ * and file key (the inode on unix) of the file. Files that have not changed since their digest was recorded are not
+ * read again.
+ * <br>
+ * The first line of the file names the {@link HashAlgorithm}, each following line holds a single file with tab separated
+ * path, size, last modified millis, file key and digest. Files whose digest was not required since the index was loaded
+ * or last saved are dropped when it is saved, so files of older builds or that no longer exist do not accumulate.
+ */
+public final class FileDigestIndex {
+
+    /**
+     * The file name of the index, which is kept in the cache directory.
+     */
+    public final static String FILE = "file-digests.txt";
+
+    /**
+     * Files modified this recently are not recorded, because a later change within the resolution of the last modified
+     * time and keeping the same size would not be detected.
+     */
+    private final static long RACY_MILLIS = 2000;
+
+    private final static String ALGORITHM = "algorithm";
+
+    /**
+     * Loads the index from the given file if it exists, lines that cannot be parsed are ignored. An index written
+     * using a different {@link HashAlgorithm} is ignored.
+     */
+    public static FileDigestIndex load(final J2clPath file,
+                                       final HashAlgorithm algorithm) throws IOException {
+        final FileDigestIndex index = empty(algorithm);
+
+        if (file.exists().isPresent()) {
+            for (final String line : Files.readAllLines(file.path(), StandardCharsets.UTF_8)) {
+                final String[] columns = line.split("\t");
+                if (2 == columns.length && ALGORITHM.equals(columns[0])) {
+                    if (false == algorithm.commandLineName.equals(columns[1])) {
+                        index.digests.clear();
+                        break;
+                    }
+                }
+                if (5 == columns.length) {
+                    try {
+                        index.digests.put(
+                                columns[0],
+                                new Digest(
+                                        Long.parseLong(columns[1]),
+                                        Long.parseLong(columns[2]),
+                                        columns[3],
+                                        columns[4]
+                                )
+                        );
+                    } catch (final NumberFormatException ignore) {
+                        // corrupt line, the file will be read again.
+                    }
+                }
+            }
+        }
+
+        index.modified = false;
+        return index;
+    }
+
+    public static FileDigestIndex empty(final HashAlgorithm algorithm) {
+        return new FileDigestIndex(algorithm);
+    }
+
+    private FileDigestIndex(final HashAlgorithm algorithm) {
+        super();
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * The {@link HashAlgorithm} used to digest files.
+     */
+    public HashAlgorithm algorithm() {
+        return this.algorithm;
+    }
+
+    private final HashAlgorithm algorithm;
+
+    /**
+     * Returns the digest of the given file, reading the file only if it is not in the index or has changed.
+     * Files that are not on the default file system, such as the entries of an archive, are always read.
+     */
+    public String digest(final Path file,
+                         final BasicFileAttributes attributes) throws IOException {
+        final String digest;
+
+        if (file.getFileSystem() == FileSystems.getDefault()) {
+            final String key = file.toAbsolutePath()
+                    .normalize()
+                    .toString();
+            final long size = attributes.size();
+            final long lastModified = attributes.lastModifiedTime()
+                    .toMillis();
+            final String fileKey = String.valueOf(attributes.fileKey());
+
+            this.used.add(key);
+
+            final Digest previous = this.digests.get(key);
+            if (null != previous && previous.isUnchanged(size, lastModified, fileKey)) {
+                digest = previous.digest;
+            } else {
+                digest = this.read(file);
+
+                if (System.currentTimeMillis() - lastModified > RACY_MILLIS) {
+                    this.digests.put(
+                            key,
+                            new Digest(
+                                    size,
+                                    lastModified,
+                                    fileKey,
+                                    digest
+                            )
+                    );
+                    this.modified = true;
+                }
+            }
+        } else {
+            digest = this.read(file);
+        }
+
+        return digest;
+    }
+
+    private String read(final Path file) throws IOException {
+        return HashBuilder.with(this.algorithm)
+                .append(file)
+                .build();
+    }
+
+    /**
+     * Writes the index to the given file sorted by path, if any digest was added, replaced or dropped since it was loaded.
+     * Only the digests of files that were required since the index was loaded or last saved are kept.
+     */
+    public void save(final J2clPath file) throws IOException {
+        final boolean dropped = this.digests.keySet()
+                .retainAll(this.used);
+        this.used.clear();
+
+        if (this.modified || dropped) {
+            this.modified = false;
+
+            final SortedMap<String, Digest> sorted = Maps.sorted();
+            sorted.putAll(this.digests);
+
+            final StringBuilder text = new StringBuilder();
+            text.append(ALGORITHM)
+                    .append('\t')
+                    .append(this.algorithm.commandLineName)
+                    .append('\n');
+
+            for (final Entry<String, Digest> pathAndDigest : sorted.entrySet()) {
+                final Digest digest = pathAndDigest.getValue();
+
+                text.append(pathAndDigest.getKey())
+                        .append('\t')
+                        .append(digest.size)
+                        .append('\t')
+                        .append(digest.lastModified)
+                        .append('\t')
+                        .append(digest.fileKey)
+                        .append('\t')
+                        .append(digest.digest)
+                        .append('\n');
+            }
+
+            file.writeFile(
+                    text.toString()
+                            .getBytes(StandardCharsets.UTF_8)
+            );
+        }
+    }
+
+    private final Map<String, Digest> digests = Maps.concurrent();
+
+    private volatile boolean modified;
+
+    /**
+     * The paths of the files whose digest was required since the index was loaded or last saved.
+     */
+    private final Set<String> used = Collections.newSetFromMap(Maps.concurrent());
+
+    /**
+     * The digest of a single file along with the attributes used to detect a change.
+     */
+    private final static class Digest {
+
+        Digest(final long size,
+               final long lastModified,
+               final String fileKey,
+               final String digest) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.fileKey = fileKey;
+            this.digest = digest;
+        }
+
+        boolean isUnchanged(final long size,
+                            final long lastModified,
+                            final String fileKey) {
+            return this.size == size &&
+                    this.lastModified == lastModified &&
+                    Objects.equals(this.fileKey, fileKey);
+        }
+
+        final long size;
+
+        final long lastModified;
+
+        final String fileKey;
+
+        final String digest;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.digests.size() + " file(s)";
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import walkingkooka.text.CharSequences;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The algorithms that may be selected to compute the hash of an artifact, which selects its cache directory.
+ */
+public enum HashAlgorithm {
+    SHA1("SHA-1", "") {
+        @Override
+        MessageDigest messageDigest() {
+            return getInstance(this.commandLineName);
+        }
+    },
+
+    SHA256("SHA-256", "sha256_") {
+        @Override
+        MessageDigest messageDigest() {
+            return getInstance(this.commandLineName);
+        }
+    },
+
+    /**
+     * A fast non cryptographic hash, collisions are unlikely enough for a local cache.
+     */
+    MURMUR3_128(Murmur3MessageDigest.ALGORITHM, "murmur3_") {
+        @Override
+        MessageDigest messageDigest() {
+            return Murmur3MessageDigest.empty();
+        }
+    };
+
+    HashAlgorithm(final String commandLineName,
+                  final String directoryPrefix) {
+        this.commandLineName = commandLineName;
+        this.directoryPrefix = directoryPrefix;
+    }
+
+    abstract MessageDigest messageDigest();
+
+    private static MessageDigest getInstance(final String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (final NoSuchAlgorithmException cause) {
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    final String commandLineName;
+
+    /**
+     * Returns the name that follows the coords in the cache directory of an artifact with the given hash. SHA-1
+     * hashes have no prefix, keeping the names of existing cache directories.
+     */
+    public String directoryName(final String hash) {
+        return this.directoryPrefix + hash;
+    }
+
+    /**
+     * Tests if the given directory name, without the leading coords, holds a hash computed by this algorithm.
+     */
+    public boolean isDirectoryName(final String name) {
+        final String hash = name.startsWith(this.directoryPrefix) ?
+                name.substring(this.directoryPrefix.length()) :
+                "";
+
+        return hash.length() == this.messageDigest().getDigestLength() * 2 &&
+                hash.chars().allMatch(c -> Character.digit(c, 16) != -1);
+    }
+
+    private final String directoryPrefix;
+
+    public static HashAlgorithm fromCommandLine(final String algorithm) {
+        return Arrays.stream(HashAlgorithm.values())
+                .filter(a -> a.commandLineName.equalsIgnoreCase(algorithm))
+                .findFirst()
+                .orElseThrow(
+                        () -> new IllegalArgumentException("Unknown hash algorithm " + CharSequences.quote(algorithm) + " expected one of " +
+                                Arrays.stream(HashAlgorithm.values()).map(a -> a.commandLineName).collect(Collectors.joining(", ")))
+                );
+    }
+
+    @Override
+    public String toString() {
+        return this.commandLineName;
+    }
+}
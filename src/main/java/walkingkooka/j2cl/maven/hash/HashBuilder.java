@@ -21,30 +21,38 @@ import org.apache.commons.codec.binary.Hex;
 import walkingkooka.build.Builder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Builds a SHA1 composed of several inputs, such as dependencies & maven parameters.
+ * Builds a hash using a {@link HashAlgorithm} composed of several inputs, such as dependencies & maven parameters.
  */
 public final class HashBuilder implements Builder<String> {
 
     private final MessageDigest digest;
     private String hash;
 
+    /**
+     * Creates a {@link HashBuilder} using {@link HashAlgorithm#SHA1}.
+     */
     public static HashBuilder empty() {
-        return new HashBuilder();
+        return with(HashAlgorithm.SHA1);
     }
 
-    private HashBuilder() {
-        try {
-            digest = MessageDigest.getInstance("SHA-1");
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException(e);
-        }
+    public static HashBuilder with(final HashAlgorithm algorithm) {
+        return new HashBuilder(algorithm.messageDigest());
+    }
+
+    private HashBuilder(final MessageDigest digest) {
+        this.digest = digest;
     }
 
     public HashBuilder append(final Enum<?> e) {
@@ -56,21 +64,120 @@ public final class HashBuilder implements Builder<String> {
     }
 
     public HashBuilder append(final Path file) throws IOException {
-        return this.append(Files.readAllBytes(file));
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return this.append(channel);
+        }
+    }
+
+    /**
+     * Hashes the entire content of the given {@link FileChannel} without loading it onto the heap. Small files are
+     * read into a buffer borrowed from a small pool, larger files are memory mapped in fixed size windows.
+     * The position of the channel is not changed.
+     */
+    public HashBuilder append(final FileChannel channel) throws IOException {
+        this.failIfBuilt();
+
+        final long size = channel.size();
+        if (size >= MAP_THRESHOLD) {
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                this.digest.update(
+                        channel.map(
+                                MapMode.READ_ONLY,
+                                position,
+                                Math.min(MAP_WINDOW, size - position)
+                        )
+                );
+            }
+        } else {
+            final ByteBuffer buffer = borrowBuffer();
+            try {
+                long position = 0;
+
+                for (; ; ) {
+                    buffer.clear();
+                    final int read = channel.read(buffer, position);
+                    if (-1 == read) {
+                        break;
+                    }
+                    buffer.flip();
+                    this.digest.update(buffer);
+                    position += read;
+                }
+            } finally {
+                returnBuffer(buffer);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Files of this size or larger are memory mapped rather than read.
+     */
+    private final static long MAP_THRESHOLD = 4 * 1024 * 1024;
+
+    /**
+     * The size of each memory mapped window of a large file.
+     */
+    private final static long MAP_WINDOW = 16 * 1024 * 1024;
+
+    /**
+     * Takes an idle direct buffer from the pool, creating one while fewer than {@link #DIRECT_BUFFERS} exist, otherwise
+     * a heap buffer only used by the caller. Hashing runs on many virtual threads, so direct buffers are never kept
+     * per thread.
+     */
+    private static ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = BUFFERS.poll();
+        if (null == buffer) {
+            buffer = DIRECT_BUFFERS_CREATED.getAndUpdate(c -> c < DIRECT_BUFFERS ? c + 1 : c) < DIRECT_BUFFERS ?
+                    ByteBuffer.allocateDirect(BUFFER_SIZE) :
+                    ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a direct buffer to the pool, a heap buffer is simply dropped.
+     */
+    private static void returnBuffer(final ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            BUFFERS.offer(buffer);
+        }
     }
 
+    /**
+     * The size of each buffer used to read small files.
+     */
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The maximum number of direct buffers, one for each core that may be hashing.
+     */
+    private final static int DIRECT_BUFFERS = Runtime.getRuntime()
+            .availableProcessors();
+
+    private final static AtomicInteger DIRECT_BUFFERS_CREATED = new AtomicInteger();
+
+    /**
+     * Idle direct buffers.
+     */
+    private final static Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+
     public HashBuilder append(final byte[] content) {
+        this.failIfBuilt();
+
+        this.digest.update(content);
+        return this;
+    }
+
+    private void failIfBuilt() {
         final String hash = this.hash;
         if (null != hash) {
             throw new IllegalStateException("Hash already computed: " + hash);
         }
-
-        this.digest.update(content);
-        return this;
     }
 
     /**
-     * The builder that returns the SHA as hex digits.
+     * The builder that returns the hash as hex digits.
      */
     @Override
     public String build() {
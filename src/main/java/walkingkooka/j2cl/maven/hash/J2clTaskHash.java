@@ -17,7 +17,6 @@
 
 package walkingkooka.j2cl.maven.hash;
 
-import com.google.common.collect.Lists;
 import walkingkooka.collect.set.SortedSets;
 import walkingkooka.j2cl.maven.J2clArtifact;
 import walkingkooka.j2cl.maven.J2clMavenContext;
@@ -30,17 +29,10 @@ import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.text.CharSequences;
 
 import java.io.IOException;
-import java.net.URI;
 import java.nio.charset.Charset;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
-import java.nio.file.FileVisitResult;
-import java.nio.file.FileVisitor;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -70,23 +62,27 @@ public final class J2clTaskHash<C extends J2clMavenContext> implements J2clTask<
                                   final C context,
                                   final TreeLogger logger) throws Exception {
         final Set<String> hashItemNames = SortedSets.tree();
-        final HashBuilder hash = HashBuilder.empty();
+        final HashAlgorithm algorithm = context.hashAlgorithm();
+        final HashBuilder hash = HashBuilder.with(algorithm);
         context.computeHash(
                 artifact,
                 hash,
                 hashItemNames
         );
 
-        this.hashDependencies(artifact, hash, hashItemNames, logger);
-        this.hashArtifactSources(artifact, hash, hashItemNames, logger);
+        this.hashDependencies(artifact, hash, hashItemNames, context, logger);
+        final Optional<MerkleTree> tree = this.hashArtifactSources(artifact, hash, hashItemNames, context, logger);
 
         final J2clTaskResult result;
 
         final J2clPath directory = artifact.setDirectory(
-                hash.build()
+                algorithm.directoryName(
+                        hash.build()
+                )
         ).directory();
         if (context.shouldCheckCache() && directory.exists().isPresent()) {
-            result = J2clTaskResult.ABORTED; // computed hash must not have changed dir already exists so skip remaining tasks.
+            // computed hash has not changed, each remaining task keeps its result unless the outputs of dependencies it reads changed.
+            result = J2clTaskResult.SUCCESS;
         } else {
             // create the dir that will have hash task so the file can be written...
             directory.append(
@@ -112,6 +108,15 @@ public final class J2clTaskHash<C extends J2clMavenContext> implements J2clTask<
                     .writeFile(
                             txt.getBytes(Charset.defaultCharset())
                     );
+
+            if (tree.isPresent()) {
+                this.saveTree(
+                        artifact,
+                        tree.get(),
+                        hashDirectory,
+                        logger
+                );
+            }
             result = J2clTaskResult.SUCCESS;
         }
 
@@ -121,6 +126,7 @@ public final class J2clTaskHash<C extends J2clMavenContext> implements J2clTask<
     private void hashDependencies(final J2clArtifact artifact,
                                   final HashBuilder hash,
                                   final Set<String> hashItemNames,
+                                  final C context,
                                   final TreeLogger logger) throws IOException {
         final Set<J2clArtifact> dependencies = artifact.dependencies(); // dependencies();
         logger.line(dependencies.size() + " Dependencies");
@@ -133,9 +139,10 @@ public final class J2clTaskHash<C extends J2clMavenContext> implements J2clTask<
                 logger.indent();
                 {
                     // leading zeroes added to keep keys in numeric order, so dependencies-0 is followed by dependencies-1 not dependencies-10
-                    final J2clPath dependencyFile = dependency.artifactFileOrFail();
                     hashItemNames.add(DEPENDENCIES + CharSequences.padLeft("" + i, 10, '0') + ": " + dependency.coords());
-                    hash.append(dependencyFile.path());
+                    hash.append(
+                            context.dependencyDigest(dependency)
+                    );
 
                     i++;
                 }
@@ -150,88 +157,100 @@ public final class J2clTaskHash<C extends J2clMavenContext> implements J2clTask<
 
     private final static String DEPENDENCIES = "dependencies-";
 
-    private void hashArtifactSources(final J2clArtifact artifact,
-                                     final HashBuilder hash,
-                                     final Set<String> hashItemNames,
-                                     final TreeLogger logger) throws IOException {
+    /**
+     * Hashes the source roots of the artifact returning their {@link MerkleTree}, or the archive file when there are none.
+     */
+    private Optional<MerkleTree> hashArtifactSources(final J2clArtifact artifact,
+                                                     final HashBuilder hash,
+                                                     final Set<String> hashItemNames,
+                                                     final C context,
+                                                     final TreeLogger logger) throws IOException {
         final List<J2clPath> compileSourceRoots = artifact.sourceRoots();
 
+        final Optional<MerkleTree> tree;
         if (compileSourceRoots.isEmpty()) {
-            this.hashArchiveFile(artifact, hash, hashItemNames, logger);
+            this.hashArchiveFile(artifact, hash, hashItemNames, context, logger);
+            tree = Optional.empty();
         } else {
-            this.hashCompileSourceRoots(compileSourceRoots.stream().map(J2clPath::path).collect(Collectors.toList()),
-                    hash,
-                    hashItemNames,
-                    logger);
+            tree = Optional.of(
+                    this.hashCompileSourceRoots(compileSourceRoots.stream().map(J2clPath::path).collect(Collectors.toList()),
+                            hash,
+                            hashItemNames,
+                            context.fileDigests(),
+                            logger)
+            );
         }
+        return tree;
     }
 
+    /**
+     * Hashes the archive file as a whole using its fingerprint, so an unchanged archive is not read again.
+     */
     private void hashArchiveFile(final J2clArtifact artifact,
                                  final HashBuilder hash,
                                  final Set<String> hashItemNames,
+                                 final C context,
                                  final TreeLogger logger) throws IOException {
         final J2clPath file = artifact.artifactFileOrFail();
-        try (final FileSystem zip = FileSystems.newFileSystem(URI.create("jar:" + file.file().toURI()), Collections.emptyMap())) {
-            this.hashCompileSourceRoots(zip.getRootDirectories(),
-                    hash,
-                    hashItemNames,
-                    logger);
-        }
-    }
+        logger.path("Archive", file);
 
+        hashItemNames.add("archive: " + file.path().toAbsolutePath());
+        hash.append(
+                context.dependencyFingerprint(file)
+        );
+    }
 
-    private void hashCompileSourceRoots(final Iterable<Path> roots,
-                                        final HashBuilder hash,
-                                        final Set<String> hashItemNames,
-                                        final TreeLogger logger) throws IOException {
-        logger.line(Lists.newArrayList(roots).size() + " Source root(s)");
+    private MerkleTree hashCompileSourceRoots(final List<Path> roots,
+                                              final HashBuilder hash,
+                                              final Set<String> hashItemNames,
+                                              final FileDigestIndex fileDigests,
+                                              final TreeLogger logger) throws IOException {
+        logger.line(roots.size() + " Source root(s)");
         logger.indent();
 
+        final MerkleTree tree = MerkleTree.compute(
+                roots,
+                fileDigests
+        );
+
         for (final Path root : roots) {
             logger.line(root.toString());
 
             hashItemNames.add("compile-source-root: " + root.toAbsolutePath());
-            this.hashDirectoryTree(
-                    root,
-                    hash
+            hash.append(
+                    tree.digest(root)
             );
         }
 
         logger.endOfList();
         logger.outdent();
+
+        return tree;
     }
 
-    private void hashDirectoryTree(final Path root,
-                                   final HashBuilder hash) throws IOException {
-        Files.walkFileTree(
-                root,
-                new FileVisitor<>() {
-                    @Override
-                    public FileVisitResult preVisitDirectory(final Path path,
-                                                             final BasicFileAttributes basicFileAttributes) {
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult visitFile(final Path path,
-                                                     final BasicFileAttributes basicFileAttributes) throws IOException {
-                        hash.append(path);
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult visitFileFailed(final Path path,
-                                                           final IOException cause) {
-                        return FileVisitResult.CONTINUE;
-                    }
-
-                    @Override
-                    public FileVisitResult postVisitDirectory(final Path path,
-                                                              final IOException cause) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                }
-        );
+    /**
+     * Logs the files that changed since the previous build of this artifact and saves the tree next to the hash file.
+     */
+    private void saveTree(final J2clArtifact artifact,
+                          final MerkleTree tree,
+                          final J2clTaskDirectory hashDirectory,
+                          final TreeLogger logger) throws IOException {
+        final Optional<J2clPath> previous = artifact.previousHashTreeFile();
+        if (previous.isPresent()) {
+            final List<String> changes = tree.changes(
+                    MerkleTree.load(previous.get())
+            );
+
+            logger.line(changes.size() + " file(s) changed since " + previous.get());
+            logger.indent();
+            {
+                changes.forEach(logger::line);
+                logger.endOfList();
+            }
+            logger.outdent();
+        }
+
+        tree.save(hashDirectory.hashTreeFile());
     }
 
     @Override
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.j2cl.maven.J2clPath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A Merkle tree of the files under one or more source roots. The digest of a file includes its content, the digest of a
+ * directory combines the name and digest of each of its children sorted by name, which makes the digest of a root
+ * independent of directory iteration order and sensitive to renames. Files and directories are digested in parallel
+ * using the common {@link ForkJoinPool}.
+ * <br>
+ * Each line of the saved file holds a digest and the absolute path of a file, or of a directory with a trailing slash.
+ */
+public final class MerkleTree {
+
+    /**
+     * Digests all the files under the given roots, reading only files that have changed according to the
+     * {@link FileDigestIndex}. Roots that do not exist are ignored.
+     */
+    public static MerkleTree compute(final List<Path> roots,
+                                     final FileDigestIndex fileDigests) throws IOException {
+        final MerkleTree tree = new MerkleTree(fileDigests);
+
+        try {
+            for (final Path root : roots) {
+                if (Files.isDirectory(root)) {
+                    ForkJoinPool.commonPool()
+                            .invoke(
+                                    tree.new DirectoryDigest(
+                                            root.toAbsolutePath()
+                                                    .normalize()
+                                    )
+                            );
+                }
+            }
+        } catch (final UncheckedIOException cause) {
+            throw cause.getCause();
+        }
+
+        return tree;
+    }
+
+    /**
+     * Loads a tree previously saved by {@link #save(J2clPath)}, lines that cannot be parsed are ignored.
+     */
+    static MerkleTree load(final J2clPath file) throws IOException {
+        final MerkleTree tree = new MerkleTree(FileDigestIndex.empty(HashAlgorithm.SHA1));
+
+        for (final String line : Files.readAllLines(file.path(), StandardCharsets.UTF_8)) {
+            final int tab = line.indexOf('\t');
+            if (-1 != tab) {
+                tree.digests.put(
+                        line.substring(tab + 1),
+                        line.substring(0, tab)
+                );
+            }
+        }
+
+        return tree;
+    }
+
+    private MerkleTree(final FileDigestIndex fileDigests) {
+        super();
+        this.fileDigests = fileDigests;
+    }
+
+    private final FileDigestIndex fileDigests;
+
+    /**
+     * Returns the digest of the given root or empty string if it does not exist.
+     */
+    public String digest(final Path root) {
+        return this.digests.getOrDefault(
+                directoryKey(
+                        root.toAbsolutePath()
+                                .normalize()
+                ),
+                ""
+        );
+    }
+
+    /**
+     * Returns the files added, removed or changed since the previous tree, each prefixed by <code>+</code>,
+     * <code>-</code> or <code>*</code>. Directories with the same digest in both trees are skipped without visiting
+     * their files.
+     */
+    List<String> changes(final MerkleTree previous) {
+        final List<String> changes = Lists.array();
+
+        final SortedMap<String, String> current = this.sorted();
+        final SortedMap<String, String> before = previous.sorted();
+
+        String unchanged = null;
+        for (final Entry<String, String> pathAndDigest : current.entrySet()) {
+            final String path = pathAndDigest.getKey();
+            if (null != unchanged && path.startsWith(unchanged)) {
+                continue;
+            }
+            unchanged = null;
+
+            final String digest = pathAndDigest.getValue();
+            final String previousDigest = before.get(path);
+
+            if (isDirectory(path)) {
+                if (digest.equals(previousDigest)) {
+                    unchanged = path;
+                }
+            } else {
+                if (null == previousDigest) {
+                    changes.add("+ " + path);
+                } else {
+                    if (false == digest.equals(previousDigest)) {
+                        changes.add("* " + path);
+                    }
+                }
+            }
+        }
+
+        unchanged = null;
+        for (final Entry<String, String> pathAndDigest : before.entrySet()) {
+            final String path = pathAndDigest.getKey();
+            if (null != unchanged && path.startsWith(unchanged)) {
+                continue;
+            }
+            unchanged = null;
+
+            if (isDirectory(path)) {
+                if (pathAndDigest.getValue().equals(current.get(path))) {
+                    unchanged = path;
+                }
+            } else {
+                if (false == current.containsKey(path)) {
+                    changes.add("- " + path);
+                }
+            }
+        }
+
+        changes.sort(
+                (l, r) -> l.substring(2).compareTo(r.substring(2))
+        );
+        return changes;
+    }
+
+    /**
+     * Writes the tree to the given file sorted by path.
+     */
+    void save(final J2clPath file) throws IOException {
+        final StringBuilder text = new StringBuilder();
+
+        for (final Entry<String, String> pathAndDigest : this.sorted().entrySet()) {
+            text.append(pathAndDigest.getValue())
+                    .append('\t')
+                    .append(pathAndDigest.getKey())
+                    .append('\n');
+        }
+
+        file.writeFile(
+                text.toString()
+                        .getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private SortedMap<String, String> sorted() {
+        final SortedMap<String, String> sorted = Maps.sorted();
+        sorted.putAll(this.digests);
+        return sorted;
+    }
+
+    private static String directoryKey(final Path directory) {
+        return directory + "/";
+    }
+
+    private static boolean isDirectory(final String path) {
+        return path.endsWith("/");
+    }
+
+    /**
+     * The digest of every file and directory keyed by absolute path, directories have a trailing slash.
+     */
+    private final Map<String, String> digests = Maps.concurrent();
+
+    /**
+     * Forks a task for each child of a directory and then combines their digests in name order.
+     */
+    private final class DirectoryDigest extends RecursiveTask<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        DirectoryDigest(final Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected String compute() {
+            try {
+                final SortedMap<String, ForkJoinTask<String>> children = Maps.sorted();
+
+                try (final DirectoryStream<Path> paths = Files.newDirectoryStream(this.directory)) {
+                    for (final Path path : paths) {
+                        final BasicFileAttributes attributes = Files.readAttributes(
+                                path,
+                                BasicFileAttributes.class
+                        );
+                        final String name = path.getFileName()
+                                .toString();
+
+                        if (attributes.isDirectory()) {
+                            children.put(
+                                    name + "/",
+                                    new DirectoryDigest(path).fork()
+                            );
+                        } else {
+                            if (attributes.isRegularFile()) {
+                                children.put(
+                                        name,
+                                        new FileDigest(
+                                                path,
+                                                attributes
+                                        ).fork()
+                                );
+                            }
+                        }
+                    }
+                }
+
+                final HashBuilder hash = HashBuilder.with(
+                        MerkleTree.this.fileDigests.algorithm()
+                );
+                for (final Entry<String, ForkJoinTask<String>> nameAndDigest : children.entrySet()) {
+                    hash.append(
+                            nameAndDigest.getKey() +
+                                    '\t' +
+                                    nameAndDigest.getValue().join() +
+                                    '\n'
+                    );
+                }
+
+                final String digest = hash.build();
+                MerkleTree.this.digests.put(
+                        directoryKey(this.directory),
+                        digest
+                );
+                return digest;
+            } catch (final IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+        }
+
+        private final Path directory;
+    }
+
+    /**
+     * Digests a single file using the {@link FileDigestIndex}.
+     */
+    private final class FileDigest extends RecursiveTask<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        FileDigest(final Path file,
+                   final BasicFileAttributes attributes) {
+            this.file = file;
+            this.attributes = attributes;
+        }
+
+        @Override
+        protected String compute() {
+            try {
+                final String digest = MerkleTree.this.fileDigests.digest(
+                        this.file,
+                        this.attributes
+                );
+                MerkleTree.this.digests.put(
+                        this.file.toString(),
+                        digest
+                );
+                return digest;
+            } catch (final IOException cause) {
+                throw new UncheckedIOException(cause);
+            }
+        }
+
+        private final Path file;
+
+        private final BasicFileAttributes attributes;
+    }
+
+    // Object...........................................................................................................
+
+    @Override
+    public String toString() {
+        return this.digests.size() + " path(s)";
+    }
+}
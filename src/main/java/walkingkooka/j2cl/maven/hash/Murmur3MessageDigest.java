@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+
+/**
+ * A {@link MessageDigest} that computes the 128 bit x64 variant of MurmurHash3 with a seed of zero, producing the same
+ * bytes as Guava's <code>Hashing.murmur3_128()</code>. It is not a cryptographic hash but is much faster than SHA-1,
+ * which makes it suitable for local cache keys.
+ */
+final class Murmur3MessageDigest extends MessageDigest {
+
+    final static String ALGORITHM = "MURMUR3-128";
+
+    private final static int BLOCK = 16;
+
+    private final static long C1 = 0x87c37b91114253d5L;
+    private final static long C2 = 0x4cf5ad432745937fL;
+
+    private final static VarHandle LONG = MethodHandles.byteArrayViewVarHandle(
+            long[].class,
+            ByteOrder.LITTLE_ENDIAN
+    );
+
+    static Murmur3MessageDigest empty() {
+        return new Murmur3MessageDigest();
+    }
+
+    private Murmur3MessageDigest() {
+        super(ALGORITHM);
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return BLOCK;
+    }
+
+    @Override
+    protected void engineUpdate(final byte input) {
+        this.buffer[this.buffered++] = input;
+        if (BLOCK == this.buffered) {
+            this.block(this.buffer, 0);
+            this.buffered = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(final byte[] input,
+                                final int offset,
+                                final int length) {
+        int i = offset;
+        final int end = offset + length;
+
+        // fill a partially filled buffer first
+        if (this.buffered > 0) {
+            final int copy = Math.min(BLOCK - this.buffered, length);
+            System.arraycopy(input, i, this.buffer, this.buffered, copy);
+            this.buffered += copy;
+            i += copy;
+
+            if (BLOCK == this.buffered) {
+                this.block(this.buffer, 0);
+                this.buffered = 0;
+            }
+        }
+
+        while (end - i >= BLOCK) {
+            this.block(input, i);
+            i += BLOCK;
+        }
+
+        final int remaining = end - i;
+        if (remaining > 0) {
+            System.arraycopy(input, i, this.buffer, this.buffered, remaining);
+            this.buffered += remaining;
+        }
+    }
+
+    private void block(final byte[] input,
+                       final int offset) {
+        long k1 = (long) LONG.get(input, offset);
+        long k2 = (long) LONG.get(input, offset + 8);
+
+        long h1 = this.h1;
+        long h2 = this.h2;
+
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        this.h1 = h1;
+        this.h2 = h2;
+        this.length += BLOCK;
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        final byte[] buffer = this.buffer;
+        final int tail = this.buffered;
+
+        long h1 = this.h1;
+        long h2 = this.h2;
+
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = tail - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (buffer[i] & 0xff);
+        }
+        for (int i = Math.min(tail, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (buffer[i] & 0xff);
+        }
+        if (tail > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (tail > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        final long length = this.length + tail;
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        final byte[] digest = new byte[BLOCK];
+        LONG.set(digest, 0, h1);
+        LONG.set(digest, 8, h2);
+
+        this.engineReset();
+        return digest;
+    }
+
+    private static long mixK1(final long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(final long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix64(final long k) {
+        long h = k;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    protected void engineReset() {
+        this.h1 = 0;
+        this.h2 = 0;
+        this.length = 0;
+        this.buffered = 0;
+    }
+
+    private long h1;
+
+    private long h2;
+
+    /**
+     * The number of bytes in complete blocks.
+     */
+    private long length;
+
+    /**
+     * Bytes that have not yet filled a complete block.
+     */
+    private final byte[] buffer = new byte[BLOCK];
+
+    private int buffered;
+}
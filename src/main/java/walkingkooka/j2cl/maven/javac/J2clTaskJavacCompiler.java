@@ -26,10 +26,13 @@ import walkingkooka.j2cl.maven.J2clTaskDirectory;
 import walkingkooka.j2cl.maven.J2clTaskKind;
 import walkingkooka.j2cl.maven.J2clTaskResult;
 import walkingkooka.j2cl.maven.UniqueList;
+import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 
 import java.io.IOException;
+import java.nio.file.PathMatcher;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -62,37 +65,86 @@ abstract class J2clTaskJavacCompiler<C extends J2clMavenContext> implements J2cl
                                                      final J2clTaskDirectory directory,
                                                      final C context,
                                                      final TreeLogger logger) throws Exception {
+        return this.reuseClassFiles(artifact, directory, context, logger) ?
+                J2clTaskResult.SUCCESS :
+                this.compile(artifact, directory, context, logger);
+    }
+
+    private J2clTaskResult compile(final J2clArtifact artifact,
+                                   final J2clTaskDirectory directory,
+                                   final C context,
+                                   final TreeLogger logger) throws Exception {
         J2clTaskResult result;
 
         final boolean shouldRunAnnotationProcessors = this.shouldRunAnnotationProcessors();
+        final boolean shouldStripGwtIncompatible = this.shouldStripGwtIncompatible(context);
+        final Optional<Set<String>> changedCompilationUnits = this.isIncremental() ?
+                context.changedCompilationUnits(artifact) :
+                Optional.empty();
 
         final Set<J2clPath> javaSourceFiles = Sets.ordered();
         final List<J2clPath> classpath = UniqueList.empty();
 
-        for (final J2clPath source : this.sourceRoots(artifact, context, logger)) {
+        // javac reads files itself, so any written through the workspace must be persisted first.
+        final List<J2clPath> sourceRoots = this.sourceRoots(artifact, context, logger);
+        context.workspace()
+                .flush(sourceRoots);
+
+        for (final J2clPath source : sourceRoots) {
             // /Users/miroslav/repos-github/j2cl-maven-plugin/target/it-tests/junit-test-dependency-graph/test/src/test/java
             // /Users/miroslav/repos-github/j2cl-maven-plugin/target/it-tests/junit-test-dependency-graph/test/target/generated-test-sources/test-annotations
-            if (source.isGeneratedDirectory() || source.parent().isGeneratedDirectory()) {
+            final Optional<J2clPath> archive = source.archiveFile();
+            if (false == archive.isPresent() && (source.isGeneratedDirectory() || source.parent().isGeneratedDirectory())) {
                 continue;
             }
 
             if (source.exists().isPresent()) {
+                // files ignored by the stripper are not compiled when stripping here.
+                final Optional<PathMatcher> ignored = shouldStripGwtIncompatible ?
+                        source.ignoredFiles() :
+                        Optional.empty();
+
                 javaSourceFiles.addAll(
                         source.gatherFiles(
-                                (path) -> false == source.isSuperSource(path) && J2clPath.JAVA_FILES.test(path)
+                                (path) -> false == source.isSuperSource(path) &&
+                                        J2clPath.JAVA_FILES.test(path) &&
+                                        false == ignored.map(i -> i.matches(path)).orElse(false) &&
+                                        changedCompilationUnits.map(c -> c.contains(J2clPath.with(path).compilationUnit(source))).orElse(true)
                         )
                 );
 
                 // add source to classpath, might be useful as it may contain non java files that are needed by annotation processors.
                 if (shouldRunAnnotationProcessors) {
-                    classpath.add(source);
+                    classpath.add(
+                            archive.orElse(source)
+                    );
                 }
             }
         }
 
+        // the class files of the changed compilation units are replaced, all others are kept and are on the classpath.
+        if (changedCompilationUnits.isPresent()) {
+            final J2clPath output = this.compilerOutput(
+                    directory,
+                    artifact,
+                    context
+            );
+            logger.paths(
+                    "Removed file(s)",
+                    output.removeCompilationUnitFiles(changedCompilationUnits.get()),
+                    TreeFormat.TREE
+            );
+            classpath.add(output);
+        }
+
         if (javaSourceFiles.isEmpty()) {
-            logger.indentedLine("No files found");
-            result = J2clTaskResult.ABORTED;
+            if (changedCompilationUnits.isPresent()) {
+                logger.indentedLine("No changed files found");
+                result = J2clTaskResult.SUCCESS;
+            } else {
+                logger.indentedLine("No files found");
+                result = J2clTaskResult.ABORTED;
+            }
         } else {
 
             final List<J2clPath> bootstrap = UniqueList.empty();
@@ -102,8 +154,11 @@ abstract class J2clTaskJavacCompiler<C extends J2clMavenContext> implements J2cl
                     bootstrap,
                     classpath
             );
+            context.workspace()
+                    .flush(classpath);
 
             result = JavacCompiler.execute(
+                    context.javacCompilerService(),
                     bootstrap,
                     classpath,
                     javaSourceFiles,
@@ -114,6 +169,7 @@ abstract class J2clTaskJavacCompiler<C extends J2clMavenContext> implements J2cl
                     ),
                     context.javaCompilerArguments(),
                     shouldRunAnnotationProcessors,
+                    shouldStripGwtIncompatible,
                     logger
             ) ?
                     J2clTaskResult.SUCCESS :
@@ -131,6 +187,15 @@ abstract class J2clTaskJavacCompiler<C extends J2clMavenContext> implements J2cl
         return result;
     }
 
+    /**
+     * Gives the task a chance to reuse the class files of an earlier task rather than compiling, returning true if
+     * the class files were reused.
+     */
+    abstract boolean reuseClassFiles(final J2clArtifact artifact,
+                                     final J2clTaskDirectory directory,
+                                     final C context,
+                                     final TreeLogger logger) throws IOException;
+
     /**
      * Returns the source roots that will be given to javac.
      */
@@ -155,6 +220,11 @@ abstract class J2clTaskJavacCompiler<C extends J2clMavenContext> implements J2cl
      */
     abstract boolean shouldRunAnnotationProcessors();
 
+    /**
+     * Returns whether @GwtIncompatible should be stripped from the sources as they are compiled.
+     */
+    abstract boolean shouldStripGwtIncompatible(final C context);
+
     /**
      * Adds entries to either the bootstrap or classpath
      */
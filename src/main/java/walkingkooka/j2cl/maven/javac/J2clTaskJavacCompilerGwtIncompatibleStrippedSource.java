@@ -24,10 +24,13 @@ import walkingkooka.j2cl.maven.J2clPath;
 import walkingkooka.j2cl.maven.J2clTask;
 import walkingkooka.j2cl.maven.J2clTaskDirectory;
 import walkingkooka.j2cl.maven.J2clTaskKind;
+import walkingkooka.j2cl.maven.J2clTaskResult;
+import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Compiles the java source to the target {@link J2clTaskDirectory#output()}.
@@ -48,6 +51,52 @@ public final class J2clTaskJavacCompilerGwtIncompatibleStrippedSource<C extends
         super();
     }
 
+    /**
+     * When GWT_INCOMPATIBLE_STRIP_JAVA_SOURCE modified or ignored no file, or in single javac mode where
+     * JAVAC_ANNOTATION_PROCESSORS_ENABLED has already stripped its sources, the stripped source is the same as that
+     * compiled by JAVAC_ANNOTATION_PROCESSORS_ENABLED, so its class files are linked rather than compiling again.
+     * The class files built by the IDE in watch mode are never reused as they may have been compiled with other options.
+     */
+    @Override
+    boolean reuseClassFiles(final J2clArtifact artifact,
+                            final J2clTaskDirectory directory,
+                            final C context,
+                            final TreeLogger logger) throws IOException {
+        final J2clTaskDirectory compiled = artifact.taskDirectory(J2clTaskKind.JAVAC_ANNOTATION_PROCESSORS_ENABLED);
+
+        final boolean reuse = (context.isSingleJavac() ||
+                artifact.taskDirectory(J2clTaskKind.GWT_INCOMPATIBLE_STRIP_JAVA_SOURCE)
+                        .unchangedFile()
+                        .exists()
+                        .isPresent()) &&
+                compiled.result()
+                        .equals(Optional.of(J2clTaskResult.SUCCESS));
+        if (reuse) {
+            final J2clPath classFiles = compiled.output();
+
+            logger.line("Already stripped, reusing class files");
+            logger.indent();
+            {
+                logger.path("From", classFiles);
+                logger.paths(
+                        "Linked file(s)",
+                        this.compilerOutput(
+                                directory,
+                                artifact,
+                                context
+                        ).linkFiles(
+                                classFiles,
+                                classFiles.gatherFiles(J2clPath.CLASS_FILES)
+                        ),
+                        TreeFormat.TREE
+                );
+            }
+            logger.outdent();
+        }
+
+        return reuse;
+    }
+
     @Override
     List<J2clPath> sourceRoots(final J2clArtifact artifact,
                                final C context,
@@ -67,12 +116,30 @@ public final class J2clTaskJavacCompilerGwtIncompatibleStrippedSource<C extends
         );
     }
 
+    /**
+     * The output of the previous build is kept when only the changed compilation units are compiled.
+     */
     @Override
     J2clPath compilerOutput(final J2clTaskDirectory directory,
                             final J2clArtifact artifact,
                             final C context) throws IOException {
-        return directory.output()
-                .absentOrFail();
+        final J2clPath output = directory.output();
+        return context.changedCompilationUnits(artifact).isPresent() ?
+                output.createIfNecessary() :
+                output.absentOrFail();
+    }
+
+    /**
+     * Only the changed compilation units are compiled again.
+     */
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
+    @Override
+    boolean shouldStripGwtIncompatible(final C context) {
+        return false; // already stripped by GWT_INCOMPATIBLE_STRIP_JAVA_SOURCE
     }
 
     @Override
@@ -51,6 +51,14 @@ public final class J2clTaskJavacCompilerUnpackedSource<C extends J2clMavenContex
         super();
     }
 
+    @Override
+    boolean reuseClassFiles(final J2clArtifact artifact,
+                            final J2clTaskDirectory directory,
+                            final C context,
+                            final TreeLogger logger) {
+        return false;
+    }
+
     @Override
     List<J2clPath> sourceRoots(final J2clArtifact artifact,
                                final C context,
@@ -79,6 +87,14 @@ public final class J2clTaskJavacCompilerUnpackedSource<C extends J2clMavenContex
         return true;
     }
 
+    /**
+     * In single javac mode this is the only javac, so it also strips @GwtIncompatible.
+     */
+    @Override
+    boolean shouldStripGwtIncompatible(final C context) {
+        return context.isSingleJavac();
+    }
+
     /**
      * Always add the dependency jar file.
      */
@@ -19,7 +19,6 @@ package walkingkooka.j2cl.maven.javac;
 
 import walkingkooka.NeverError;
 import walkingkooka.collect.list.Lists;
-import walkingkooka.j2cl.maven.J2clException;
 import walkingkooka.j2cl.maven.J2clPath;
 import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
@@ -30,8 +29,8 @@ import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
-import javax.tools.ToolProvider;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -45,12 +44,14 @@ import java.util.stream.Collectors;
  */
 final class JavacCompiler {
 
-    static boolean execute(final List<J2clPath> bootstrap,
+    static boolean execute(final JavacCompilerService service,
+                           final List<J2clPath> bootstrap,
                            final List<J2clPath> classpath,
                            final Set<J2clPath> newSourceFiles, // files being compiled
                            final J2clPath newClassFilesOutput,
                            final Set<String> javaCompilerArguments,
                            final boolean runAnnotationProcessors,
+                           final boolean stripGwtIncompatible,
                            final TreeLogger logger) throws Exception {
         if (bootstrap.isEmpty()) {
             throw new IllegalArgumentException("bootstrap must not be empty");
@@ -83,6 +84,7 @@ final class JavacCompiler {
                     logger.paths("New java file(s)", newSourceFiles, TreeFormat.TREE); // order should not be important so tree
                     logger.path("Output", newClassFilesOutput);
                     logger.strings("Option(s)", options);
+                    logger.line("Strip @GwtIncompatible: " + stripGwtIncompatible);
                 }
                 logger.outdent();
             }
@@ -91,15 +93,22 @@ final class JavacCompiler {
             logger.emptyLine();
             logger.indent();
             {
-                final JavaCompiler compiler = javaCompiler();
-                final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+                final List<J2clPath> entries = Lists.array();
+                entries.addAll(bootstrap);
+                entries.addAll(classpath);
+
+                final JavacCompilerFileManager pooled = service.acquire(entries);
+                final JavaCompiler compiler = pooled.compiler();
+                final StandardJavaFileManager fileManager = pooled.fileManager();
                 fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.emptyList()); // Location to search for existing source files.
                 fileManager.setLocation(StandardLocation.CLASS_PATH, J2clPath.toFiles(classpath)); /// Location to search for user class files.
                 fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(newClassFilesOutput.file())); /// Location of new class files
 
                 try (final Writer output = output(logger)) {
-                    success = compiler.getTask(output,
-                                    fileManager,
+                    final JavaCompiler.CompilationTask task = compiler.getTask(output,
+                                    stripGwtIncompatible ?
+                                            JavacCompilerGwtIncompatibleStripFileManager.with(fileManager) :
+                                            fileManager,
                                     diagnostic -> {
                                         final Diagnostic.Kind kind = diagnostic.getKind();
 
@@ -144,10 +153,19 @@ final class JavacCompiler {
                                     },
                                     options,
                                     null,
-                                    fileManager.getJavaFileObjectsFromFiles(J2clPath.toFiles(newSourceFiles)))
-                            .call();
+                                    javaFileObjects(
+                                            fileManager,
+                                            newSourceFiles,
+                                            stripGwtIncompatible
+                                    )
+                            );
+
+                    success = task.call();
                     logger.endOfList();
+                } finally {
+                    service.release(pooled);
                 }
+                logger.line("Javac file manager " + pooled);
             }
             logger.outdent();
         }
@@ -156,14 +174,31 @@ final class JavacCompiler {
     }
 
     /**
-     * Returns the {@link JavaCompiler} and includes a hacked attempt to locate the javacompiler for OSX or fails.
+     * Returns the {@link JavaFileObject} for each source file, which are wrapped to strip @GwtIncompatible if requested.
      */
-    private static JavaCompiler javaCompiler() {
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        if (null == compiler) {
-            throw new J2clException("JavaCompiler missing, require JDK not JRE.");
+    private static List<JavaFileObject> javaFileObjects(final StandardJavaFileManager fileManager,
+                                                        final Collection<J2clPath> files,
+                                                        final boolean stripGwtIncompatible) {
+        final List<JavaFileObject> javaFileObjects = Lists.array();
+
+        for (final JavaFileObject file : fileManager.getJavaFileObjectsFromPaths(toPaths(files))) {
+            javaFileObjects.add(
+                    stripGwtIncompatible ?
+                            JavacCompilerGwtIncompatibleStripJavaFileObject.with(file) :
+                            file
+            );
         }
-        return compiler;
+
+        return javaFileObjects;
+    }
+
+    /**
+     * Source files may be within archives mounted as zip file systems, which have no {@link java.io.File}.
+     */
+    private static List<Path> toPaths(final Collection<J2clPath> files) {
+        return files.stream()
+                .map(J2clPath::path)
+                .collect(Collectors.toList());
     }
 
     private static String toClasspathStringList(final Collection<J2clPath> entries) {
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.javac;
+
+import walkingkooka.collect.map.Maps;
+import walkingkooka.j2cl.maven.J2clPath;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A {@link StandardJavaFileManager} pooled by {@link JavacCompilerService}, along with a fingerprint of each bootstrap
+ * and classpath entry used by its compiles. The file manager keeps the archives it opened and remembers entries that were
+ * missing, so it may only be reused while none of those entries has changed.
+ */
+final class JavacCompilerFileManager {
+
+    static JavacCompilerFileManager with(final JavaCompiler compiler) {
+        return new JavacCompilerFileManager(
+                compiler,
+                compiler.getStandardFileManager(null, null, null)
+        );
+    }
+
+    private JavacCompilerFileManager(final JavaCompiler compiler,
+                                     final StandardJavaFileManager fileManager) {
+        super();
+        this.compiler = compiler;
+        this.fileManager = fileManager;
+    }
+
+    JavaCompiler compiler() {
+        return this.compiler;
+    }
+
+    private final JavaCompiler compiler;
+
+    StandardJavaFileManager fileManager() {
+        return this.fileManager;
+    }
+
+    private final StandardJavaFileManager fileManager;
+
+    /**
+     * Computes the fingerprint of each of the given bootstrap and classpath entries.
+     */
+    static Map<J2clPath, String> fingerprints(final Collection<J2clPath> entries) throws IOException {
+        final Map<J2clPath, String> fingerprints = Maps.sorted();
+
+        for (final J2clPath entry : entries) {
+            fingerprints.put(
+                    entry,
+                    fingerprint(entry)
+            );
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * Archives are identified by their size and last modified time, directories are listed again by each compile so
+     * only their existence matters.
+     */
+    private static String fingerprint(final J2clPath entry) throws IOException {
+        final Path path = entry.path();
+
+        final String fingerprint;
+        if (Files.isDirectory(path)) {
+            fingerprint = "directory";
+        } else if (Files.isRegularFile(path)) {
+            fingerprint = Files.size(path) + " " + Files.getLastModifiedTime(path);
+        } else {
+            fingerprint = "missing";
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Tests if any of the entries with the given fingerprints was used by an earlier compile and has since changed,
+     * such as an archive that was replaced or a directory that was missing.
+     */
+    boolean isStale(final Map<J2clPath, String> fingerprints) {
+        boolean stale = false;
+
+        for (final Entry<J2clPath, String> entryAndFingerprint : fingerprints.entrySet()) {
+            final String previous = this.fingerprints.get(entryAndFingerprint.getKey());
+            if (null != previous && false == previous.equals(entryAndFingerprint.getValue())) {
+                stale = true;
+                break;
+            }
+        }
+
+        return stale;
+    }
+
+    /**
+     * Records the fingerprints of the entries used by a compile.
+     */
+    void used(final Map<J2clPath, String> fingerprints) {
+        this.fingerprints.putAll(fingerprints);
+        this.compiles++;
+    }
+
+    /**
+     * The fingerprint of every entry used by a compile of this file manager.
+     */
+    private final Map<J2clPath, String> fingerprints = Maps.sorted();
+
+    /**
+     * The number of compiles that have used this file manager.
+     */
+    private int compiles;
+
+    /**
+     * Forgets any source file content read during the compile.
+     */
+    void flush() {
+        this.fileManager.flush();
+    }
+
+    void close() throws IOException {
+        this.fileManager.close();
+    }
+
+    @Override
+    public String toString() {
+        return this.fingerprints.size() + " classpath entr(ies) " + this.compiles + " compile(s)";
+    }
+}
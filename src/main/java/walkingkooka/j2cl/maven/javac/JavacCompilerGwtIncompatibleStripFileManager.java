@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.javac;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.IOException;
+
+/**
+ * A {@link JavaFileManager} that strips @GwtIncompatible from the sources written by annotation processors when javac
+ * reads them back, so they are compiled stripped in the same round. The wrapped {@link StandardJavaFileManager} is
+ * pooled and must not be closed by this.
+ */
+final class JavacCompilerGwtIncompatibleStripFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    static JavacCompilerGwtIncompatibleStripFileManager with(final StandardJavaFileManager fileManager) {
+        return new JavacCompilerGwtIncompatibleStripFileManager(fileManager);
+    }
+
+    private JavacCompilerGwtIncompatibleStripFileManager(final StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(final Location location,
+                                               final String className,
+                                               final JavaFileObject.Kind kind,
+                                               final FileObject sibling) throws IOException {
+        final JavaFileObject file = super.getJavaFileForOutput(
+                location,
+                className,
+                kind,
+                sibling
+        );
+        return JavaFileObject.Kind.SOURCE == kind ?
+                JavacCompilerGwtIncompatibleStripJavaFileObject.with(file) :
+                file;
+    }
+
+    @Override
+    public String toString() {
+        return this.fileManager.toString();
+    }
+}
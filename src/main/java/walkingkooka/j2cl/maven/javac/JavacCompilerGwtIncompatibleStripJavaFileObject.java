@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.javac;
+
+import com.google.j2cl.tools.gwtincompatible.GwtIncompatibleStripper;
+import javaemul.internal.annotations.GwtIncompatible;
+
+import javax.tools.ForwardingJavaFileObject;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+
+/**
+ * A {@link JavaFileObject} that strips classes and members annotated with @GwtIncompatible from its source as javac
+ * reads it, leaving the file itself unmodified.
+ */
+final class JavacCompilerGwtIncompatibleStripJavaFileObject extends ForwardingJavaFileObject<JavaFileObject> {
+
+    static JavacCompilerGwtIncompatibleStripJavaFileObject with(final JavaFileObject file) {
+        return new JavacCompilerGwtIncompatibleStripJavaFileObject(file);
+    }
+
+    private JavacCompilerGwtIncompatibleStripJavaFileObject(final JavaFileObject file) {
+        super(file);
+    }
+
+    @Override
+    public CharSequence getCharContent(final boolean ignoreEncodingErrors) throws IOException {
+        return GwtIncompatibleStripper.processFile(
+                super.getCharContent(ignoreEncodingErrors).toString(),
+                ANNOTATION
+        );
+    }
+
+    private final static String ANNOTATION = GwtIncompatible.class.getSimpleName();
+
+    @Override
+    public String toString() {
+        return this.fileObject.toString();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.javac;
+
+import walkingkooka.j2cl.maven.J2clException;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A javac service shared by all compiles of a build. The {@link JavaCompiler} is located once, and file managers are
+ * pooled and reused by later compiles. Each file manager keeps the archives of the bootstrap and classpath it has
+ * opened along with their package index, so a compile on a reused file manager only opens archives it has not seen.
+ * A file manager is replaced rather than reused when an entry it has seen changed.
+ * A file manager is used by a single compile at a time, the pool grows to the number of concurrent compiles.
+ */
+public final class JavacCompilerService {
+
+    public static JavacCompilerService empty() {
+        return new JavacCompilerService();
+    }
+
+    private JavacCompilerService() {
+        super();
+    }
+
+    /**
+     * Takes an idle file manager from the pool or creates a new one, for a compile with the given bootstrap and classpath
+     * entries. An idle file manager that has seen any of the entries before they changed is closed and replaced.
+     */
+    JavacCompilerFileManager acquire(final Collection<J2clPath> entries) throws IOException {
+        final Map<J2clPath, String> fingerprints = JavacCompilerFileManager.fingerprints(entries);
+
+        JavacCompilerFileManager fileManager = this.idle.pollFirst();
+        if (null != fileManager && fileManager.isStale(fingerprints)) {
+            fileManager.close();
+            fileManager = null;
+            this.replaced.incrementAndGet();
+        }
+
+        if (null == fileManager) {
+            fileManager = JavacCompilerFileManager.with(
+                    this.javaCompiler()
+            );
+        } else {
+            this.reused.incrementAndGet();
+        }
+
+        fileManager.used(fingerprints);
+        this.compiles.incrementAndGet();
+
+        return fileManager;
+    }
+
+    /**
+     * Returns a file manager to the pool after a compile.
+     */
+    void release(final JavacCompilerFileManager fileManager) {
+        fileManager.flush();
+        this.idle.addFirst(fileManager);
+    }
+
+    /**
+     * Closes all pooled file managers and logs how often they were reused, the service may be used again by a later build.
+     */
+    public void close(final MavenLogger logger) {
+        final int compiles = this.compiles.getAndSet(0);
+        final int reused = this.reused.getAndSet(0);
+        final int replaced = this.replaced.getAndSet(0);
+
+        for (; ; ) {
+            final JavacCompilerFileManager fileManager = this.idle.pollFirst();
+            if (null == fileManager) {
+                break;
+            }
+            try {
+                fileManager.close();
+            } catch (final IOException cause) {
+                logger.warn("Failed to close javac file manager: " + cause.getMessage());
+            }
+        }
+
+        if (compiles > 0) {
+            logger.info("Javac " + compiles + " compile(s) reused " + reused + " file manager(s), " + replaced + " replaced because a classpath entry changed");
+        }
+    }
+
+    /**
+     * Returns the {@link JavaCompiler} and includes a hacked attempt to locate the javacompiler for OSX or fails.
+     */
+    private JavaCompiler javaCompiler() {
+        JavaCompiler compiler = this.compiler;
+        if (null == compiler) {
+            compiler = ToolProvider.getSystemJavaCompiler();
+            if (null == compiler) {
+                throw new J2clException("JavaCompiler missing, require JDK not JRE.");
+            }
+            this.compiler = compiler;
+        }
+        return compiler;
+    }
+
+    private volatile JavaCompiler compiler;
+
+    private final Deque<JavacCompilerFileManager> idle = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger compiles = new AtomicInteger();
+
+    private final AtomicInteger reused = new AtomicInteger();
+
+    private final AtomicInteger replaced = new AtomicInteger();
+
+    @Override
+    public String toString() {
+        return this.idle.size() + " idle file manager(s)";
+    }
+}
@@ -25,6 +25,7 @@ import walkingkooka.j2cl.maven.J2clTask;
 import walkingkooka.j2cl.maven.J2clTaskDirectory;
 import walkingkooka.j2cl.maven.J2clTaskKind;
 import walkingkooka.j2cl.maven.J2clTaskResult;
+import walkingkooka.j2cl.maven.J2clWorkspace;
 import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.reflect.PackageName;
@@ -115,7 +116,9 @@ abstract class J2clTaskShade<C extends J2clMavenContext> implements J2clTask<C>
         final BiFunction<byte[], J2clPath, byte[]> contentShader = (content, path) -> shade(content, shade);
         final Predicate<Path> filter = this.fileExtensionFilter();
 
-        final Set<J2clPath> files = root.gatherFiles(J2clPath.ALL_FILES.and(filter));
+        // the root may have been written by the previous task and still be in the workspace.
+        final J2clWorkspace workspace = context.workspace();
+        final Set<J2clPath> files = workspace.gatherFiles(root, filter);
 
         final Set<J2clPath> possibleFiles = SortedSets.tree();
         possibleFiles.addAll(files);
@@ -149,9 +152,10 @@ abstract class J2clTaskShade<C extends J2clMavenContext> implements J2clTask<C>
                 logger.indent();
                 {
                     // copy and shade java source and copy other files to output.
-                    shadeDirectory.copyFiles(
+                    workspace.copyFiles(
                             shadedRoot,
                             shadedFiles,
+                            shadeDirectory,
                             contentShader
                     );
 
@@ -171,9 +175,10 @@ abstract class J2clTaskShade<C extends J2clMavenContext> implements J2clTask<C>
         logger.indent();
         {
             // copy all other files verbatim.
-            output.copyFiles(
+            workspace.copyFiles(
                     root,
                     nonShadedFiles,
+                    output,
                     contentShader
             );
 
@@ -23,6 +23,7 @@ import walkingkooka.j2cl.maven.J2clMavenContext;
 import walkingkooka.j2cl.maven.J2clPath;
 import walkingkooka.j2cl.maven.J2clTask;
 import walkingkooka.j2cl.maven.J2clTaskKind;
+import walkingkooka.j2cl.maven.J2clWorkspace;
 import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.javashader.JavaShaders;
@@ -95,22 +96,28 @@ public final class J2clTaskShadeJavaSource<C extends J2clMavenContext> extends J
         copyJavascriptFiles(
                 sourceCopy,
                 output,
+                context.workspace(),
                 logger
         );
     }
 
     private static void copyJavascriptFiles(final List<J2clPath> sourceRoots,
                                             final J2clPath output,
+                                            final J2clWorkspace workspace,
                                             final TreeLogger logger) throws IOException {
         logger.line("Copying *.js");
         logger.indent();
         {
             for (final J2clPath sourceRoot : sourceRoots) {
-                final Set<J2clPath> fromFiles = sourceRoot.gatherFiles(J2clPath.JAVASCRIPT_FILES);
+                final Set<J2clPath> fromFiles = workspace.gatherFiles(
+                        sourceRoot,
+                        J2clPath.JAVASCRIPT_FILEEXTENSION
+                );
 
-                output.copyFiles(
+                workspace.copyFiles(
                         sourceRoot,
                         fromFiles,
+                        output,
                         J2clPath.COPY_FILE_CONTENT_VERBATIM
                 );
 
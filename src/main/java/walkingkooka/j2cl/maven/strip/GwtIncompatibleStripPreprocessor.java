@@ -17,21 +17,21 @@
 
 package walkingkooka.j2cl.maven.strip;
 
-import com.google.j2cl.common.OutputUtils;
-import com.google.j2cl.common.Problems;
-import com.google.j2cl.common.SourceUtils.FileInfo;
 import com.google.j2cl.tools.gwtincompatible.GwtIncompatibleStripper;
 import javaemul.internal.annotations.GwtIncompatible;
 import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
 import walkingkooka.collect.set.Sets;
 import walkingkooka.collect.set.SortedSets;
 import walkingkooka.j2cl.maven.J2clPath;
 import walkingkooka.j2cl.maven.J2clTaskResult;
+import walkingkooka.j2cl.maven.J2clWorkspace;
 import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.text.CharSequences;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -40,39 +40,73 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Accepts a directory and removes any files marked with @GwtIncompatible.
  * Support is included to load an ignore file and skip copying those files only for that directory.
+ * <br>
+ * Each java file is read once and stripped in memory, the result is written through the {@link J2clWorkspace} so the
+ * following tasks may read it before it has been persisted.
  */
 final class GwtIncompatibleStripPreprocessor {
 
+    /**
+     * Strips the java files under the source roots into the output. When no file was modified or ignored the
+     * unchanged file is created, noting the output is the same as the sources. When changed compilation units are
+     * present only their files are stripped, the output of all others is kept.
+     */
     static J2clTaskResult execute(final List<J2clPath> sourceRoots,
                                   final J2clPath output,
+                                  final J2clPath unchangedFile,
+                                  final Optional<Set<String>> changedCompilationUnits,
+                                  final J2clWorkspace workspace,
                                   final TreeLogger logger) throws IOException {
         output.exists()
                 .orElseThrow(() -> new IllegalArgumentException("Output not a directory or does not exist: " + CharSequences.quote(output.toString())));
 
         J2clTaskResult result;
 
-        // FileInfo must have the source path otherwise stripper will write files to the wrong place.
-        final List<FileInfo> javaFiles = prepareJavaFiles(sourceRoots, output, logger);
+        final List<J2clPath> ignored = Lists.array();
+        final Map<J2clPath, J2clPath> javaFiles = prepareJavaFiles(sourceRoots, output, ignored, logger);
 
         final int javaFileCount = javaFiles.size();
 
         if (javaFileCount > 0) {
-            result = processStripAnnotationsFiles(javaFiles, output, logger);
+            if (changedCompilationUnits.isPresent()) {
+                retainChangedFiles(
+                        javaFiles,
+                        output,
+                        changedCompilationUnits.get(),
+                        logger
+                );
+            }
+
+            final Set<J2clPath> modified = SortedSets.tree();
+
+            result = processStripAnnotationsFiles(javaFiles, output, modified, workspace, logger);
+
+            if (J2clTaskResult.SUCCESS == result) {
+                logger.paths("Ignored file(s)", ignored, TreeFormat.TREE);
+                logger.paths("Modified file(s)", modified, TreeFormat.TREE);
+
+                // the output of unchanged compilation units was kept, so whether they were modified is not known
+                if (false == changedCompilationUnits.isPresent() && ignored.isEmpty() && modified.isEmpty()) {
+                    logger.indentedLine("No files modified or ignored");
+                    Files.createFile(unchangedFile.path());
+                }
+            }
 
-            copyJavascriptFiles(sourceRoots, output, logger);
+            copyJavascriptFiles(sourceRoots, output, workspace, logger);
             logger.paths(
                     "Output file(s)",
-                    output.gatherFiles(J2clPath.ALL_FILES),
+                    workspace.gatherFiles(output, (p) -> true),
                     TreeFormat.TREE
             );
 
@@ -85,10 +119,14 @@ final class GwtIncompatibleStripPreprocessor {
         return result;
     }
 
-    private static List<FileInfo> prepareJavaFiles(final List<J2clPath> sourceRoots,
-                                                   final J2clPath output,
-                                                   final TreeLogger logger) throws IOException {
-        final List<FileInfo> javaFiles = Lists.array();
+    /**
+     * Returns each java file under the source roots along with the file it will be stripped into.
+     */
+    private static Map<J2clPath, J2clPath> prepareJavaFiles(final List<J2clPath> sourceRoots,
+                                                            final J2clPath output,
+                                                            final List<J2clPath> ignored,
+                                                            final TreeLogger logger) throws IOException {
+        final Map<J2clPath, J2clPath> javaFiles = Maps.ordered();
 
         final boolean debugEnabled = logger.isDebugEnabled();
 
@@ -102,29 +140,26 @@ final class GwtIncompatibleStripPreprocessor {
                 {
                     final Set<J2clPath> fromFiles = gatherFiles(
                             sourceRoot,
-                            J2clPath.JAVA_FILES
+                            J2clPath.JAVA_FILES,
+                            ignored
                     );
 
-                    // find then copy from unpack to $output
-                    final Collection<J2clPath> files = output.copyFiles(
-                            sourceRoot,
-                            fromFiles,
-                            J2clPath.COPY_FILE_CONTENT_VERBATIM
-                    );
+                    final Path sourceRootPath = sourceRoot.path();
+                    for (final J2clPath file : fromFiles) {
+                        javaFiles.put(
+                                file,
+                                output.append(
+                                        sourceRootPath.relativize(file.path())
+                                                .toString()
+                                )
+                        );
+                    }
 
                     logger.paths(
                             "",
                             fromFiles,
                             TreeFormat.TREE
                     );
-
-                    // necessary to prepare FileInfo with correct sourceRoot otherwise stripped files will be written back to the wrong place.
-                    javaFiles.addAll(
-                            toFileInfos(
-                                    files,
-                                    output
-                            )
-                    );
                 }
             }
         }
@@ -135,49 +170,75 @@ final class GwtIncompatibleStripPreprocessor {
         return javaFiles;
     }
 
-    private static List<FileInfo> toFileInfos(final Collection<J2clPath> files,
-                                              final J2clPath base) {
-        return files.stream()
-                .map(p -> p.toFileInfo(base))
-                .collect(Collectors.toList());
+    /**
+     * Removes the output of the changed compilation units and the java files of all other compilation units, leaving
+     * only those to be stripped again.
+     */
+    private static void retainChangedFiles(final Map<J2clPath, J2clPath> javaFiles,
+                                           final J2clPath output,
+                                           final Set<String> changedCompilationUnits,
+                                           final TreeLogger logger) throws IOException {
+        logger.paths(
+                "Removed file(s)",
+                output.removeCompilationUnitFiles(changedCompilationUnits),
+                TreeFormat.TREE
+        );
+
+        javaFiles.values()
+                .removeIf(f -> false == changedCompilationUnits.contains(f.compilationUnit(output)));
     }
 
     /**
-     * Invokes the java preprocesor which use annotations to discover classes, methods and fields to remove from the actual source files.
-     * Because the source files are modified a previous task will have taken copied and place them in this output ready for modification if necessary.
+     * Invokes the java preprocesor which use annotations to discover classes, methods and fields to remove from the
+     * source of each file, writing the result to its target and adding those that changed to modified.
      * Errors will also be logged.
      */
-    private static J2clTaskResult processStripAnnotationsFiles(final List<FileInfo> javaFilesInput,
+    private static J2clTaskResult processStripAnnotationsFiles(final Map<J2clPath, J2clPath> javaFiles,
                                                                final J2clPath output,
-                                                               final TreeLogger logger) {
+                                                               final Set<J2clPath> modified,
+                                                               final J2clWorkspace workspace,
+                                                               final TreeLogger logger) throws IOException {
         J2clTaskResult result;
 
         logger.line("GwtIncompatibleStripper");
         {
             logger.indent();
             {
-                logger.fileInfos("Source(s)", javaFilesInput, TreeFormat.TREE);
+                logger.paths("Source(s)", javaFiles.keySet(), TreeFormat.TREE);
                 logger.path("Output", output);
 
-                final Problems problems = new Problems();
-
-                try (final OutputUtils.Output outputOutput = OutputUtils.initOutput(
-                        output.path(),
-                        problems
-                )) {
-                    GwtIncompatibleStripper.preprocessFiles(
-                            javaFilesInput,
-                            outputOutput,
-                            problems,
-                            GwtIncompatible.class.getSimpleName()
+                final List<String> errors = Lists.array();
+
+                for (final Entry<J2clPath, J2clPath> sourceAndTarget : javaFiles.entrySet()) {
+                    final J2clPath source = sourceAndTarget.getKey();
+
+                    final byte[] content = workspace.read(source);
+                    final String text = new String(content, StandardCharsets.UTF_8);
+                    final String stripped;
+                    try {
+                        stripped = GwtIncompatibleStripper.processFile(
+                                text,
+                                ANNOTATION
+                        );
+                    } catch (final RuntimeException cause) {
+                        errors.add(source + ": " + cause.getMessage());
+                        continue;
+                    }
+
+                    final boolean unchanged = text.equals(stripped);
+                    if (false == unchanged) {
+                        modified.add(source);
+                    }
+
+                    workspace.write(
+                            sourceAndTarget.getValue(),
+                            unchanged ?
+                                    content :
+                                    stripped.getBytes(StandardCharsets.UTF_8)
                     );
                 }
 
-                logger.strings("Message(s)", problems.getMessages());
-
-                final List<String> errors = problems.getErrors();
                 logger.strings("Error(s)", errors);
-                logger.strings("Warning(s)", problems.getWarnings());
 
                 result = errors.isEmpty() ?
                         J2clTaskResult.SUCCESS :
@@ -189,20 +250,25 @@ final class GwtIncompatibleStripPreprocessor {
         return result;
     }
 
+    private final static String ANNOTATION = GwtIncompatible.class.getSimpleName();
+
     private static void copyJavascriptFiles(final List<J2clPath> sourceRoots,
                                             final J2clPath output,
+                                            final J2clWorkspace workspace,
                                             final TreeLogger logger) throws IOException {
         logger.line("Copy *.js from source root(s) to output");
 
         for (final J2clPath sourceRoot : sourceRoots) {
             final Set<J2clPath> copy = gatherFiles(
                     sourceRoot,
-                    J2clPath.JAVASCRIPT_FILES
+                    J2clPath.JAVASCRIPT_FILES,
+                    Lists.array() // ignored javascript files are not compiled by javac.
             );
 
-            output.copyFiles(
+            workspace.copyFiles(
                     sourceRoot,
                     copy,
+                    output,
                     J2clPath.COPY_FILE_CONTENT_VERBATIM
             );
 
@@ -216,18 +282,26 @@ final class GwtIncompatibleStripPreprocessor {
 
     /**
      * Finds all files under the root that match the given {@link BiPredicate} collecting their paths into a {@link SortedSet}.
-     * and honours any ignore files if any found.
+     * and honours any ignore files if any found, adding the ignored files to the given {@link Collection}.
      */
     private static Set<J2clPath> gatherFiles(final J2clPath root,
-                                             final Predicate<Path> include) throws IOException {
+                                             final Predicate<Path> include,
+                                             final Collection<J2clPath> ignored) throws IOException {
 
         return root.exists().isPresent() ?
-                gatherFiles0(root, include) :
+                gatherFiles0(
+                        root,
+                        root.archiveFile().isPresent() ?
+                                include.and(J2clPath.WITHOUT_META_INF) :
+                                include,
+                        ignored
+                ) :
                 Sets.empty();
     }
 
     private static Set<J2clPath> gatherFiles0(final J2clPath root,
-                                              final Predicate<Path> include) throws IOException {
+                                              final Predicate<Path> include,
+                                              final Collection<J2clPath> ignored) throws IOException {
         final SortedSet<J2clPath> files = SortedSets.tree();
 
         Files.walkFileTree(
@@ -259,10 +333,12 @@ final class GwtIncompatibleStripPreprocessor {
                     @Override
                     public FileVisitResult visitFile(final Path file,
                                                      final BasicFileAttributes attributes) {
-                        final PathMatcher ignore = this.ignore;
-                        if (null == ignore || false == ignore.matches(file)) {
-                            if (include.test(file)) {
+                        if (include.test(file)) {
+                            final PathMatcher ignore = this.ignore;
+                            if (null == ignore || false == ignore.matches(file)) {
                                 files.add(J2clPath.with(file));
+                            } else {
+                                ignored.add(J2clPath.with(file));
                             }
                         }
 
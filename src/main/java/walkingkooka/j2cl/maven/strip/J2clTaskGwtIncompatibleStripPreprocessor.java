@@ -28,6 +28,8 @@ import walkingkooka.j2cl.maven.J2clTaskResult;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Compiles the java source to the target {@link J2clTaskDirectory#output()}.
@@ -75,10 +77,26 @@ public final class J2clTaskGwtIncompatibleStripPreprocessor<C extends J2clMavenC
                 context.sources(artifact)
         );
 
+        final Optional<Set<String>> changedCompilationUnits = context.changedCompilationUnits(artifact);
+        final J2clPath output = directory.output();
+
         return GwtIncompatibleStripPreprocessor.execute(
                 stripSource,
-                directory.output().absentOrFail(),
+                changedCompilationUnits.isPresent() ?
+                        output.createIfNecessary() :
+                        output.absentOrFail(),
+                directory.unchangedFile(),
+                changedCompilationUnits,
+                context.workspace(),
                 logger
         );
     }
+
+    /**
+     * Only the changed compilation units are stripped again.
+     */
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
 }
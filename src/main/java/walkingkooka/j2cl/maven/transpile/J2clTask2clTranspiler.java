@@ -18,17 +18,27 @@
 package walkingkooka.j2cl.maven.transpile;
 
 import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.SortedSets;
 import walkingkooka.j2cl.maven.J2clArtifact;
+import walkingkooka.j2cl.maven.J2clClassDependencyGraph;
 import walkingkooka.j2cl.maven.J2clMavenContext;
 import walkingkooka.j2cl.maven.J2clPath;
 import walkingkooka.j2cl.maven.J2clTask;
 import walkingkooka.j2cl.maven.J2clTaskDirectory;
 import walkingkooka.j2cl.maven.J2clTaskKind;
 import walkingkooka.j2cl.maven.J2clTaskResult;
+import walkingkooka.j2cl.maven.J2clWorkspace;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Transpiles the stripped source into javascript equivalents.
@@ -70,16 +80,175 @@ public final class J2clTask2clTranspiler<C extends J2clMavenContext> implements
         );
         final List<J2clPath> classpath = this.classpath(artifact);
 
-        return J2clTranspiler.execute(
+        final Optional<Set<String>> changedCompilationUnits = context.changedCompilationUnits(artifact);
+        final J2clPath output = directory.output();
+        final J2clWorkspace workspace = context.workspace();
+
+        final Optional<Set<String>> compilationUnits;
+        final Map<String, String> cached = Maps.sorted();
+        final Map<String, String> transpiled = Maps.sorted();
+        J2clTranspilerUnitCache cache = null;
+
+        // the javascript of the changed compilation units is replaced, the class files of all others are on the classpath.
+        if (changedCompilationUnits.isPresent()) {
+            output.createIfNecessary();
+
+            logger.paths(
+                    "Removed file(s)",
+                    output.removeCompilationUnitFiles(changedCompilationUnits.get()),
+                    TreeFormat.TREE
+            );
+            classFiles(artifact)
+                    .ifPresent(classpath::add);
+
+            compilationUnits = changedCompilationUnits;
+        } else {
+            output.absentOrFail();
+
+            final Optional<J2clPath> classFiles = classFiles(artifact);
+            if (classFiles.isPresent()) {
+                workspace.flush(classFiles.get());
+
+                final HashAlgorithm algorithm = context.hashAlgorithm();
+                cache = J2clTranspilerUnitCache.with(
+                        context.cache()
+                                .append(J2clTranspilerUnitCache.DIRECTORY),
+                        J2clClassDependencyGraph.build(
+                                classFiles.get(),
+                                algorithm
+                        ),
+                        context.dependenciesAbiDigest(artifact),
+                        algorithm
+                );
+
+                compilationUnits = Optional.of(
+                        findCachedCompilationUnits(
+                                sourceRoots,
+                                cache,
+                                workspace,
+                                cached,
+                                transpiled
+                        )
+                );
+
+                // the class files of compilation units that are not transpiled again are required by those that are.
+                if (false == cached.isEmpty()) {
+                    classpath.add(classFiles.get());
+                }
+            } else {
+                compilationUnits = Optional.empty();
+            }
+        }
+
+        // the transpiler reads files itself, so any written through the workspace must be persisted first.
+        workspace.flush(sourceRoots);
+        workspace.flush(classpath);
+
+        final int reused = context.transpilerService()
+                .open(
+                        archives(
+                                classpath,
+                                context
+                        )
+                );
+
+        final boolean success = J2clTranspiler.execute(
                 classpath,
                 sourceRoots,
-                directory.output().absentOrFail(),
+                compilationUnits,
+                output,
                 logger
-        ) ?
+        );
+        logger.line("Transpiler service " + context.transpilerService() + " reused " + reused + " archive(s)");
+
+        if (success && null != cache) {
+            for (final Entry<String, String> unitAndKey : cached.entrySet()) {
+                cache.restore(
+                        unitAndKey.getValue(),
+                        output
+                );
+            }
+            for (final Entry<String, String> unitAndKey : transpiled.entrySet()) {
+                cache.save(
+                        unitAndKey.getKey(),
+                        unitAndKey.getValue(),
+                        output
+                );
+            }
+            logger.strings(
+                    "Reused compilation unit(s)",
+                    cached.keySet()
+            );
+            logger.line(cached.size() + " compilation unit(s) reused from " + cache);
+        }
+
+        return success ?
                 J2clTaskResult.SUCCESS :
                 J2clTaskResult.FAILED;
     }
 
+    /**
+     * The archives on the classpath along with their fingerprint, which are kept open by the {@link J2clTranspilerService}.
+     */
+    private static Map<J2clPath, String> archives(final List<J2clPath> classpath,
+                                                  final J2clMavenContext context) throws IOException {
+        final Map<J2clPath, String> archives = Maps.sorted();
+
+        for (final J2clPath entry : classpath) {
+            if (entry.isFile()) {
+                archives.put(
+                        entry,
+                        context.dependencyFingerprint(entry)
+                );
+            }
+        }
+
+        return archives;
+    }
+
+    /**
+     * Computes the key of every compilation unit under the source roots, returning those missing from the cache, which
+     * must be transpiled. Cached compilation units are linked into the output after the transpiler completes, so it
+     * never writes over a file shared with the cache.
+     */
+    private static Set<String> findCachedCompilationUnits(final List<J2clPath> sourceRoots,
+                                                          final J2clTranspilerUnitCache cache,
+                                                          final J2clWorkspace workspace,
+                                                          final Map<String, String> cached,
+                                                          final Map<String, String> transpiled) throws IOException {
+        final Set<String> transpile = SortedSets.tree();
+
+        for (final J2clPath sourceRoot : sourceRoots) {
+            if (sourceRoot.exists().isPresent()) {
+                for (final J2clPath file : sourceRoot.gatherFiles(J2clPath.JAVA_FILES)) {
+                    final String unit = file.compilationUnit(sourceRoot);
+                    final Optional<String> key = cache.key(
+                            unit,
+                            sourceRoot,
+                            workspace
+                    );
+
+                    if (key.isPresent() && cache.contains(key.get())) {
+                        cached.put(unit, key.get());
+                    } else {
+                        transpile.add(unit);
+                        key.ifPresent(k -> transpiled.put(unit, k));
+                    }
+                }
+            }
+        }
+
+        return transpile;
+    }
+
+    /**
+     * Only the changed compilation units are transpiled again.
+     */
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
+
     private List<J2clPath> sourceRoots(final J2clArtifact artifact,
                                        final J2clMavenContext context) {
         final J2clTaskKind first = J2clTaskKind.SHADE_JAVA_SOURCE;
@@ -150,6 +319,16 @@ public final class J2clTask2clTranspiler<C extends J2clMavenContext> implements
         return classpath;
     }
 
+    /**
+     * The class files matching the source roots, shaded when the sources are shaded.
+     */
+    private static Optional<J2clPath> classFiles(final J2clArtifact artifact) {
+        final Optional<J2clPath> shaded = output(artifact, J2clTaskKind.SHADE_CLASS_FILES);
+        return shaded.isPresent() ?
+                shaded :
+                output(artifact, J2clTaskKind.JAVAC_COMPILE_GWT_INCOMPATIBLE_STRIPPED_JAVA_SOURCE);
+    }
+
     private static Optional<J2clPath> output(final J2clArtifact artifact,
                                              final J2clTaskKind kind) {
         return artifact.taskDirectory(kind)
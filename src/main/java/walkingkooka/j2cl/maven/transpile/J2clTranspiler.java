@@ -31,12 +31,19 @@ import walkingkooka.text.CharSequences;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 final class J2clTranspiler {
 
+    /**
+     * Transpiles the java and native javascript files under the source paths, when compilation units are present only
+     * their files are transpiled. All javascript files are copied to the output.
+     */
     static boolean execute(final Collection<J2clPath> classpath,
                            final List<J2clPath> sourcePaths,
+                           final Optional<Set<String>> compilationUnits,
                            final J2clPath output,
                            final TreeLogger logger) throws IOException {
         logger.line("J2clTranspiler");
@@ -56,11 +63,17 @@ final class J2clTranspiler {
                             )
                             .forEach(f -> {
                                 final String filename = f.filename();
+                                final boolean transpile = compilationUnits.map(c -> c.contains(f.compilationUnit(sourcePath)))
+                                        .orElse(true);
                                 if (CharSequences.endsWith(filename, ".java")) {
-                                    javaInput.add(f.toFileInfo(sourcePath));
+                                    if (transpile) {
+                                        javaInput.add(f.toFileInfo(sourcePath));
+                                    }
                                 } else {
                                     if (CharSequences.endsWith(filename, ".native.js")) {
-                                        nativeJsInput.add(f.toFileInfo(sourcePath));
+                                        if (transpile) {
+                                            nativeJsInput.add(f.toFileInfo(sourcePath));
+                                        }
                                     } else {
                                         if (CharSequences.endsWith(filename, ".js")) {
                                             jsInput.add(f);
@@ -90,26 +103,14 @@ final class J2clTranspiler {
             {
                 final Problems problems = new Problems();
 
-                try (final OutputUtils.Output outputOutput = OutputUtils.initOutput(
-                        output.path(),
-                        problems
-                )
-                ) {
-                    final J2clTranspilerOptions options = J2clTranspilerOptions.newBuilder()
-                            .setClasspaths(classpath.stream()
-                                    .map(J2clPath::toString)
-                                    .collect(Collectors.toList())
-                            ).setOutput(outputOutput)
-                            .setEmitReadableLibraryInfo(false)
-                            .setEmitReadableSourceMap(false)
-                            .setFrontend(Frontend.JDT)
-                            .setGenerateKytheIndexingMetadata(false)
-                            .setSources(javaInput)
-                            .setNativeSources(nativeJsInput)
-                            .build(problems);
-
-                    com.google.j2cl.transpiler.J2clTranspiler.transpile(
-                            options,
+                if (javaInput.isEmpty() && compilationUnits.isPresent()) {
+                    logger.line("No files to transpile");
+                } else {
+                    transpile(
+                            classpath,
+                            javaInput,
+                            nativeJsInput,
+                            output,
                             problems
                     );
                 }
@@ -146,4 +147,34 @@ final class J2clTranspiler {
 
         return success;
     }
+
+    private static void transpile(final Collection<J2clPath> classpath,
+                                  final List<FileInfo> javaInput,
+                                  final List<FileInfo> nativeJsInput,
+                                  final J2clPath output,
+                                  final Problems problems) throws IOException {
+        try (final OutputUtils.Output outputOutput = OutputUtils.initOutput(
+                output.path(),
+                problems
+        )
+        ) {
+            final J2clTranspilerOptions options = J2clTranspilerOptions.newBuilder()
+                    .setClasspaths(classpath.stream()
+                            .map(J2clPath::toString)
+                            .collect(Collectors.toList())
+                    ).setOutput(outputOutput)
+                    .setEmitReadableLibraryInfo(false)
+                    .setEmitReadableSourceMap(false)
+                    .setFrontend(Frontend.JDT)
+                    .setGenerateKytheIndexingMetadata(false)
+                    .setSources(javaInput)
+                    .setNativeSources(nativeJsInput)
+                    .build(problems);
+
+            com.google.j2cl.transpiler.J2clTranspiler.transpile(
+                    options,
+                    problems
+            );
+        }
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven.transpile;
+
+import walkingkooka.collect.map.Maps;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A transpiler service shared by all transpiles of a build and of every rebuild of a watch. The JDT frontend of the
+ * transpiler opens every classpath archive for each transpile. The JDK shares the central directory of an archive
+ * between all open {@link java.util.zip.ZipFile} of the same unmodified file, so the service keeps each classpath
+ * archive open, keyed by its fingerprint, and a later transpile opening the same archive finds its central directory
+ * already read. An archive whose fingerprint changed, or that was not used by the last build, is closed.
+ */
+public final class J2clTranspilerService {
+
+    public static J2clTranspilerService empty() {
+        return new J2clTranspilerService();
+    }
+
+    private J2clTranspilerService() {
+        super();
+    }
+
+    /**
+     * Opens each archive with its fingerprint not already kept open, returning the number that were. An archive with a
+     * different fingerprint has changed and replaces the one kept open, which is closed.
+     */
+    int open(final Map<J2clPath, String> archivesAndFingerprints) throws IOException {
+        int reused = 0;
+
+        for (final Entry<J2clPath, String> archiveAndFingerprint : archivesAndFingerprints.entrySet()) {
+            final J2clPath file = archiveAndFingerprint.getKey();
+            final String fingerprint = archiveAndFingerprint.getValue();
+
+            this.used.add(file);
+
+            final J2clTranspilerServiceArchive archive = this.archives.get(file);
+            if (null != archive && archive.fingerprint.equals(fingerprint)) {
+                reused++;
+            } else {
+                final J2clTranspilerServiceArchive previous = this.archives.put(
+                        file,
+                        J2clTranspilerServiceArchive.open(
+                                file,
+                                fingerprint
+                        )
+                );
+                if (null != previous) {
+                    previous.close();
+                }
+            }
+        }
+
+        this.transpiles.incrementAndGet();
+        this.reused.addAndGet(reused);
+
+        return reused;
+    }
+
+    /**
+     * Closes the archives not used by the build that just completed, such as an archive replaced by a rebuild of a watch,
+     * and logs how many archives were reused.
+     */
+    public void closeUnused(final MavenLogger logger) {
+        for (final J2clPath file : this.archives.keySet()) {
+            if (false == this.used.contains(file)) {
+                this.close(
+                        file,
+                        logger
+                );
+            }
+        }
+
+        this.completed(logger);
+    }
+
+    /**
+     * Closes all archives and logs how many archives were reused, the service may be used again by a later build.
+     */
+    public void close(final MavenLogger logger) {
+        for (final J2clPath file : this.archives.keySet()) {
+            this.close(
+                    file,
+                    logger
+            );
+        }
+
+        this.completed(logger);
+    }
+
+    private void close(final J2clPath file,
+                       final MavenLogger logger) {
+        final J2clTranspilerServiceArchive archive = this.archives.remove(file);
+        if (null != archive) {
+            try {
+                archive.close();
+            } catch (final IOException cause) {
+                logger.warn("Failed to close " + archive + ": " + cause.getMessage());
+            }
+        }
+    }
+
+    private void completed(final MavenLogger logger) {
+        this.used.clear();
+
+        final int transpiles = this.transpiles.getAndSet(0);
+        final int reused = this.reused.getAndSet(0);
+
+        if (transpiles > 0) {
+            logger.info("Transpiler " + transpiles + " transpile(s) reused " + reused + " open classpath archive(s)");
+        }
+    }
+
+    /**
+     * Deletes the entries of the transpiled compilation unit cache under the given cache directory that have not been
+     * used recently, returning the number deleted.
+     */
+    public int pruneUnitCache(final J2clPath cache) throws IOException {
+        return J2clTranspilerUnitCache.prune(
+                cache.append(J2clTranspilerUnitCache.DIRECTORY)
+        );
+    }
+
+    private final Map<J2clPath, J2clTranspilerServiceArchive> archives = Maps.concurrent();
+
+    /**
+     * The archives used by the transpiles of the current build.
+     */
+    private final Set<J2clPath> used = Collections.newSetFromMap(Maps.concurrent());
+
+    private final AtomicInteger transpiles = new AtomicInteger();
+
+    private final AtomicInteger reused = new AtomicInteger();
+
+    @Override
+    public String toString() {
+        return this.archives.size() + " open archive(s)";
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven.transpile;
+
+import walkingkooka.j2cl.maven.J2clPath;
+
+import java.io.IOException;
+import java.util.zip.ZipFile;
+
+/**
+ * A classpath archive kept open by {@link J2clTranspilerService}, along with its fingerprint.
+ */
+final class J2clTranspilerServiceArchive {
+
+    static J2clTranspilerServiceArchive open(final J2clPath file,
+                                             final String fingerprint) throws IOException {
+        return new J2clTranspilerServiceArchive(
+                fingerprint,
+                new ZipFile(file.file())
+        );
+    }
+
+    private J2clTranspilerServiceArchive(final String fingerprint,
+                                         final ZipFile zipFile) {
+        super();
+        this.fingerprint = fingerprint;
+        this.zipFile = zipFile;
+    }
+
+    final String fingerprint;
+
+    private final ZipFile zipFile;
+
+    void close() throws IOException {
+        this.zipFile.close();
+    }
+
+    @Override
+    public String toString() {
+        return this.zipFile.getName() + " " + this.fingerprint;
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven.transpile;
+
+import com.google.j2cl.transpiler.J2clTranspilerOptions;
+import walkingkooka.collect.set.SortedSets;
+import walkingkooka.j2cl.maven.J2clArtifact;
+import walkingkooka.j2cl.maven.J2clClassDependencyGraph;
+import walkingkooka.j2cl.maven.J2clMavenContext;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.J2clWorkspace;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.hash.HashBuilder;
+
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A cache shared by all artifacts holding the javascript transpiled from a single compilation unit. The key is a
+ * digest of the java and native javascript source of the compilation unit, the
+ * {@link J2clMavenContext#dependenciesAbiDigest(J2clArtifact)} of the artifact and the ABI of the classes of the same
+ * artifact it transitively references, including their super classes and interfaces. A compilation unit found in the
+ * cache is linked into the output rather than transpiled again.
+ * <br>
+ * Restoring an entry updates its last modified time, entries not used for {@link #MAX_AGE} are deleted by
+ * {@link #prune(J2clPath)} at most once a day.
+ */
+final class J2clTranspilerUnitCache {
+
+    /**
+     * The name of the directory under the cache holding the transpiled compilation units.
+     */
+    final static String DIRECTORY = "transpile-units";
+
+    static J2clTranspilerUnitCache with(final J2clPath directory,
+                                        final J2clClassDependencyGraph graph,
+                                        final String dependenciesAbiDigest,
+                                        final HashAlgorithm algorithm) {
+        return new J2clTranspilerUnitCache(
+                directory,
+                graph,
+                dependenciesAbiDigest,
+                algorithm
+        );
+    }
+
+    private J2clTranspilerUnitCache(final J2clPath directory,
+                                    final J2clClassDependencyGraph graph,
+                                    final String dependenciesAbiDigest,
+                                    final HashAlgorithm algorithm) {
+        super();
+        this.directory = directory;
+        this.graph = graph;
+        this.dependenciesAbiDigest = dependenciesAbiDigest;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Returns the key of the given compilation unit, or nothing when it has no classes, such as a package-info.java,
+     * and is always transpiled.
+     */
+    Optional<String> key(final String unit,
+                         final J2clPath sourceRoot,
+                         final J2clWorkspace workspace) throws IOException {
+        String key = null;
+
+        final Optional<String> referencesAbiDigest = this.graph.referencesAbiDigest(
+                unit,
+                this.algorithm
+        );
+        if (referencesAbiDigest.isPresent()) {
+            final HashBuilder hash = HashBuilder.with(this.algorithm)
+                    .append(TRANSPILER)
+                    .append(unit)
+                    .append(workspace.read(sourceRoot.append(unit)))
+                    .append(this.dependenciesAbiDigest)
+                    .append(referencesAbiDigest.get());
+
+            final J2clPath nativeFile = sourceRoot.append(
+                    unit.substring(0, unit.length() - JAVA_FILE_SUFFIX.length()) + NATIVE_JAVASCRIPT_FILE_SUFFIX
+            );
+            if (nativeFile.exists().isPresent()) {
+                hash.append(NATIVE_JAVASCRIPT_FILE_SUFFIX)
+                        .append(workspace.read(nativeFile));
+            }
+
+            key = hash.build();
+        }
+
+        return Optional.ofNullable(key);
+    }
+
+    /**
+     * The location of the transpiler, which includes its version, so an upgrade does not reuse javascript transpiled
+     * by an earlier version.
+     */
+    private final static String TRANSPILER = String.valueOf(
+            J2clTranspilerOptions.class.getProtectionDomain()
+                    .getCodeSource()
+    );
+
+    private final static String JAVA_FILE_SUFFIX = ".java";
+
+    private final static String NATIVE_JAVASCRIPT_FILE_SUFFIX = ".native.js";
+
+    /**
+     * Tests if javascript has been saved for the given key.
+     */
+    boolean contains(final String key) {
+        return this.entry(key)
+                .exists()
+                .isPresent();
+    }
+
+    /**
+     * Links the cached javascript with the given key into the output. Files already present, such as javascript
+     * copied from the sources, are kept.
+     */
+    void restore(final String key,
+                 final J2clPath output) throws IOException {
+        final J2clPath entry = this.entry(key);
+        final Path entryPath = entry.path();
+        final Path outputPath = output.path();
+
+        Files.setLastModifiedTime(
+                entryPath,
+                FileTime.fromMillis(System.currentTimeMillis())
+        );
+
+        for (final J2clPath file : entry.gatherFiles(J2clPath.ALL_FILES)) {
+            final Path target = outputPath.resolve(
+                    entryPath.relativize(file.path())
+                            .toString()
+            );
+            if (Files.notExists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.createLink(target, file.path());
+                } catch (final UnsupportedOperationException | FileSystemException cannotLink) {
+                    Files.copy(file.path(), target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the javascript transpiled from the given compilation unit, found in the output, under the given key. Files
+     * are linked to a temporary directory which is then moved, so a concurrent build never sees a partial entry.
+     */
+    void save(final String unit,
+              final String key,
+              final J2clPath output) throws IOException {
+        final J2clPath entry = this.entry(key);
+
+        if (false == entry.exists().isPresent()) {
+            final Path parent = entry.parent()
+                    .createIfNecessary()
+                    .path();
+            final J2clPath temp = J2clPath.with(
+                    Files.createTempDirectory(
+                            parent,
+                            entry.filename() + TEMP_SUFFIX
+                    )
+            );
+            temp.linkFiles(
+                    output,
+                    output.compilationUnitFiles(
+                            this.topLevelCompilationUnits(unit)
+                    )
+            );
+
+            try {
+                Files.move(
+                        temp.path(),
+                        entry.path(),
+                        StandardCopyOption.ATOMIC_MOVE
+                );
+            } catch (final FileSystemException saved) {
+                // another build saved the same entry.
+                temp.removeAll();
+                Files.delete(temp.path());
+            }
+        }
+    }
+
+    private final static String TEMP_SUFFIX = "-";
+
+    /**
+     * Deletes the entries under the given directory that were neither saved nor restored within {@link #MAX_AGE},
+     * unless the cache was pruned within the last day, returning the number of entries deleted. Must not be called
+     * while a transpile may be using the cache.
+     */
+    static int prune(final J2clPath directory) throws IOException {
+        int pruned = 0;
+
+        final Path path = directory.path();
+        final Path marker = path.resolve(PRUNED_FILE);
+        final long now = System.currentTimeMillis();
+
+        if (Files.isDirectory(path) &&
+                (Files.notExists(marker) ||
+                        Files.getLastModifiedTime(marker).toMillis() + PRUNE_INTERVAL < now)) {
+            final List<Path> entries;
+            try (final Stream<Path> walk = Files.walk(path, 2)) {
+                entries = walk.filter(Files::isDirectory)
+                        .filter(e -> e.getNameCount() == path.getNameCount() + 2)
+                        .collect(Collectors.toList());
+            }
+
+            for (final Path entry : entries) {
+                if (Files.getLastModifiedTime(entry).toMillis() + MAX_AGE < now) {
+                    J2clPath.with(entry)
+                            .removeAll();
+                    Files.delete(entry);
+                    pruned++;
+                }
+            }
+
+            Files.write(marker, new byte[0]);
+        }
+
+        return pruned;
+    }
+
+    /**
+     * The file in the cache directory whose last modified time records when the cache was last pruned.
+     */
+    private final static String PRUNED_FILE = "pruned";
+
+    private final static long PRUNE_INTERVAL = 24 * 60 * 60 * 1000;
+
+    /**
+     * Entries neither saved nor restored for this many millis are deleted by {@link #prune(J2clPath)}.
+     */
+    // @VisibleForTesting
+    final static long MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+
+    /**
+     * A compilation unit may hold several top level classes, each of which has its own javascript files.
+     */
+    private Set<String> topLevelCompilationUnits(final String unit) {
+        final Set<String> units = SortedSets.tree();
+        units.add(unit);
+
+        for (final String name : this.graph.classes(unit)) {
+            final int dollar = name.indexOf('$');
+            units.add(
+                    (-1 == dollar ?
+                            name :
+                            name.substring(0, dollar)) + JAVA_FILE_SUFFIX
+            );
+        }
+
+        return units;
+    }
+
+    /**
+     * Entries are sharded by the first two characters of their key, keeping directories small.
+     */
+    private J2clPath entry(final String key) {
+        return this.directory.append(key.substring(0, 2))
+                .append(this.algorithm.directoryName(key));
+    }
+
+    private final J2clPath directory;
+
+    private final J2clClassDependencyGraph graph;
+
+    private final String dependenciesAbiDigest;
+
+    private final HashAlgorithm algorithm;
+
+    @Override
+    public String toString() {
+        return this.directory.toString();
+    }
+}
@@ -17,6 +17,7 @@
 
 package walkingkooka.j2cl.maven.unpack;
 
+import walkingkooka.collect.list.Lists;
 import walkingkooka.j2cl.maven.J2clArtifact;
 import walkingkooka.j2cl.maven.J2clMavenContext;
 import walkingkooka.j2cl.maven.J2clPath;
@@ -27,6 +28,8 @@ import walkingkooka.j2cl.maven.J2clTaskResult;
 import walkingkooka.j2cl.maven.log.TreeFormat;
 import walkingkooka.j2cl.maven.log.TreeLogger;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -35,6 +38,9 @@ import java.util.Set;
  * Unpacks the source from the sources artifact (jar with sources) and if no java files are present tries
  * the binary (jar) to {@link J2clTaskDirectory#output()}. If no java source files are present processing of this
  * artifact is aborted and no attempt will be made to transpile java to javascript.
+ * <br>
+ * Archives are not actually unpacked, instead they are listed in {@link J2clTaskDirectory#archivesFile()} and later
+ * tasks read their files directly, only source roots that are directories are copied.
  */
 public final class J2clTaskUnpack<C extends J2clMavenContext> implements J2clTask<C> {
 
@@ -78,23 +84,27 @@ public final class J2clTaskUnpack<C extends J2clMavenContext> implements J2clTas
 
         final J2clPath dest = directory.output().absentOrFail();
 
-        boolean filesFound = this.extractSourceRoots(artifact, dest, logger);
+        final List<J2clPath> sourceRoots = artifact.sourceRoots();
+        logger.paths(
+                "Source root(s)",
+                sourceRoots,
+                TreeFormat.TREE
+        );
+
+        boolean filesFound = isArchives(sourceRoots) ?
+                this.indexArchives(sourceRoots, directory, context, logger) :
+                this.extractSourceRoots(sourceRoots, dest, logger);
 
         if (false == filesFound) {
             // if no source is available unpack the binary might be a jszip.
             final Optional<J2clPath> archive = artifact.artifactFile();
             if (archive.isPresent()) {
-                final J2clPath path = archive.get();
-                logger.path("Archive", path);
-                logger.indent();
-                {
-                    filesFound = archive.get()
-                            .extractArchiveFiles(J2clPath.WITHOUT_META_INF,
-                                    dest,
-                                    logger)
-                            .size() > 0;
-                }
-                logger.outdent();
+                filesFound = this.indexArchives(
+                        Lists.of(archive.get()),
+                        directory,
+                        context,
+                        logger
+                );
             }
         }
 
@@ -117,18 +127,73 @@ public final class J2clTaskUnpack<C extends J2clMavenContext> implements J2clTas
         }
     }
 
-    private boolean extractSourceRoots(final J2clArtifact artifact,
+    /**
+     * Source roots that are all archives are not unpacked, later tasks read them mounted as zip file systems.
+     */
+    private static boolean isArchives(final List<J2clPath> sourceRoots) {
+        return false == sourceRoots.isEmpty() &&
+                sourceRoots.stream()
+                        .allMatch(J2clPath::isFile);
+    }
+
+    /**
+     * Lists the files in each archive, writing the file names of the archives that have files to
+     * {@link J2clTaskDirectory#archivesFile()} which replaces {@link J2clTaskDirectory#output()} as the sources for later
+     * tasks. File names rather than paths are written, so a cache shared or moved along with the local repository
+     * resolves them against the archives of the artifact of the current build.
+     */
+    private boolean indexArchives(final List<J2clPath> archives,
+                                  final J2clTaskDirectory directory,
+                                  final C context,
+                                  final TreeLogger logger) throws IOException {
+        final List<String> indexed = Lists.array();
+
+        logger.line("Indexing...");
+        logger.indent();
+        {
+            for (final J2clPath archive : archives) {
+                logger.line(archive.toString());
+                logger.indent();
+                {
+                    final Set<J2clPath> files = context.archiveRoot(archive)
+                            .gatherFiles(J2clPath.ALL_FILES);
+                    if (files.isEmpty()) {
+                        logger.indentedLine("No files");
+                    } else {
+                        indexed.add(
+                                archive.filename()
+                        );
+                    }
+                    logger.paths(
+                            "",
+                            files,
+                            TreeFormat.TREE
+                    );
+                }
+                logger.outdent();
+            }
+        }
+        logger.outdent();
+        logger.endOfList();
+
+        final boolean filesFound = false == indexed.isEmpty();
+        if (filesFound) {
+            final J2clPath file = directory.archivesFile();
+            file.writeFile(
+                    String.join("\n", indexed)
+                            .getBytes(StandardCharsets.UTF_8)
+            );
+            logger.path("Archives", file);
+        }
+
+        return filesFound;
+    }
+
+    private boolean extractSourceRoots(final List<J2clPath> sourceRoots,
                                        final J2clPath dest,
                                        final TreeLogger logger) throws Exception {
         boolean filesFound = false;
 
-        final List<J2clPath> sourceRoots = artifact.sourceRoots();
-        logger.paths(
-                "Source root(s)",
-                sourceRoots,
-                TreeFormat.TREE
-        );
-
         logger.line("Unpacking...");
         logger.indent();
         {
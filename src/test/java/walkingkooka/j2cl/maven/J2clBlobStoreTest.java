@@ -0,0 +1,212 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class J2clBlobStoreTest implements ClassTesting2<J2clBlobStore> {
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testLinkIdenticalFilesShared() throws IOException {
+        final J2clBlobStore store = this.store();
+        final J2clPath output1 = this.output("a.js", "abc");
+        final J2clPath output2 = this.output("a.js", "abc");
+
+        this.checkEquals(
+                0,
+                store.link(output1),
+                "first"
+        );
+        this.checkEquals(
+                1,
+                store.link(output2),
+                "second"
+        );
+        this.checkEquals(
+                true,
+                Files.isSameFile(
+                        this.file(output1, "a.js"),
+                        this.file(output2, "a.js")
+                )
+        );
+    }
+
+    @Test
+    public void testLinkDifferentFilesNotShared() throws IOException {
+        final J2clBlobStore store = this.store();
+        final J2clPath output1 = this.output("a.js", "abc");
+        final J2clPath output2 = this.output("a.js", "xyz");
+
+        store.link(output1);
+
+        this.checkEquals(
+                0,
+                store.link(output2)
+        );
+    }
+
+    @Test
+    public void testWorkspaceWriteAfterLinkKeepsOtherLinks() throws Exception {
+        final J2clBlobStore store = this.store();
+        final J2clPath output1 = this.output("a.js", "abc");
+        final J2clPath output2 = this.output("a.js", "abc");
+
+        store.link(output1);
+        store.link(output2);
+
+        final J2clWorkspace workspace = J2clWorkspace.with(
+                0,
+                MavenLogger.maven(new SystemStreamLog())
+        );
+        workspace.write(
+                output2.append("a.js"),
+                "changed".getBytes(Charset.defaultCharset())
+        );
+        workspace.close();
+
+        this.checkEquals(
+                "abc",
+                this.read(output1, "a.js"),
+                "output1"
+        );
+        this.checkEquals(
+                "changed",
+                this.read(output2, "a.js"),
+                "output2"
+        );
+    }
+
+    @Test
+    public void testPruneUnlinked() throws IOException {
+        final J2clBlobStore store = this.store();
+        final J2clPath output1 = this.output("a.js", "abc");
+        final J2clPath output2 = this.output("b.js", "xyz");
+
+        store.link(output1);
+        store.link(output2);
+
+        Files.delete(this.file(output1, "a.js"));
+
+        this.checkEquals(
+                1,
+                store.prune(),
+                "first prune"
+        );
+        this.checkEquals(
+                "xyz",
+                this.read(output2, "b.js")
+        );
+    }
+
+    @Test
+    public void testPruneOncePerDay() throws IOException {
+        final J2clBlobStore store = this.store();
+        final J2clPath output = this.output("a.js", "abc");
+
+        store.link(output);
+        store.prune();
+
+        Files.delete(this.file(output, "a.js"));
+
+        this.checkEquals(
+                0,
+                store.prune()
+        );
+    }
+
+    private J2clBlobStore store() throws IOException {
+        if (null == this.store) {
+            this.store = J2clBlobStore.with(
+                    J2clPath.with(
+                            this.base.newFolder()
+                                    .toPath()
+                    ),
+                    HashAlgorithm.SHA1
+            );
+        }
+        return this.store;
+    }
+
+    private J2clBlobStore store;
+
+    private J2clPath output(final String file,
+                            final String content) throws IOException {
+        final J2clPath output = J2clPath.with(
+                this.base.newFolder()
+                        .toPath()
+        );
+        Files.write(
+                this.file(output, file),
+                content.getBytes(Charset.defaultCharset())
+        );
+        return output;
+    }
+
+    private Path file(final J2clPath output,
+                      final String file) {
+        return output.path()
+                .resolve(file);
+    }
+
+    private String read(final J2clPath output,
+                        final String file) throws IOException {
+        return new String(
+                Files.readAllBytes(this.file(output, file)),
+                Charset.defaultCharset()
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clBlobStore> type() {
+        return J2clBlobStore.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
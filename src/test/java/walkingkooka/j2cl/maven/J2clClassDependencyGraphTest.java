@@ -0,0 +1,321 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Set;
+
+public final class J2clClassDependencyGraphTest implements ClassTesting2<J2clClassDependencyGraph> {
+
+    private final static String A = "package p; public class A { public int method() { return 1; } }";
+
+    private final static String B = "package p; public class B { int call(A a) { return a.method(); } }";
+
+    private final static String C = "package p; public class C { class Inner {} }";
+
+    private final static String D = "package p; public class D extends A {}";
+
+    private final static String E = "package p; public class E { Object call(D d) { return d; } }";
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        this.changedAndCheck(
+                this.build(A, B, C),
+                this.build(A, B, C),
+                Sets.empty()
+        );
+    }
+
+    @Test
+    public void testChangedIncludesReferences() throws IOException {
+        this.changedAndCheck(
+                this.build(A, B, C),
+                this.build(A.replace("return 1;", "return 2;"), B, C),
+                Sets.of("p/A.java", "p/B.java")
+        );
+    }
+
+    @Test
+    public void testChangedInnerClass() throws IOException {
+        this.changedAndCheck(
+                this.build(A, B, C),
+                this.build(A, B, C.replace("class Inner {}", "class Inner { int field; }")),
+                Sets.of("p/C.java")
+        );
+    }
+
+    @Test
+    public void testRemovedClass() throws IOException {
+        this.changedAndCheck(
+                this.build(A, B, C),
+                this.build(A, B),
+                Sets.of("p/C.java")
+        );
+    }
+
+    @Test
+    public void testOtherFileChanged() throws IOException {
+        final Path root = this.compile(A, B, C);
+        final J2clClassDependencyGraph previous = this.build(root);
+
+        Files.write(
+                root.resolve("p").resolve("resource.txt"),
+                "resource".getBytes(Charset.defaultCharset())
+        );
+
+        this.checkEquals(
+                Optional.empty(),
+                previous.changedCompilationUnits(
+                        this.build(root)
+                )
+        );
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        final J2clClassDependencyGraph graph = this.build(A, B, C);
+        final J2clPath file = J2clPath.with(
+                this.base.newFolder()
+                        .toPath()
+                        .resolve(J2clClassDependencyGraph.FILE)
+        );
+        graph.write(file);
+
+        this.changedAndCheck(
+                J2clClassDependencyGraph.read(file)
+                        .get(),
+                this.build(A.replace("return 1;", "return 2;"), B, C),
+                Sets.of("p/A.java", "p/B.java")
+        );
+    }
+
+    @Test
+    public void testReadMissingFile() throws IOException {
+        this.checkEquals(
+                Optional.empty(),
+                J2clClassDependencyGraph.read(
+                        J2clPath.with(
+                                this.base.newFolder()
+                                        .toPath()
+                                        .resolve(J2clClassDependencyGraph.FILE)
+                        )
+                )
+        );
+    }
+
+    @Test
+    public void testReadInvalidLine() throws IOException {
+        final J2clPath file = J2clPath.with(
+                this.base.newFolder()
+                        .toPath()
+                        .resolve(J2clClassDependencyGraph.FILE)
+        );
+        this.build(A, B, C)
+                .write(file);
+        Files.write(
+                file.path(),
+                "truncated".getBytes(Charset.defaultCharset()),
+                StandardOpenOption.APPEND
+        );
+
+        this.checkEquals(
+                Optional.empty(),
+                J2clClassDependencyGraph.read(file)
+        );
+    }
+
+    @Test
+    public void testClasses() throws IOException {
+        this.checkEquals(
+                Sets.of("p/C", "p/C$Inner"),
+                this.build(A, B, C)
+                        .classes("p/C.java")
+        );
+    }
+
+    @Test
+    public void testReferencesAbiDigestMissingUnit() throws IOException {
+        this.checkEquals(
+                Optional.empty(),
+                this.build(A, B, C)
+                        .referencesAbiDigest("p/Missing.java", HashAlgorithm.SHA1)
+        );
+    }
+
+    @Test
+    public void testReferencesAbiDigestReferencedMethodBodyChanged() throws IOException {
+        this.referencesAbiDigestAndCheck(
+                A.replace("return 1;", "return 2;"),
+                true
+        );
+    }
+
+    @Test
+    public void testReferencesAbiDigestReferencedAbiChanged() throws IOException {
+        this.referencesAbiDigestAndCheck(
+                A.replace("public int method()", "public long method()")
+                        .replace("return 1;", "return 1L;"),
+                false
+        );
+    }
+
+    @Test
+    public void testReferencesAbiDigestSuperClassOfReferencedAbiChanged() throws IOException {
+        final String unit = "p/E.java";
+
+        final Optional<String> before = this.build(A, D, E)
+                .referencesAbiDigest(unit, HashAlgorithm.SHA1);
+        final Optional<String> after = this.build(
+                A.replace("public int method()", "public long method()")
+                        .replace("return 1;", "return 1L;"),
+                D,
+                E
+        ).referencesAbiDigest(unit, HashAlgorithm.SHA1);
+
+        this.checkNotEquals(
+                before,
+                after
+        );
+    }
+
+    @Test
+    public void testReferencesAbiDigestSuperClassOfReferencedMethodBodyChanged() throws IOException {
+        final String unit = "p/E.java";
+
+        this.checkEquals(
+                this.build(A, D, E)
+                        .referencesAbiDigest(unit, HashAlgorithm.SHA1),
+                this.build(A.replace("return 1;", "return 2;"), D, E)
+                        .referencesAbiDigest(unit, HashAlgorithm.SHA1)
+        );
+    }
+
+    private void referencesAbiDigestAndCheck(final String a,
+                                             final boolean same) throws IOException {
+        final String unit = "p/B.java";
+        final String b = B.replace("return a.method();", "return (int) a.method();");
+
+        final Optional<String> before = this.build(A, b, C)
+                .referencesAbiDigest(unit, HashAlgorithm.SHA1);
+        final Optional<String> after = this.build(a, b, C)
+                .referencesAbiDigest(unit, HashAlgorithm.SHA1);
+
+        this.checkEquals(
+                true,
+                before.isPresent(),
+                "before"
+        );
+        this.checkEquals(
+                same,
+                before.equals(after),
+                () -> before + " " + after
+        );
+    }
+
+    private void changedAndCheck(final J2clClassDependencyGraph previous,
+                                 final J2clClassDependencyGraph current,
+                                 final Set<String> expected) {
+        this.checkEquals(
+                Optional.of(expected),
+                previous.changedCompilationUnits(current),
+                () -> previous + " " + current
+        );
+    }
+
+    private J2clClassDependencyGraph build(final String... sources) throws IOException {
+        return this.build(
+                this.compile(sources)
+        );
+    }
+
+    private J2clClassDependencyGraph build(final Path root) throws IOException {
+        return J2clClassDependencyGraph.build(
+                J2clPath.with(root),
+                HashAlgorithm.SHA1
+        );
+    }
+
+    private Path compile(final String... sources) throws IOException {
+        final Path directory = this.base.newFolder().toPath();
+        final Path sourceDirectory = this.base.newFolder().toPath();
+
+        final String[] arguments = new String[2 + sources.length];
+        arguments[0] = "-d";
+        arguments[1] = directory.toString();
+
+        int i = 2;
+        for (final String source : sources) {
+            final String name = source.substring(
+                    source.indexOf("class ") + "class ".length()
+            ).split(" ")[0];
+            final Path file = sourceDirectory.resolve(name + ".java");
+            Files.write(file, source.getBytes(Charset.defaultCharset()));
+            arguments[i++] = file.toString();
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        this.checkEquals(
+                0,
+                compiler.run(null, null, null, arguments),
+                () -> "compile " + String.join(" ", sources)
+        );
+        return directory;
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clClassDependencyGraph> type() {
+        return J2clClassDependencyGraph.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
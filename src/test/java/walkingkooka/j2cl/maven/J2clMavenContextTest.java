@@ -0,0 +1,721 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.CompilerOptions.LanguageMode;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.j2cl.maven.J2clTaskHeapAdmissionTest.TestMemoryMXBean;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.hash.HashBuilder;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.j2cl.maven.log.TreeLogger;
+import walkingkooka.test.Testing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class J2clMavenContextTest implements Testing {
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testManyInstantlyCompletingReadyNodes() throws Throwable {
+        for (int run = 0; run < 20; run++) {
+            final TestJ2clMavenContext context = this.context(4, 1);
+
+            final J2clArtifact project = context.project(
+                    J2clTaskKind.HASH,
+                    J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+            );
+            for (int i = 0; i < 16; i++) {
+                context.dependency(
+                        project,
+                        "dependency" + i,
+                        J2clTaskKind.HASH
+                );
+            }
+
+            context.prepareAndStart(
+                    project,
+                    this.logger()
+                            .treeLogger()
+            );
+            context.waitUntilCompletion();
+
+            this.checkEquals(
+                    18,
+                    context.executed()
+                            .size(),
+                    () -> "executed " + context.executed()
+            );
+        }
+    }
+
+    @Test
+    public void testNodesWaitForTasksOfDependencies() throws Throwable {
+        final TestJ2clMavenContext context = this.context(4, 2);
+
+        final J2clArtifact project = context.project(
+                J2clTaskKind.HASH,
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT,
+                J2clTaskKind.CLOSURE_COMPILE
+        );
+        final List<String> dependencies = Lists.of(
+                "dependency1",
+                "dependency2"
+        );
+        for (final String dependency : dependencies) {
+            context.dependency(
+                    project,
+                    dependency,
+                    J2clTaskKind.HASH,
+                    J2clTaskKind.UNPACK,
+                    J2clTaskKind.SHADE_CLASS_FILES,
+                    J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+            );
+        }
+
+        context.prepareAndStart(
+                project,
+                this.logger()
+                        .treeLogger()
+        );
+        context.waitUntilCompletion();
+
+        final List<String> executed = context.executed();
+        this.checkEquals(
+                11,
+                executed.size(),
+                () -> "executed " + executed
+        );
+        final Set<String> once = Sets.ordered();
+        once.addAll(executed);
+        this.checkEquals(
+                executed.size(),
+                once.size(),
+                () -> "executed once " + executed
+        );
+
+        this.checkBefore(
+                context,
+                "project",
+                J2clTaskKind.HASH,
+                "project",
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        this.checkBefore(
+                context,
+                "project",
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT,
+                "project",
+                J2clTaskKind.CLOSURE_COMPILE
+        );
+
+        for (final String dependency : dependencies) {
+            this.checkBefore(
+                    context,
+                    dependency,
+                    J2clTaskKind.SHADE_CLASS_FILES,
+                    "project",
+                    J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+            );
+            this.checkBefore(
+                    context,
+                    dependency,
+                    J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT,
+                    "project",
+                    J2clTaskKind.CLOSURE_COMPILE
+            );
+        }
+    }
+
+    @Test
+    public void testNodeDoesNotWaitForLaterTasksOfDependencies() throws Throwable {
+        final CountDownLatch projectTranspileStarted = new CountDownLatch(1);
+
+        final TestJ2clMavenContext context = new TestJ2clMavenContext(
+                this.folder(),
+                4,
+                2,
+                this.logger()
+        ) {
+            @Override
+            void execute(final J2clTaskNode node) throws Exception {
+                if (node.kind() == J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT) {
+                    if (node.artifact().isDependency()) {
+                        // the project only waits for the shaded class files of the dependency.
+                        if (false == projectTranspileStarted.await(TIMEOUT, TimeUnit.SECONDS)) {
+                            throw new IllegalStateException("Project transpile never started");
+                        }
+                    } else {
+                        projectTranspileStarted.countDown();
+                    }
+                }
+            }
+        };
+
+        final J2clArtifact project = context.project(
+                J2clTaskKind.HASH,
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        context.dependency(
+                project,
+                "dependency",
+                J2clTaskKind.HASH,
+                J2clTaskKind.SHADE_CLASS_FILES,
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+
+        context.prepareAndStart(
+                project,
+                this.logger()
+                        .treeLogger()
+        );
+        context.waitUntilCompletion();
+
+        this.checkEquals(
+                5,
+                context.executed()
+                        .size(),
+                () -> "executed " + context.executed()
+        );
+    }
+
+    @Test
+    public void testHeldHeavyNodeSubmittedWhenHeapReleased() throws Throwable {
+        final TestJ2clMavenContext context = this.context(4, 2);
+        // only room for a single transpile.
+        context.memory = TestMemoryMXBean.with(100 * 1024 * 1024);
+
+        final J2clArtifact project = context.project(
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        final J2clArtifact a = context.dependency(
+                project,
+                "a",
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        final J2clArtifact b = context.dependency(
+                project,
+                "b",
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+
+        // both transpiles become ready when the shared dependency completes.
+        final J2clArtifact shared = context.dependency(
+                a,
+                "shared",
+                J2clTaskKind.HASH
+        );
+        b.dependencies()
+                .add(shared);
+
+        context.prepareAndStart(
+                project,
+                this.logger()
+                        .treeLogger()
+        );
+        context.waitUntilCompletion();
+
+        this.checkEquals(
+                4,
+                context.executed()
+                        .size(),
+                () -> "executed " + context.executed()
+        );
+
+        final List<String> events = context.events;
+        final String transpileA = context.node("a", J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT);
+        final String transpileB = context.node("b", J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT);
+
+        // the held transpile only started after the admitted transpile released its heap.
+        this.checkEquals(
+                true,
+                events.indexOf("end " + transpileA) < events.indexOf("start " + transpileB) ||
+                        events.indexOf("end " + transpileB) < events.indexOf("start " + transpileA),
+                () -> "transpiles overlapped " + events
+        );
+    }
+
+    @Test
+    public void testFailedTaskCompletesBuild() throws Throwable {
+        final IllegalStateException failure = new IllegalStateException("Task failed!");
+
+        final TestJ2clMavenContext context = new TestJ2clMavenContext(
+                this.folder(),
+                4,
+                2,
+                this.logger()
+        ) {
+            @Override
+            void execute(final J2clTaskNode node) {
+                if (node.artifact().isDependency() && node.kind() == J2clTaskKind.UNPACK) {
+                    throw failure;
+                }
+            }
+        };
+
+        final J2clArtifact project = context.project(
+                J2clTaskKind.HASH,
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        context.dependency(
+                project,
+                "dependency",
+                J2clTaskKind.HASH,
+                J2clTaskKind.UNPACK,
+                J2clTaskKind.SHADE_CLASS_FILES
+        );
+
+        context.prepareAndStart(
+                project,
+                this.logger()
+                        .treeLogger()
+        );
+
+        final Throwable thrown = assertThrows(
+                IllegalStateException.class,
+                context::waitUntilCompletion
+        );
+        this.checkEquals(
+                failure,
+                thrown
+        );
+
+        final List<String> executed = context.executed();
+        this.checkEquals(
+                false,
+                executed.contains(
+                        context.node(
+                                "dependency",
+                                J2clTaskKind.SHADE_CLASS_FILES
+                        )
+                ),
+                () -> "executed " + executed
+        );
+        this.checkEquals(
+                false,
+                executed.contains(
+                        context.node(
+                                "project",
+                                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+                        )
+                ),
+                () -> "executed " + executed
+        );
+        this.checkEquals(
+                false,
+                context.isRunning(),
+                "running"
+        );
+        this.checkTraceWritten(context);
+    }
+
+    @Test
+    public void testCancelCompletesBuild() throws Throwable {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final TestJ2clMavenContext context = new TestJ2clMavenContext(
+                this.folder(),
+                1,
+                1,
+                this.logger()
+        ) {
+            @Override
+            void execute(final J2clTaskNode node) throws Exception {
+                started.countDown();
+
+                // keep running until cancelled, queued nodes must then be skipped.
+                while (this.isRunning()) {
+                    Thread.sleep(1);
+                }
+            }
+        };
+
+        final J2clArtifact project = context.project(
+                J2clTaskKind.HASH,
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        for (int i = 0; i < 4; i++) {
+            context.dependency(
+                    project,
+                    "dependency" + i,
+                    J2clTaskKind.HASH
+            );
+        }
+
+        context.prepareAndStart(
+                project,
+                this.logger()
+                        .treeLogger()
+        );
+
+        this.checkEquals(
+                true,
+                started.await(TIMEOUT, TimeUnit.SECONDS),
+                "started"
+        );
+        context.cancel(null);
+
+        this.checkEquals(
+                1,
+                context.executed()
+                        .size(),
+                () -> "executed " + context.executed()
+        );
+        this.checkEquals(
+                false,
+                context.isRunning(),
+                "running"
+        );
+        this.checkTraceWritten(context);
+
+        // nothing left to wait for.
+        context.waitUntilCompletion();
+    }
+
+    /**
+     * The trace is written by the completed hook, which only runs once every submitted task has completed.
+     */
+    private void checkTraceWritten(final TestJ2clMavenContext context) {
+        final J2clPath trace = context.cache()
+                .append(J2clTaskTrace.FILE);
+        this.checkEquals(
+                true,
+                trace.exists()
+                        .isPresent(),
+                () -> trace + " exists"
+        );
+    }
+
+    private final static long TIMEOUT = 10;
+
+    /**
+     * Fails unless the first node ended before the second node started.
+     */
+    private void checkBefore(final TestJ2clMavenContext context,
+                             final String artifact,
+                             final J2clTaskKind kind,
+                             final String laterArtifact,
+                             final J2clTaskKind laterKind) {
+        final List<String> events = context.events;
+        final String end = "end " + context.node(artifact, kind);
+        final String start = "start " + context.node(laterArtifact, laterKind);
+
+        final int endIndex = events.indexOf(end);
+        final int startIndex = events.indexOf(start);
+
+        this.checkEquals(
+                true,
+                -1 != endIndex && endIndex < startIndex,
+                () -> end + " before " + start + " " + events
+        );
+    }
+
+    @Test
+    public void testLongestCriticalPathStartsFirst() throws Throwable {
+        final TestJ2clMavenContext context = this.context(1, 1);
+
+        final J2clArtifact project = context.project(
+                J2clTaskKind.HASH,
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+        context.dependency(
+                project,
+                "a-short",
+                J2clTaskKind.HASH
+        );
+        context.dependency(
+                project,
+                "z-long",
+                J2clTaskKind.HASH,
+                J2clTaskKind.UNPACK,
+                J2clTaskKind.SHADE_CLASS_FILES
+        );
+
+        context.prepareAndStart(
+                project,
+                this.logger()
+                        .treeLogger()
+        );
+        context.waitUntilCompletion();
+
+        final List<String> executed = context.executed();
+        this.checkEquals(
+                6,
+                executed.size(),
+                () -> "executed " + executed
+        );
+        this.checkEquals(
+                context.node(
+                        "z-long",
+                        J2clTaskKind.HASH
+                ),
+                executed.get(0),
+                () -> "executed " + executed
+        );
+    }
+
+    private TestJ2clMavenContext context(final int ioThreadPoolSize,
+                                         final int threadPoolSize) throws IOException {
+        return new TestJ2clMavenContext(
+                this.folder(),
+                ioThreadPoolSize,
+                threadPoolSize,
+                this.logger()
+        );
+    }
+
+    private J2clPath folder() throws IOException {
+        return J2clPath.with(
+                this.base.newFolder()
+                        .toPath()
+        );
+    }
+
+    private MavenLogger logger() {
+        return MavenLogger.maven(new SystemStreamLog());
+    }
+
+    /**
+     * A {@link J2clMavenContext} whose artifacts have the given tasks, each of which only records that it was executed.
+     */
+    static class TestJ2clMavenContext extends J2clMavenContext {
+
+        TestJ2clMavenContext(final J2clPath cache,
+                             final int ioThreadPoolSize,
+                             final int threadPoolSize,
+                             final MavenLogger logger) {
+            super(
+                    cache,
+                    cache,
+                    J2clClasspathScope.COMPILE,
+                    Lists.empty(), // classpathRequired
+                    Lists.empty(), // ignoredDependencies
+                    Lists.empty(), // javascriptSourceRequired
+                    CompilationLevel.SIMPLE_OPTIMIZATIONS,
+                    Maps.empty(), // defines
+                    Sets.empty(), // externs
+                    Sets.empty(), // formatting
+                    HashAlgorithm.SHA1,
+                    Sets.empty(), // javaCompilerArguments
+                    false, // singleJavac
+                    LanguageMode.ECMASCRIPT_2015,
+                    Optional.empty(), // sourceMaps
+                    null, // middleware
+                    ioThreadPoolSize,
+                    threadPoolSize,
+                    1, // closureThreadPoolSize
+                    logger
+            );
+        }
+
+        J2clArtifact project(final J2clTaskKind... tasks) {
+            return this.artifact(
+                    "project",
+                    Optional.empty(),
+                    tasks
+            );
+        }
+
+        J2clArtifact dependency(final J2clArtifact dependent,
+                                final String name,
+                                final J2clTaskKind... tasks) throws IOException {
+            final J2clPath archive = this.cache()
+                    .append(name + ".jar");
+            try (final OutputStream output = Files.newOutputStream(archive.path());
+                 final ZipOutputStream zip = new ZipOutputStream(output)) {
+                zip.putNextEntry(new ZipEntry("file.txt"));
+                zip.closeEntry();
+            }
+
+            final J2clArtifact dependency = this.artifact(
+                    name,
+                    Optional.of(archive),
+                    tasks
+            );
+            dependent.dependencies()
+                    .add(dependency);
+            return dependency;
+        }
+
+        private J2clArtifact artifact(final String name,
+                                      final Optional<J2clPath> archive,
+                                      final J2clTaskKind... tasks) {
+            final J2clArtifact artifact = J2clArtifact.with(
+                    J2clArtifactCoords.parse("group:" + name + ":jar:1.0"),
+                    archive,
+                    this
+            ).setDirectory("hash");
+            this.artifactTasks.put(
+                    artifact,
+                    Lists.of(tasks)
+            );
+            return artifact;
+        }
+
+        private final Map<J2clArtifact, List<J2clTaskKind>> artifactTasks = Maps.concurrent();
+
+        /**
+         * Defaults to a heap large enough to admit every heavy node, so tests do not depend on the heap of the JVM.
+         */
+        @Override
+        MemoryMXBean memory() {
+            return this.memory;
+        }
+
+        MemoryMXBean memory = TestMemoryMXBean.with(Long.MAX_VALUE / 2);
+
+        @Override
+        Optional<J2clTaskKind> execute(final J2clTaskNode node,
+                                       final TreeLogger logger) throws Exception {
+            this.events.add("start " + node);
+            this.execute(node);
+            this.events.add("end " + node);
+
+            return this.nextTask(
+                    node.artifact(),
+                    node.kind()
+            );
+        }
+
+        /**
+         * Overridden by tests that need a task to block or fail.
+         */
+        void execute(final J2clTaskNode node) throws Exception {
+        }
+
+        /**
+         * The start and end of each executed node in order.
+         */
+        final List<String> events = Collections.synchronizedList(Lists.array());
+
+        /**
+         * The {@link String} form of the node of the given artifact, which matches an entry in {@link #executed()}.
+         */
+        String node(final String name,
+                    final J2clTaskKind kind) {
+            for (final J2clArtifact artifact : this.artifactTasks.keySet()) {
+                if (artifact.coords().artifactId().equals(name)) {
+                    return J2clTaskNode.with(
+                            artifact,
+                            kind
+                    ).toString();
+                }
+            }
+            throw new IllegalArgumentException("Unknown artifact " + name);
+        }
+
+        List<String> executed() {
+            synchronized (this.events) {
+                final List<String> executed = Lists.array();
+                for (final String event : this.events) {
+                    if (event.startsWith("start ")) {
+                        executed.add(event.substring("start ".length()));
+                    }
+                }
+                return executed;
+            }
+        }
+
+        @Override
+        List<J2clTaskKind> tasks(final J2clArtifact artifact) {
+            return this.artifactTasks.get(artifact);
+        }
+
+        @Override
+        public J2clSourcesKind sourcesKind() {
+            return J2clSourcesKind.SRC;
+        }
+
+        @Override
+        public List<String> entryPoints() {
+            return Lists.empty();
+        }
+
+        @Override
+        public J2clPath initialScriptFilename(final J2clArtifact artifact) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public J2clPath compiledBinaries(final J2clArtifact artifact) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean shouldCheckCache() {
+            return true;
+        }
+
+        @Override
+        boolean shouldSkipSubmittingDependencyTasks() {
+            return false;
+        }
+
+        @Override
+        boolean shouldCloseTranspilerService() {
+            return true;
+        }
+
+        @Override
+        boolean shouldShareOutputs() {
+            return false;
+        }
+
+        @Override
+        public void computeHash(final J2clArtifact artifact,
+                                final HashBuilder hash,
+                                final Set<String> hashItemNames) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
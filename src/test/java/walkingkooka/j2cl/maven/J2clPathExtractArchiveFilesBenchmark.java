@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.j2cl.maven.log.TreeLogger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A simple benchmark, run from an IDE, that compares extracting an archive by copying each entry of a zip
+ * {@link FileSystem} with {@link J2clPath#extractArchiveFiles}. The archives to extract may be given as arguments, eg
+ * large -sources.jar files from the local repository, otherwise a sources archive is generated.
+ */
+public final class J2clPathExtractArchiveFilesBenchmark {
+
+    private final static int WARMUP = 3;
+
+    private final static int ITERATIONS = 10;
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length > 0) {
+            for (final String archive : args) {
+                run(Paths.get(archive));
+            }
+        } else {
+            final Path archive = Files.createTempFile(J2clPathExtractArchiveFilesBenchmark.class.getSimpleName(), "-sources.jar");
+            try {
+                generate(archive, 5000, 8 * 1024);
+                run(archive);
+            } finally {
+                Files.delete(archive);
+            }
+        }
+    }
+
+    /**
+     * Writes an archive with the given number of java source files spread over packages.
+     */
+    private static void generate(final Path archive,
+                                 final int count,
+                                 final int size) throws IOException {
+        final Random random = new Random(count);
+
+        try (final ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (int i = 0; i < count; i++) {
+                zip.putNextEntry(new ZipEntry("walkingkooka/package" + (i % 50) + "/Class" + i + ".java"));
+
+                final StringBuilder b = new StringBuilder();
+                while (b.length() < size) {
+                    b.append("    // ").append(random.nextLong()).append('\n');
+                }
+                zip.write(b.toString().getBytes());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static void run(final Path archive) throws IOException {
+        final TreeLogger logger = MavenLogger.maven(new SystemStreamLog())
+                .treeLogger();
+
+        run(archive, "zipfs", (target) -> zipFileSystem(archive, target));
+        run(
+                archive,
+                "extractArchiveFiles",
+                (target) -> J2clPath.with(archive)
+                        .extractArchiveFiles(
+                                J2clPath.WITHOUT_META_INF,
+                                J2clPath.with(target),
+                                logger
+                        )
+        );
+    }
+
+    /**
+     * The previous extraction, which gathered a sorted listing of every entry and then copied each one.
+     */
+    private static void zipFileSystem(final Path archive,
+                                      final Path target) throws IOException {
+        final URI uri = URI.create("jar:" + archive.toAbsolutePath().toUri());
+        try (final FileSystem zip = FileSystems.newFileSystem(uri, new HashMap<>())) {
+            final Path root = zip.getPath("/");
+            final Set<Path> files;
+            try (final Stream<Path> find = Files.find(root, Integer.MAX_VALUE, (p, a) -> a.isRegularFile() && J2clPath.WITHOUT_META_INF.test(p))) {
+                files = find.collect(Collectors.toCollection(TreeSet::new));
+            }
+
+            for (final Path file : files) {
+                final Path copy = target.resolve(root.relativize(file).toString());
+                Files.createDirectories(copy.getParent());
+                Files.copy(file, copy);
+            }
+        }
+    }
+
+    private static void run(final Path archive,
+                            final String label,
+                            final Extract extract) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            extract(extract);
+        }
+
+        long nanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            nanos += extract(extract);
+        }
+
+        System.out.println(
+                archive.getFileName() + " " +
+                        label + " " +
+                        nanos / ITERATIONS / 1000000 + "ms/op"
+        );
+    }
+
+    private static long extract(final Extract extract) throws IOException {
+        final Path target = Files.createTempDirectory(J2clPathExtractArchiveFilesBenchmark.class.getSimpleName());
+        try {
+            final long start = System.nanoTime();
+            extract.extract(target);
+            return System.nanoTime() - start;
+        } finally {
+            delete(target);
+        }
+    }
+
+    private static void delete(final Path directory) throws IOException {
+        try (final Stream<Path> walk = Files.walk(directory)) {
+            for (final Path path : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Extract {
+        void extract(final Path target) throws IOException;
+    }
+}
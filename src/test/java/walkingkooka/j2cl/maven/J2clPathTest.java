@@ -17,17 +17,24 @@
 
 package walkingkooka.j2cl.maven;
 
+import org.apache.maven.plugin.logging.SystemStreamLog;
 import org.junit.Rule;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.rules.TemporaryFolder;
 import walkingkooka.HashCodeEqualsDefinedTesting2;
+import walkingkooka.collect.list.Lists;
 import walkingkooka.collect.map.Maps;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.collect.set.SortedSets;
 import walkingkooka.compare.ComparableTesting2;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.j2cl.maven.log.TreeLogger;
 import walkingkooka.reflect.PackageName;
 import walkingkooka.text.CharSequences;
 
+import javax.tools.ToolProvider;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -35,7 +42,11 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -81,6 +92,150 @@ public final class J2clPathTest implements ComparableTesting2<J2clPath>, HashCod
         this.checkPath(append, path.toString() + File.separator + "append1");
     }
 
+    @Test
+    public void testCompilationUnit() {
+        final J2clPath root = this.createObject();
+
+        this.checkEquals(
+                "p/Example.java",
+                root.append("p")
+                        .append("Example.java")
+                        .compilationUnit(root)
+        );
+    }
+
+    @Test
+    public void testCompilationUnitNativeJs() {
+        final J2clPath root = this.createObject();
+
+        this.checkEquals(
+                "p/Example.java",
+                root.append("p")
+                        .append("Example.native.js")
+                        .compilationUnit(root)
+        );
+    }
+
+    @Test
+    public void testCompilationUnitFiles() throws IOException {
+        final J2clPath directory = this.createObject();
+        this.writeFiles(
+                directory,
+                "p/Example.java",
+                "p/Example.native.js",
+                "p/Example.java.js",
+                "p/Example.impl.java.js",
+                "p/Example$Inner.java.js",
+                "p/Example$1.java.js",
+                "p/ExampleOther.java",
+                "p/ExampleOther.java.js",
+                "p/q/Example.java"
+        );
+
+        this.checkEquals(
+                this.files(
+                        directory,
+                        "p/Example$1.java.js",
+                        "p/Example$Inner.java.js",
+                        "p/Example.impl.java.js",
+                        "p/Example.java",
+                        "p/Example.java.js",
+                        "p/Example.native.js"
+                ),
+                directory.compilationUnitFiles(
+                        Sets.of("p/Example.java")
+                )
+        );
+    }
+
+    @Test
+    public void testCompilationUnitFilesDefaultPackage() throws IOException {
+        final J2clPath directory = this.createObject();
+        this.writeFiles(
+                directory,
+                "Example.java",
+                "Example$Inner.java.js",
+                "p/Example.java"
+        );
+
+        this.checkEquals(
+                this.files(
+                        directory,
+                        "Example$Inner.java.js",
+                        "Example.java"
+                ),
+                directory.compilationUnitFiles(
+                        Sets.of("Example.java")
+                )
+        );
+    }
+
+    @Test
+    public void testCompilationUnitFilesMissingDirectory() throws IOException {
+        this.checkEquals(
+                Sets.empty(),
+                this.createObject()
+                        .compilationUnitFiles(
+                                Sets.of("missing/Example.java")
+                        )
+        );
+    }
+
+    @Test
+    public void testCompilationUnitFilesClassFilesMoreThanOneTopLevelClass() throws IOException {
+        final J2clPath classes = this.compile(
+                "package p; public class Example { class Inner {} Object anonymous = new Object() {}; } class Helper { class Inner {} }",
+                "package p; public class ExampleOther {}"
+        );
+
+        this.checkEquals(
+                this.files(
+                        classes,
+                        "p/Example$1.class",
+                        "p/Example$Inner.class",
+                        "p/Example.class",
+                        "p/Helper$Inner.class",
+                        "p/Helper.class"
+                ),
+                classes.compilationUnitFiles(
+                        Sets.of("p/Example.java")
+                )
+        );
+    }
+
+    @Test
+    public void testCompilationUnitFilesJavascriptMoreThanOneTopLevelClass() throws IOException {
+        final J2clPath directory = this.createObject();
+        this.writeFiles(
+                directory,
+                "p/Example.java.js",
+                "p/Helper.java.js",
+                "p/Helper.impl.java.js"
+        );
+
+        this.checkEquals(
+                this.files(
+                        directory,
+                        "p/Example.java.js"
+                ),
+                directory.compilationUnitFiles(
+                        Sets.of("p/Example.java")
+                ),
+                "javascript of other top level classes is only found by name"
+        );
+        this.checkEquals(
+                this.files(
+                        directory,
+                        "p/Example.java.js",
+                        "p/Helper.impl.java.js",
+                        "p/Helper.java.js"
+                ),
+                directory.compilationUnitFiles(
+                        Sets.of("p/Example.java", "p/Helper.java")
+                )
+        );
+    }
+
     @Test
     public void testCompareLess() {
         this.compareToAndCheckLess(J2clPath.with(Paths.get("/a/b")), J2clPath.with(Paths.get("/z")));
@@ -100,6 +255,251 @@ public final class J2clPathTest implements ComparableTesting2<J2clPath>, HashCod
         this.existsCheck(this.createObject());
     }
 
+    @Test
+    public void testExtractArchiveFiles() throws IOException {
+        final J2clPath target = this.createObject()
+                .append("target");
+
+        final Set<J2clPath> files = this.archive(
+                "a.txt", "a",
+                "META-INF/MANIFEST.MF", "manifest",
+                "dir1/b.txt", "b"
+        ).extractArchiveFiles(
+                J2clPath.WITHOUT_META_INF,
+                target,
+                this.logger()
+        );
+
+        this.checkEquals(
+                Sets.of(
+                        target.append("a.txt"),
+                        target.append("dir1").append("b.txt")
+                ),
+                files
+        );
+        this.checkEquals(
+                "a",
+                this.read(target.append("a.txt"))
+        );
+        this.checkEquals(
+                "b",
+                this.read(target.append("dir1").append("b.txt"))
+        );
+        this.absentCheck(target.append("META-INF"));
+    }
+
+    @Test
+    public void testExtractArchiveFilesDirectoryEntries() throws IOException {
+        final J2clPath target = this.createObject()
+                .append("target");
+
+        final Set<J2clPath> files = this.archive(
+                "dir1/", null,
+                "dir1/dir2/", null,
+                "dir1/dir2/a.txt", "a",
+                "empty/", null
+        ).extractArchiveFiles(
+                J2clPath.WITHOUT_META_INF,
+                target,
+                this.logger()
+        );
+
+        this.checkEquals(
+                Sets.of(
+                        target.append("dir1").append("dir2").append("a.txt")
+                ),
+                files
+        );
+        this.checkEquals(
+                "a",
+                this.read(target.append("dir1").append("dir2").append("a.txt"))
+        );
+        this.absentCheck(target.append("empty"));
+    }
+
+    @Test
+    public void testExtractArchiveFilesOnlyDirectoryEntries() throws IOException {
+        final J2clPath target = this.createObject()
+                .append("target");
+
+        this.checkEquals(
+                Sets.empty(),
+                this.archive(
+                        "dir1/", null
+                ).extractArchiveFiles(
+                        J2clPath.WITHOUT_META_INF,
+                        target,
+                        this.logger()
+                )
+        );
+    }
+
+    @Test
+    public void testExtractArchiveFilesExistingFileSkipped() throws IOException {
+        final J2clPath target = this.createObject()
+                .append("target");
+        target.createIfNecessary();
+        target.append("a.txt")
+                .writeFile("old".getBytes(StandardCharsets.UTF_8));
+
+        final Set<J2clPath> files = this.archive(
+                "a.txt", "new",
+                "b.txt", "b"
+        ).extractArchiveFiles(
+                J2clPath.WITHOUT_META_INF,
+                target,
+                this.logger()
+        );
+
+        this.checkEquals(
+                Sets.of(
+                        target.append("a.txt"),
+                        target.append("b.txt")
+                ),
+                files
+        );
+        this.checkEquals(
+                "old",
+                this.read(target.append("a.txt"))
+        );
+        this.checkEquals(
+                "b",
+                this.read(target.append("b.txt"))
+        );
+    }
+
+    @Test
+    public void testExtractArchiveFilesParentEntryFails() throws IOException {
+        final J2clPath base = this.createObject();
+        final J2clPath target = base.append("target");
+        final J2clPath archive = this.archive(
+                "a.txt", "a",
+                "../evil.txt", "evil"
+        );
+
+        final IOException thrown = assertThrows(
+                IOException.class,
+                () -> archive.extractArchiveFiles(
+                        J2clPath.WITHOUT_META_INF,
+                        target,
+                        this.logger()
+                )
+        );
+        this.checkEquals(
+                true,
+                thrown.getMessage()
+                        .contains("../evil.txt"),
+                thrown::getMessage
+        );
+        this.absentCheck(base.append("evil.txt"));
+        this.absentCheck(target.append("a.txt"));
+    }
+
+    /**
+     * Writes each file under the directory, with its own path as content.
+     */
+    private void writeFiles(final J2clPath directory,
+                            final String... files) throws IOException {
+        for (final String file : files) {
+            final Path path = directory.path()
+                    .resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.write(
+                    path,
+                    file.getBytes(StandardCharsets.UTF_8)
+            );
+        }
+    }
+
+    private Set<J2clPath> files(final J2clPath directory,
+                                final String... files) {
+        final Set<J2clPath> paths = SortedSets.tree();
+        for (final String file : files) {
+            paths.add(
+                    J2clPath.with(
+                            directory.path()
+                                    .resolve(file)
+                    )
+            );
+        }
+        return paths;
+    }
+
+    /**
+     * Compiles the given sources, each named after its first public class, returning the directory of class files.
+     */
+    private J2clPath compile(final String... sources) throws IOException {
+        final Path sourceRoot = this.base.newFolder()
+                .toPath();
+        final Path classes = this.base.newFolder()
+                .toPath();
+
+        final List<String> arguments = Lists.array();
+        arguments.add("-d");
+        arguments.add(classes.toString());
+
+        for (final String source : sources) {
+            final int start = source.indexOf("public class ") + "public class ".length();
+            final Path file = sourceRoot.resolve(
+                    "p/" + source.substring(start, source.indexOf(' ', start)) + ".java"
+            );
+            Files.createDirectories(file.getParent());
+            Files.write(
+                    file,
+                    source.getBytes(StandardCharsets.UTF_8)
+            );
+            arguments.add(file.toString());
+        }
+
+        this.checkEquals(
+                0,
+                ToolProvider.getSystemJavaCompiler()
+                        .run(
+                                null,
+                                null,
+                                null,
+                                arguments.toArray(new String[0])
+                        ),
+                "javac"
+        );
+
+        return J2clPath.with(classes);
+    }
+
+    /**
+     * Writes an archive with the given entry names and contents, a null content writes a directory entry.
+     */
+    private J2clPath archive(final String... namesAndContents) throws IOException {
+        final Path file = this.base.newFile("archive.jar")
+                .toPath();
+
+        try (final ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+
+                final String content = namesAndContents[i + 1];
+                if (null != content) {
+                    zip.write(content.getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+        }
+
+        return J2clPath.with(file);
+    }
+
+    private String read(final J2clPath file) throws IOException {
+        return new String(
+                Files.readAllBytes(file.path()),
+                StandardCharsets.UTF_8
+        );
+    }
+
+    private TreeLogger logger() {
+        return MavenLogger.maven(new SystemStreamLog())
+                .treeLogger();
+    }
+
     @Test
     public void testFilename() throws IOException {
         final J2clPath path = this.createObject();
@@ -204,12 +604,108 @@ public final class J2clPathTest implements ComparableTesting2<J2clPath>, HashCod
                 () -> "isJava " + path);
     }
 
+    @Test
+    public void testLinkFiles() throws IOException {
+        final J2clPath src = this.createObject()
+                .append("src");
+        this.writeFiles(
+                src,
+                "p/Example.java",
+                "p/Example$Inner.java.js",
+                "p/Example.native.js"
+        );
+        final J2clPath dest = this.createObject()
+                .append("dest");
+
+        final Set<J2clPath> files = this.files(
+                src,
+                "p/Example$Inner.java.js",
+                "p/Example.native.js"
+        );
+
+        this.checkEquals(
+                Lists.of(
+                        dest.append("p").append("Example$Inner.java.js"),
+                        dest.append("p").append("Example.native.js")
+                ),
+                dest.linkFiles(
+                        src,
+                        files
+                )
+        );
+
+        for (final J2clPath file : files) {
+            final J2clPath linked = J2clPath.with(
+                    dest.path()
+                            .resolve(
+                                    src.path()
+                                            .relativize(file.path())
+                            )
+            );
+            this.checkEquals(
+                    this.read(file),
+                    this.read(linked),
+                    () -> "content " + linked
+            );
+        }
+        this.absentCheck(dest.append("p").append("Example.java"));
+    }
+
     @Test
     public void testOutput() {
         final J2clPath path = this.createObject();
         this.checkPath(path.output(), path + File.separator + "output");
     }
 
+    @Test
+    public void testRemoveCompilationUnitFiles() throws IOException {
+        final J2clPath directory = this.createObject();
+        this.writeFiles(
+                directory,
+                "p/Example.java",
+                "p/Example$Inner.java.js",
+                "p/Example.native.js",
+                "p/ExampleOther.java",
+                "p/Other.java"
+        );
+
+        final Set<J2clPath> removed = this.files(
+                directory,
+                "p/Example$Inner.java.js",
+                "p/Example.java",
+                "p/Example.native.js"
+        );
+
+        this.checkEquals(
+                removed,
+                directory.removeCompilationUnitFiles(
+                        Sets.of("p/Example.java")
+                )
+        );
+
+        for (final J2clPath file : removed) {
+            this.absentCheck(file);
+        }
+        this.existsCheck(directory.append("p").append("ExampleOther.java"));
+        this.existsCheck(directory.append("p").append("Other.java"));
+    }
+
+    @Test
+    public void testRemoveCompilationUnitFilesClassFilesMoreThanOneTopLevelClass() throws IOException {
+        final J2clPath classes = this.compile(
+                "package p; public class Example {} class Helper {}",
+                "package p; public class Other {}"
+        );
+
+        classes.removeCompilationUnitFiles(
+                Sets.of("p/Example.java")
+        );
+
+        this.absentCheck(classes.append("p").append("Example.class"));
+        this.absentCheck(classes.append("p").append("Helper.class"));
+        this.existsCheck(classes.append("p").append("Other.class"));
+    }
+
     @Test
     public void testRemoveAll() throws IOException {
         final J2clPath path = this.createObject();
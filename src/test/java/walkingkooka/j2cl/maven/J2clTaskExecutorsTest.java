@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.j2cl.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public final class J2clTaskExecutorsTest implements ClassTesting2<J2clTaskExecutors> {
+
+    private final static long TIMEOUT = 10;
+
+    @Test
+    public void testBusyCpuExecutorDoesNotBlockIo() throws Exception {
+        final J2clTaskExecutors executors = J2clTaskExecutors.with(1, 1, 1);
+
+        final CountDownLatch cpuReleased = new CountDownLatch(1);
+        final CountDownLatch ioCompleted = new CountDownLatch(1);
+
+        try {
+            executors.execute(
+                    J2clTaskResourceClass.CPU,
+                    () -> {
+                        try {
+                            cpuReleased.await();
+                        } catch (final InterruptedException ignore) {
+                        }
+                    }
+            );
+            executors.execute(
+                    J2clTaskResourceClass.IO,
+                    ioCompleted::countDown
+            );
+
+            this.checkEquals(
+                    true,
+                    ioCompleted.await(TIMEOUT, TimeUnit.SECONDS),
+                    "io task completed while cpu task running"
+            );
+        } finally {
+            cpuReleased.countDown();
+            executors.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueuedTasksExecutedByPriority() throws Exception {
+        final J2clTaskExecutors executors = J2clTaskExecutors.with(1, 1, 1);
+
+        final CountDownLatch released = new CountDownLatch(1);
+        final J2clTaskCompletion completion = J2clTaskCompletion.with(released::countDown);
+        final List<String> executed = Collections.synchronizedList(Lists.array());
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            // keeps the only thread busy so the following tasks are queued.
+            executors.execute(
+                    J2clTaskResourceClass.CPU,
+                    () -> {
+                        try {
+                            blocked.await();
+                        } catch (final InterruptedException ignore) {
+                        }
+                    }
+            );
+
+            this.execute(executors, completion, "short", 1000, executed, 1);
+            this.execute(executors, completion, "long", 3000, executed, 2);
+            this.execute(executors, completion, "medium", 2000, executed, 3);
+            this.execute(executors, completion, "watch", -1, executed, 4);
+
+            blocked.countDown();
+
+            this.checkEquals(
+                    true,
+                    released.await(TIMEOUT, TimeUnit.SECONDS),
+                    "all tasks completed"
+            );
+            this.checkEquals(
+                    Lists.of("watch", "long", "medium", "short"),
+                    executed
+            );
+        } finally {
+            blocked.countDown();
+            executors.shutdown();
+        }
+    }
+
+    /**
+     * Queues a task that records its name, a negative critical path creates a task without a {@link J2clTaskPriority}.
+     */
+    private void execute(final J2clTaskExecutors executors,
+                         final J2clTaskCompletion completion,
+                         final String name,
+                         final long criticalPath,
+                         final List<String> executed,
+                         final long sequence) {
+        final Optional<J2clTaskPriority> priority = criticalPath < 0 ?
+                Optional.empty() :
+                Optional.of(
+                        J2clTaskPriority.with(
+                                J2clTaskNode.with(
+                                        J2clArtifact.with(
+                                                J2clArtifactCoords.parse("group:" + name + ":jar:1.0"),
+                                                Optional.empty(),
+                                                null
+                                        ),
+                                        J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+                                ),
+                                0,
+                                criticalPath
+                        )
+                );
+
+        completion.submitted();
+        executors.execute(
+                J2clTaskResourceClass.CPU,
+                J2clTaskFuture.with(
+                        () -> {
+                            executed.add(name);
+                            return null;
+                        },
+                        priority,
+                        sequence,
+                        completion
+                )
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clTaskExecutors> type() {
+        return J2clTaskExecutors.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
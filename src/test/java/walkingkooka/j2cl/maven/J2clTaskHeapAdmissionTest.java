@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.j2cl.maven;
+
+import org.junit.jupiter.api.Test;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Optional;
+import java.util.OptionalDouble;
+
+public final class J2clTaskHeapAdmissionTest implements ClassTesting2<J2clTaskHeapAdmission> {
+
+    private final static long MB = 1024 * 1024;
+
+    @Test
+    public void testIsRequired() {
+        this.checkEquals(true, J2clTaskHeapAdmission.isRequired(J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT), "transpile");
+        this.checkEquals(true, J2clTaskHeapAdmission.isRequired(J2clTaskKind.CLOSURE_COMPILE), "closure");
+        this.checkEquals(false, J2clTaskHeapAdmission.isRequired(J2clTaskKind.HASH), "hash");
+    }
+
+    @Test
+    public void testFirstAdmittedWhenLargerThanHeap() {
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(TestMemoryMXBean.with(10 * MB));
+
+        this.checkEquals(
+                true,
+                admission.tryAdmit(this.node("a"), 100 * MB)
+        );
+    }
+
+    @Test
+    public void testSecondAdmittedWhenHeapFree() {
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(TestMemoryMXBean.with(1024 * MB));
+
+        this.checkEquals(true, admission.tryAdmit(this.node("a"), 0), "a");
+        this.checkEquals(true, admission.tryAdmit(this.node("b"), 0), "b");
+    }
+
+    @Test
+    public void testHeldUntilReleased() {
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(TestMemoryMXBean.with(100 * MB));
+
+        final J2clTaskNode a = this.node("a");
+        final J2clTaskNode b = this.node("b");
+
+        this.checkEquals(true, admission.tryAdmit(a, 0), "a");
+        this.checkEquals(false, admission.tryAdmit(b, 0), "b");
+
+        this.checkEquals(
+                Lists.of(b),
+                admission.release(a)
+        );
+        this.checkEquals(
+                Lists.empty(),
+                admission.release(a),
+                "held returned only once"
+        );
+
+        this.checkEquals(true, admission.tryAdmit(b, 0), "b after a released");
+    }
+
+    @Test
+    public void testClearForgetsAdmittedAndHeld() {
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(TestMemoryMXBean.with(100 * MB));
+
+        final J2clTaskNode a = this.node("a");
+        final J2clTaskNode b = this.node("b");
+
+        this.checkEquals(true, admission.tryAdmit(a, 0), "a");
+        this.checkEquals(false, admission.tryAdmit(b, 0), "b");
+
+        admission.clear();
+
+        this.checkEquals(true, admission.tryAdmit(b, 0), "b after clear");
+        this.checkEquals(
+                Lists.empty(),
+                admission.release(b)
+        );
+    }
+
+    @Test
+    public void testRatioLearntWhenAlone() {
+        final TestMemoryMXBean memory = TestMemoryMXBean.with(1024 * MB);
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(memory);
+
+        final J2clTaskNode a = this.node("a");
+        this.checkEquals(true, admission.tryAdmit(a, MB), "a");
+
+        memory.used = 100 * MB;
+        admission.release(a);
+
+        // half way between the initial 20 and the observed 100.
+        this.checkEquals(
+                OptionalDouble.of(60),
+                this.saved(admission)
+        );
+    }
+
+    @Test
+    public void testRatioNotLearntWhenNotAlone() {
+        final TestMemoryMXBean memory = TestMemoryMXBean.with(1024 * MB);
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(memory);
+
+        final J2clTaskNode a = this.node("a");
+        this.checkEquals(true, admission.tryAdmit(a, MB), "a");
+        this.checkEquals(true, admission.tryAdmit(this.node("b"), MB), "b");
+
+        memory.used = 100 * MB;
+        admission.release(a);
+
+        this.checkEquals(
+                OptionalDouble.empty(),
+                this.saved(admission)
+        );
+    }
+
+    @Test
+    public void testLoadedRatioHoldsLargeTask() {
+        final J2clTaskHistory history = J2clTaskHistory.empty();
+        history.heapPerInputByte(
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT,
+                1000
+        );
+
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(TestMemoryMXBean.with(1024 * MB));
+        admission.load(history);
+
+        this.checkEquals(true, admission.tryAdmit(this.node("a"), 0), "a");
+        this.checkEquals(false, admission.tryAdmit(this.node("b"), MB), "b");
+    }
+
+    @Test
+    public void testDefaultRatioAdmitsSameTask() {
+        final J2clTaskHeapAdmission admission = J2clTaskHeapAdmission.with(TestMemoryMXBean.with(1024 * MB));
+
+        this.checkEquals(true, admission.tryAdmit(this.node("a"), 0), "a");
+        this.checkEquals(true, admission.tryAdmit(this.node("b"), MB), "b");
+    }
+
+    private J2clTaskNode node(final String name) {
+        return J2clTaskNode.with(
+                J2clArtifact.with(
+                        J2clArtifactCoords.parse("group:" + name + ":jar:1.0"),
+                        Optional.empty(),
+                        null
+                ),
+                J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT
+        );
+    }
+
+    private OptionalDouble saved(final J2clTaskHeapAdmission admission) {
+        final J2clTaskHistory history = J2clTaskHistory.empty();
+        admission.save(history);
+        return history.heapPerInputByte(J2clTaskKind.TRANSPILE_JAVA_TO_JAVASCRIPT);
+    }
+
+    /**
+     * A {@link MemoryMXBean} with a fixed maximum heap and the given used heap.
+     */
+    static class TestMemoryMXBean implements MemoryMXBean {
+
+        static TestMemoryMXBean with(final long max) {
+            return new TestMemoryMXBean(max);
+        }
+
+        private TestMemoryMXBean(final long max) {
+            super();
+            this.max = max;
+        }
+
+        @Override
+        public MemoryUsage getHeapMemoryUsage() {
+            final long used = this.used;
+            return new MemoryUsage(
+                    0,
+                    used,
+                    used,
+                    this.max
+            );
+        }
+
+        private final long max;
+
+        volatile long used;
+
+        @Override
+        public MemoryUsage getNonHeapMemoryUsage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getObjectPendingFinalizationCount() {
+            return 0;
+        }
+
+        @Override
+        public boolean isVerbose() {
+            return false;
+        }
+
+        @Override
+        public void setVerbose(final boolean verbose) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void gc() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectName getObjectName() {
+            try {
+                return new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME);
+            } catch (final Exception cause) {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clTaskHeapAdmission> type() {
+        return J2clTaskHeapAdmission.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
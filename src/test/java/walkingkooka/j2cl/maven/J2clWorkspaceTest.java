@@ -0,0 +1,348 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class J2clWorkspaceTest implements ClassTesting2<J2clWorkspace> {
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+        final J2clPath file = this.file("dir", "a.txt");
+
+        workspace.write(file, this.bytes("abc"));
+
+        this.checkEquals(
+                "abc",
+                this.read(workspace, file)
+        );
+
+        workspace.close();
+        this.checkEquals(
+                "abc",
+                this.readDisk(file)
+        );
+    }
+
+    @Test
+    public void testWriteReadFromMemory() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+        final J2clPath file = this.file("dir", "a.txt");
+
+        workspace.write(file, this.bytes("abc"));
+        workspace.flush(file);
+
+        Files.write(file.path(), this.bytes("xyz"));
+
+        this.checkEquals(
+                "abc",
+                this.read(workspace, file)
+        );
+        workspace.close();
+    }
+
+    @Test
+    public void testWriteBeyondCapacityWrittenImmediately() throws Exception {
+        final J2clWorkspace workspace = this.workspace(2);
+        final J2clPath file = this.file("dir", "a.txt");
+
+        workspace.write(file, this.bytes("abc"));
+
+        this.checkEquals(
+                "abc",
+                this.readDisk(file)
+        );
+        this.checkEquals(
+                "0 pending 0/2 byte(s)",
+                workspace.toString()
+        );
+        workspace.close();
+    }
+
+    @Test
+    public void testWriteTwiceBeyondCapacity() throws Exception {
+        final J2clWorkspace workspace = this.workspace(3);
+        final J2clPath file = this.file("dir", "a.txt");
+
+        workspace.write(file, this.bytes("abc"));
+        workspace.write(file, this.bytes("12345"));
+
+        this.checkEquals(
+                "12345",
+                this.read(workspace, file)
+        );
+        this.checkEquals(
+                "0 pending 0/3 byte(s)",
+                workspace.toString()
+        );
+
+        workspace.close();
+        this.checkEquals(
+                "12345",
+                this.readDisk(file)
+        );
+    }
+
+    @Test
+    public void testWritePersistedEvicted() throws Exception {
+        final J2clWorkspace workspace = this.workspace(3);
+        final J2clPath evicted = this.file("dir", "a.txt");
+        final J2clPath kept = this.file("dir", "b.txt");
+
+        workspace.write(evicted, this.bytes("abc"));
+        workspace.flush(evicted);
+
+        Files.write(evicted.path(), this.bytes("123"));
+
+        workspace.write(kept, this.bytes("xyz"));
+
+        this.checkEquals(
+                "123",
+                this.read(workspace, evicted)
+        );
+        this.checkEquals(
+                "xyz",
+                this.read(workspace, kept)
+        );
+        workspace.close();
+    }
+
+    @Test
+    public void testWriteManyReadAll() throws Exception {
+        final J2clWorkspace workspace = this.workspace(8);
+
+        for (int i = 0; i < 100; i++) {
+            workspace.write(
+                    this.file("dir", i + ".txt"),
+                    this.bytes("content" + i)
+            );
+        }
+
+        for (int i = 0; i < 100; i++) {
+            this.checkEquals(
+                    "content" + i,
+                    this.read(workspace, this.file("dir", i + ".txt"))
+            );
+        }
+        workspace.close();
+    }
+
+    @Test
+    public void testGatherFiles() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+        final J2clPath file = this.file("dir", "a.txt");
+        final J2clPath other = this.file("other", "b.txt");
+
+        workspace.write(file, this.bytes("abc"));
+        workspace.write(other, this.bytes("xyz"));
+
+        this.checkEquals(
+                Sets.of(file),
+                workspace.gatherFiles(
+                        this.file("dir"),
+                        J2clPath.ALL_FILES
+                )
+        );
+        workspace.close();
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+        final J2clPath file = this.file("dir", "a.txt");
+
+        workspace.write(file, this.bytes("abc"));
+        workspace.flush(this.file("dir"));
+
+        this.checkEquals(
+                "abc",
+                this.readDisk(file)
+        );
+        workspace.close();
+    }
+
+    @Test
+    public void testWhenPersistedNothingPending() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+
+        this.checkEquals(
+                Optional.of("result"),
+                workspace.whenPersisted(
+                        this.file("dir"),
+                        () -> "result"
+                )
+        );
+        workspace.close();
+    }
+
+    @Test
+    public void testWhenPersistedAfterWrite() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+        final J2clPath file = this.file("dir", "a.txt");
+
+        workspace.write(file, this.bytes("abc"));
+
+        final AtomicReference<String> persisted = new AtomicReference<>();
+        workspace.whenPersisted(
+                this.file("dir"),
+                () -> {
+                    persisted.set(this.readDisk(file));
+                    return null;
+                }
+        );
+
+        workspace.close();
+
+        this.checkEquals(
+                "abc",
+                persisted.get()
+        );
+    }
+
+    @Test
+    public void testWhenPersistedFailureThrownByClose() throws Exception {
+        final J2clWorkspace workspace = this.workspace(Long.MAX_VALUE);
+        final IllegalStateException failure = new IllegalStateException("Action failed");
+
+        // the action only runs later when the file is still pending, otherwise it fails immediately, try again.
+        boolean deferred = false;
+        for (int i = 0; false == deferred; i++) {
+            final J2clPath directory = this.file("dir" + i);
+            workspace.write(
+                    directory.append("a.txt"),
+                    new byte[1024 * 1024]
+            );
+
+            try {
+                deferred = false == workspace.whenPersisted(
+                        directory,
+                        () -> {
+                            throw failure;
+                        }
+                ).isPresent();
+            } catch (final IllegalStateException immediate) {
+                this.checkEquals(failure, immediate);
+            }
+        }
+
+        final IOException thrown = assertThrows(
+                IOException.class,
+                workspace::close
+        );
+        this.checkEquals(
+                failure,
+                thrown.getCause()
+        );
+
+        // the failure is only thrown once.
+        workspace.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final J2clWorkspace workspace = this.workspace(100);
+
+        workspace.write(this.file("dir", "a.txt"), this.bytes("abc"));
+        workspace.close();
+
+        this.checkEquals(
+                "0 pending 0/100 byte(s)",
+                workspace.toString()
+        );
+    }
+
+    private J2clWorkspace workspace(final long capacity) {
+        return J2clWorkspace.with(
+                capacity,
+                MavenLogger.maven(new SystemStreamLog())
+        );
+    }
+
+    private J2clPath file(final String... names) {
+        J2clPath path = J2clPath.with(
+                this.base.getRoot()
+                        .toPath()
+        );
+        for (final String name : names) {
+            path = path.append(name);
+        }
+        return path;
+    }
+
+    private byte[] bytes(final String content) {
+        return content.getBytes(Charset.defaultCharset());
+    }
+
+    private String read(final J2clWorkspace workspace,
+                        final J2clPath file) throws IOException {
+        return new String(
+                workspace.read(file),
+                Charset.defaultCharset()
+        );
+    }
+
+    private String readDisk(final J2clPath file) throws IOException {
+        return new String(
+                Files.readAllBytes(file.path()),
+                Charset.defaultCharset()
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clWorkspace> type() {
+        return J2clWorkspace.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
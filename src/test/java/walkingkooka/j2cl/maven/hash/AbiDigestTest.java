@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public final class AbiDigestTest implements ClassTesting2<AbiDigest> {
+
+    private final static String CLASS = "package p; @Deprecated public class A { public static final int CONSTANT = 1; public int method(int a) { return a + 1; } private void hidden() {} }";
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testSameClass() throws IOException {
+        this.checkEquals(
+                this.compute(CLASS),
+                this.compute(CLASS)
+        );
+    }
+
+    @Test
+    public void testMethodBodyChanged() throws IOException {
+        this.checkEquals(
+                this.compute(CLASS),
+                this.compute(CLASS.replace("return a + 1;", "return a * 2 + 3;"))
+        );
+    }
+
+    @Test
+    public void testPrivateMethodChanged() throws IOException {
+        this.checkEquals(
+                this.compute(CLASS),
+                this.compute(CLASS.replace("private void hidden() {}", "private int hidden2(String s) { return s.length(); }"))
+        );
+    }
+
+    @Test
+    public void testConstantChanged() throws IOException {
+        this.computeAndCheckDifferent(
+                CLASS.replace("CONSTANT = 1", "CONSTANT = 2")
+        );
+    }
+
+    @Test
+    public void testPublicMethodAdded() throws IOException {
+        this.computeAndCheckDifferent(
+                CLASS.replace("private void hidden() {}", "public void added() {}")
+        );
+    }
+
+    @Test
+    public void testAnnotationRemoved() throws IOException {
+        this.computeAndCheckDifferent(
+                CLASS.replace("@Deprecated ", "")
+        );
+    }
+
+    @Test
+    public void testResourceChanged() throws IOException {
+        final Path root = this.compile(CLASS);
+        final String digest = this.compute(root);
+
+        Files.write(
+                root.resolve("p").resolve("resource.txt"),
+                "resource".getBytes(Charset.defaultCharset())
+        );
+
+        assertNotEquals(
+                digest,
+                this.compute(root)
+        );
+    }
+
+    private void computeAndCheckDifferent(final String source) throws IOException {
+        assertNotEquals(
+                this.compute(CLASS),
+                this.compute(source)
+        );
+    }
+
+    private String compute(final String source) throws IOException {
+        return this.compute(
+                this.compile(source)
+        );
+    }
+
+    private String compute(final Path root) throws IOException {
+        return AbiDigest.compute(
+                Lists.of(root),
+                FileDigestIndex.empty(HashAlgorithm.SHA1)
+        );
+    }
+
+    private Path compile(final String source) throws IOException {
+        final Path directory = this.base.newFolder().toPath();
+        final Path file = directory.resolve("A.java");
+        Files.write(file, source.getBytes(Charset.defaultCharset()));
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        this.checkEquals(
+                0,
+                compiler.run(null, null, null, "-d", directory.toString(), file.toString()),
+                () -> "compile " + source
+        );
+        Files.delete(file);
+        return directory;
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<AbiDigest> type() {
+        return AbiDigest.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
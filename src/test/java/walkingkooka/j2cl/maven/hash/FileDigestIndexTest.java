@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+public final class FileDigestIndexTest implements ClassTesting2<FileDigestIndex> {
+
+    private final static FileTime LAST_MODIFIED = FileTime.fromMillis(1000000000000L);
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testDigest() throws IOException {
+        final Path file = this.file("abc");
+
+        this.checkEquals(
+                HashBuilder.empty()
+                        .append("abc")
+                        .build(),
+                this.digest(FileDigestIndex.empty(HashAlgorithm.SHA1), file)
+        );
+    }
+
+    @Test
+    public void testDigestUnchangedNotRead() throws IOException {
+        final Path file = this.file("abc");
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        final String digest = this.digest(index, file);
+
+        this.write(file, "xyz"); // same size and last modified, so the file is not read again
+
+        this.checkEquals(
+                digest,
+                this.digest(index, file)
+        );
+    }
+
+    @Test
+    public void testDigestSizeChanged() throws IOException {
+        final Path file = this.file("abc");
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        this.digest(index, file);
+
+        this.write(file, "abcd");
+
+        this.checkEquals(
+                HashBuilder.empty()
+                        .append("abcd")
+                        .build(),
+                this.digest(index, file)
+        );
+    }
+
+    @Test
+    public void testDigestLastModifiedChanged() throws IOException {
+        final Path file = this.file("abc");
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        this.digest(index, file);
+
+        Files.write(file, "xyz".getBytes(Charset.defaultCharset()));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED.toMillis() + 1000));
+
+        this.checkEquals(
+                HashBuilder.empty()
+                        .append("xyz")
+                        .build(),
+                this.digest(index, file)
+        );
+    }
+
+    @Test
+    public void testDigestRecentlyModifiedNotRecorded() throws IOException {
+        final Path file = this.base.newFile().toPath();
+        Files.write(file, "abc".getBytes(Charset.defaultCharset()));
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        this.digest(index, file);
+
+        this.checkEquals(
+                "0 file(s)",
+                index.toString()
+        );
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        final Path file = this.file("abc");
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        final String digest = this.digest(index, file);
+
+        final J2clPath saved = J2clPath.with(
+                this.base.newFile()
+                        .toPath()
+        );
+        index.save(saved);
+
+        this.write(file, "xyz");
+
+        this.checkEquals(
+                digest,
+                this.digest(FileDigestIndex.load(saved, HashAlgorithm.SHA1), file)
+        );
+    }
+
+    @Test
+    public void testSaveDropsUnused() throws IOException {
+        final Path file = this.file("abc");
+        final Path unused = this.file("xyz");
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        this.digest(index, file);
+        this.digest(index, unused);
+
+        final J2clPath saved = J2clPath.with(
+                this.base.newFile()
+                        .toPath()
+        );
+        index.save(saved);
+
+        final FileDigestIndex loaded = FileDigestIndex.load(saved, HashAlgorithm.SHA1);
+        this.digest(loaded, file);
+        loaded.save(saved);
+
+        this.checkEquals(
+                "1 file(s)",
+                FileDigestIndex.load(saved, HashAlgorithm.SHA1)
+                        .toString()
+        );
+    }
+
+    @Test
+    public void testLoadDifferentAlgorithm() throws IOException {
+        final Path file = this.file("abc");
+
+        final FileDigestIndex index = FileDigestIndex.empty(HashAlgorithm.SHA1);
+        this.digest(index, file);
+
+        final J2clPath saved = J2clPath.with(
+                this.base.newFile()
+                        .toPath()
+        );
+        index.save(saved);
+
+        this.write(file, "xyz");
+
+        this.checkEquals(
+                HashBuilder.with(HashAlgorithm.MURMUR3_128)
+                        .append("xyz")
+                        .build(),
+                this.digest(FileDigestIndex.load(saved, HashAlgorithm.MURMUR3_128), file)
+        );
+    }
+
+    private Path file(final String content) throws IOException {
+        final Path file = this.base.newFile().toPath();
+        this.write(file, content);
+        return file;
+    }
+
+    private void write(final Path file,
+                       final String content) throws IOException {
+        Files.write(file, content.getBytes(Charset.defaultCharset()));
+        Files.setLastModifiedTime(file, LAST_MODIFIED);
+    }
+
+    private String digest(final FileDigestIndex index,
+                          final Path file) throws IOException {
+        return index.digest(
+                file,
+                Files.readAttributes(
+                        file,
+                        BasicFileAttributes.class
+                )
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<FileDigestIndex> type() {
+        return FileDigestIndex.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * A simple benchmark, run from an IDE, that compares reading a whole file onto the heap before hashing with
+ * {@link HashBuilder#append(Path)} which streams or memory maps the file, and then each {@link HashAlgorithm}.
+ * Each input size prints the average time and heap allocated for each hash.
+ */
+public final class HashBuilderBenchmark {
+
+    private final static int WARMUP = 5;
+
+    private final static int ITERATIONS = 20;
+
+    public static void main(final String[] args) throws IOException {
+        for (final int size : new int[]{256 * 1024, 4 * 1024 * 1024, 40 * 1024 * 1024}) {
+            final Path file = Files.createTempFile(HashBuilderBenchmark.class.getSimpleName(), ".jar");
+            try {
+                final byte[] content = new byte[size];
+                new Random(size).nextBytes(content);
+                Files.write(file, content);
+
+                run(size, "readAllBytes", () -> HashBuilder.empty().append(Files.readAllBytes(file)).build());
+                run(size, "append(Path)", () -> HashBuilder.empty().append(file).build());
+
+                for (final HashAlgorithm algorithm : HashAlgorithm.values()) {
+                    run(size, algorithm.toString(), () -> HashBuilder.with(algorithm).append(file).build());
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void run(final int size,
+                            final String label,
+                            final Hash hash) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            hash.hash();
+        }
+
+        final long allocatedStart = allocatedBytes();
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            hash.hash();
+        }
+
+        final long nanos = System.nanoTime() - start;
+        final long allocated = allocatedBytes() - allocatedStart;
+
+        System.out.println(
+                size / 1024 + "KB " +
+                        label + " " +
+                        nanos / ITERATIONS / 1000 + "us/op " +
+                        allocated / ITERATIONS + " bytes allocated/op"
+        );
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @FunctionalInterface
+    private interface Hash {
+        String hash() throws IOException;
+    }
+}
@@ -23,14 +23,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.rules.TemporaryFolder;
 import walkingkooka.ToStringTesting;
+import walkingkooka.collect.list.Lists;
 import walkingkooka.reflect.ClassTesting2;
 import walkingkooka.reflect.JavaVisibility;
 
 import java.io.IOException;
 import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public final class HashBuilderTest implements ClassTesting2<HashBuilder>, ToStringTesting<HashBuilder> {
 
@@ -147,6 +154,44 @@ public final class HashBuilderTest implements ClassTesting2<HashBuilder>, ToStri
         );
     }
 
+    @Test
+    public void testHashPathConcurrentMoreThreadsThanBuffers() throws Exception {
+        final Path path = this.base.newFile().toPath();
+        final byte[] content = new byte[100 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(path, content);
+
+        final String expected = HashBuilder.empty()
+                .append(content)
+                .toString();
+
+        final int threads = 4 * Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<String>> hashes = Lists.array();
+            for (int i = 0; i < threads * 4; i++) {
+                hashes.add(
+                        executor.submit(
+                                () -> HashBuilder.empty()
+                                        .append(path)
+                                        .toString()
+                        )
+                );
+            }
+
+            for (final Future<String> hash : hashes) {
+                this.checkEquals(
+                        expected,
+                        hash.get()
+                );
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testHashPathVsString() throws IOException {
         final Path path = this.base.newFile().toPath();
@@ -163,6 +208,55 @@ public final class HashBuilderTest implements ClassTesting2<HashBuilder>, ToStri
         );
     }
 
+    @Test
+    public void testHashPathLargeVsBytes() throws IOException {
+        final byte[] content = new byte[9 * 1024 * 1024 + 123]; // mapped in several windows
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        final Path path = this.base.newFile().toPath();
+        Files.write(path, content);
+
+        this.checkEquals(
+                HashBuilder.empty()
+                        .append(path)
+                        .toString(),
+                HashBuilder.empty()
+                        .append(content)
+                        .toString()
+        );
+    }
+
+    @Test
+    public void testHashFileChannelVsBytes() throws IOException {
+        final byte[] content = new byte[200 * 1024 + 1]; // read in several buffers
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+
+        final Path path = this.base.newFile().toPath();
+        Files.write(path, content);
+
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(100);
+
+            this.checkEquals(
+                    HashBuilder.empty()
+                            .append(content)
+                            .toString(),
+                    HashBuilder.empty()
+                            .append(channel)
+                            .toString()
+            );
+            this.checkEquals(
+                    100L,
+                    channel.position(),
+                    "position"
+            );
+        }
+    }
+
     @Test
     public void testHashString() {
         this.checkNotEquals(
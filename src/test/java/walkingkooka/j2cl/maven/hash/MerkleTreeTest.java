@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class MerkleTreeTest implements ClassTesting2<MerkleTree> {
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testDigestSameContent() throws IOException {
+        final Path root1 = this.root();
+        this.write(root1, "a/b/1.java", "1");
+        this.write(root1, "a/2.java", "2");
+
+        final Path root2 = this.root();
+        this.write(root2, "a/2.java", "2");
+        this.write(root2, "a/b/1.java", "1");
+
+        this.checkEquals(
+                this.compute(root1).digest(root1),
+                this.compute(root2).digest(root2)
+        );
+    }
+
+    @Test
+    public void testDigestRenamed() throws IOException {
+        final Path root1 = this.root();
+        this.write(root1, "a/1.java", "1");
+
+        final Path root2 = this.root();
+        this.write(root2, "a/2.java", "1");
+
+        this.checkNotEquals(
+                this.compute(root1).digest(root1),
+                this.compute(root2).digest(root2)
+        );
+    }
+
+    @Test
+    public void testDigestMissingRoot() throws IOException {
+        final Path root = this.base.getRoot()
+                .toPath()
+                .resolve("missing");
+
+        this.checkEquals(
+                "",
+                this.compute(root).digest(root)
+        );
+    }
+
+    @Test
+    public void testChangesNone() throws IOException {
+        final Path root = this.root();
+        this.write(root, "a/1.java", "1");
+
+        final MerkleTree tree = this.compute(root);
+        this.checkEquals(
+                Lists.empty(),
+                tree.changes(tree)
+        );
+    }
+
+    @Test
+    public void testChangesAfterSaveAndLoad() throws IOException {
+        final Path root = this.root();
+        this.write(root, "a/1.java", "1");
+        this.write(root, "a/2.java", "2");
+        this.write(root, "b/3.java", "3");
+
+        final J2clPath file = J2clPath.with(
+                this.base.newFile()
+                        .toPath()
+        );
+        this.compute(root)
+                .save(file);
+
+        this.write(root, "a/1.java", "11");
+        Files.delete(root.resolve("a/2.java"));
+        this.write(root, "a/4.java", "4");
+
+        final String prefix = root.toAbsolutePath().normalize() + "/";
+        this.checkEquals(
+                Lists.of(
+                        "* " + prefix + "a/1.java",
+                        "- " + prefix + "a/2.java",
+                        "+ " + prefix + "a/4.java"
+                ),
+                this.compute(root)
+                        .changes(MerkleTree.load(file))
+        );
+    }
+
+    private Path root() throws IOException {
+        return this.base.newFolder()
+                .toPath();
+    }
+
+    private void write(final Path root,
+                       final String path,
+                       final String content) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(Charset.defaultCharset()));
+    }
+
+    private MerkleTree compute(final Path root) throws IOException {
+        return MerkleTree.compute(
+                Lists.of(root),
+                FileDigestIndex.empty(HashAlgorithm.SHA1)
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<MerkleTree> type() {
+        return MerkleTree.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package walkingkooka.j2cl.maven.hash;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Test;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public final class Murmur3MessageDigestTest implements ClassTesting2<Murmur3MessageDigest> {
+
+    @Test
+    public void testEmpty() {
+        this.digestAndCheck(
+                "",
+                "00000000000000000000000000000000"
+        );
+    }
+
+    @Test
+    public void testHello() {
+        this.digestAndCheck(
+                "hello",
+                "029bbd41b3a7d8cb191dae486a901e5b"
+        );
+    }
+
+    @Test
+    public void testQuickBrownFox() {
+        this.digestAndCheck(
+                "The quick brown fox jumps over the lazy dog",
+                "6c1b07bc7bbc4be347939ac4a93c437a"
+        );
+    }
+
+    @Test
+    public void testUpdateInPieces() {
+        final byte[] content = new byte[1000];
+        new Random(1).nextBytes(content);
+
+        final Murmur3MessageDigest digest = Murmur3MessageDigest.empty();
+        digest.update(content);
+        final byte[] expected = digest.digest();
+
+        for (int first = 0; first < 40; first++) {
+            digest.update(content, 0, first);
+            for (int i = first; i < content.length; i += 7) {
+                digest.update(content, i, Math.min(7, content.length - i));
+            }
+
+            this.checkEquals(
+                    Hex.encodeHexString(expected),
+                    Hex.encodeHexString(digest.digest()),
+                    "first " + first
+            );
+        }
+    }
+
+    private void digestAndCheck(final String text,
+                                final String expected) {
+        final Murmur3MessageDigest digest = Murmur3MessageDigest.empty();
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+
+        this.checkEquals(
+                expected,
+                Hex.encodeHexString(digest.digest()),
+                text
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<Murmur3MessageDigest> type() {
+        return Murmur3MessageDigest.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
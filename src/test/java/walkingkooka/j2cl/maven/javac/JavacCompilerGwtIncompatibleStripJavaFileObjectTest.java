@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.j2cl.maven.javac;
+
+import com.google.j2cl.tools.gwtincompatible.GwtIncompatibleStripper;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class JavacCompilerGwtIncompatibleStripJavaFileObjectTest implements ClassTesting2<JavacCompilerGwtIncompatibleStripJavaFileObject> {
+
+    private final static String ANNOTATION = "package test;\n" +
+            "public @interface GwtIncompatible {\n" +
+            "  String value() default \"\";\n" +
+            "}\n";
+
+    private final static String SAMPLE = "package test;\n" +
+            "public class Sample {\n" +
+            "  public int kept() {\n" +
+            "    return 1;\n" +
+            "  }\n" +
+            "  @GwtIncompatible\n" +
+            "  public java.io.File removedMethod() {\n" +
+            "    return null;\n" +
+            "  }\n" +
+            "  @GwtIncompatible\n" +
+            "  public static class RemovedClass {\n" +
+            "  }\n" +
+            "}\n";
+
+    private final static String GENERATED = "package test;\n" +
+            "public class Generated {\n" +
+            "  public int kept() {\n" +
+            "    return 2;\n" +
+            "  }\n" +
+            "  @GwtIncompatible\n" +
+            "  public java.io.File removedMethod() {\n" +
+            "    return null;\n" +
+            "  }\n" +
+            "}\n";
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testSingleJavacSameAsStripThenJavac() throws IOException {
+        final Path sources = this.folder();
+        this.write(sources, "test/GwtIncompatible.java", ANNOTATION);
+        this.write(sources, "test/Sample.java", SAMPLE);
+
+        // the two javac mode compiles the stripped copy of the sources and generated sources.
+        final Path stripped = this.folder();
+        this.write(stripped, "test/GwtIncompatible.java", ANNOTATION);
+        this.write(stripped, "test/Sample.java", strip(SAMPLE));
+        this.write(stripped, "test/Generated.java", strip(GENERATED));
+
+        final Path twoJavac = this.folder();
+        this.compile(
+                stripped,
+                twoJavac,
+                false
+        );
+
+        // the single javac mode strips the sources and generated sources as javac reads them.
+        final Path singleJavac = this.folder();
+        this.compile(
+                sources,
+                singleJavac,
+                true
+        );
+
+        final Map<String, byte[]> expected = this.classFiles(twoJavac);
+        final Map<String, byte[]> actual = this.classFiles(singleJavac);
+
+        this.checkEquals(
+                expected.keySet(),
+                actual.keySet(),
+                "class files"
+        );
+        for (final String classFile : expected.keySet()) {
+            this.checkEquals(
+                    true,
+                    Arrays.equals(
+                            expected.get(classFile),
+                            actual.get(classFile)
+                    ),
+                    () -> classFile + " different"
+            );
+        }
+
+        final byte[] sample = actual.get("test/Sample.class");
+        this.checkEquals(
+                false,
+                new String(sample, StandardCharsets.ISO_8859_1).contains("removedMethod"),
+                "removedMethod stripped"
+        );
+        this.checkEquals(
+                false,
+                actual.containsKey("test/Sample$RemovedClass.class"),
+                "RemovedClass stripped"
+        );
+    }
+
+    private static String strip(final String source) {
+        return GwtIncompatibleStripper.processFile(
+                source,
+                "GwtIncompatible"
+        );
+    }
+
+    /**
+     * Compiles the java files under the source root, wrapping the sources and file manager like {@link JavacCompiler}
+     * when stripping, which also runs an annotation processor that generates a source.
+     */
+    private void compile(final Path sourceRoot,
+                         final Path output,
+                         final boolean stripGwtIncompatible) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            fileManager.setLocation(
+                    StandardLocation.CLASS_OUTPUT,
+                    Collections.singleton(output.toFile())
+            );
+
+            final List<JavaFileObject> javaFileObjects = Lists.array();
+            for (final JavaFileObject file : fileManager.getJavaFileObjectsFromPaths(this.javaFiles(sourceRoot))) {
+                javaFileObjects.add(
+                        stripGwtIncompatible ?
+                                JavacCompilerGwtIncompatibleStripJavaFileObject.with(file) :
+                                file
+                );
+            }
+
+            final List<String> options = Lists.array();
+            options.add("-implicit:none");
+            if (false == stripGwtIncompatible) {
+                options.add("-proc:none");
+            }
+
+            final JavaFileManager taskFileManager = stripGwtIncompatible ?
+                    JavacCompilerGwtIncompatibleStripFileManager.with(fileManager) :
+                    fileManager;
+            final JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    taskFileManager,
+                    null,
+                    options,
+                    null,
+                    javaFileObjects
+            );
+            if (stripGwtIncompatible) {
+                task.setProcessors(
+                        Lists.<Processor>of(
+                                new GeneratingProcessor()
+                        )
+                );
+            }
+
+            this.checkEquals(
+                    true,
+                    task.call(),
+                    () -> "compile " + sourceRoot
+            );
+        }
+    }
+
+    /**
+     * Generates a source with a @GwtIncompatible member, once.
+     */
+    @SupportedAnnotationTypes("*")
+    private final static class GeneratingProcessor extends AbstractProcessor {
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(final Set<? extends TypeElement> annotations,
+                               final RoundEnvironment round) {
+            if (false == this.generated) {
+                this.generated = true;
+
+                try (final Writer writer = this.processingEnv.getFiler()
+                        .createSourceFile("test.Generated")
+                        .openWriter()) {
+                    writer.write(GENERATED);
+                } catch (final IOException cause) {
+                    throw new UncheckedIOException(cause);
+                }
+            }
+            return false;
+        }
+
+        private boolean generated;
+    }
+
+    private List<Path> javaFiles(final Path root) throws IOException {
+        try (final Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> p.toString().endsWith(".java"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns the content of each class file keyed by its path relative to the root.
+     */
+    private Map<String, byte[]> classFiles(final Path root) throws IOException {
+        final Map<String, byte[]> classFiles = Maps.sorted();
+
+        try (final Stream<Path> files = Files.walk(root)) {
+            for (final Path file : files.filter(p -> p.toString().endsWith(".class")).collect(Collectors.toList())) {
+                classFiles.put(
+                        root.relativize(file)
+                                .toString()
+                                .replace('\\', '/'),
+                        Files.readAllBytes(file)
+                );
+            }
+        }
+
+        return classFiles;
+    }
+
+    private Path folder() throws IOException {
+        return this.base.newFolder()
+                .toPath();
+    }
+
+    private void write(final Path root,
+                       final String path,
+                       final String content) throws IOException {
+        final Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(
+                file,
+                content.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<JavacCompilerGwtIncompatibleStripJavaFileObject> type() {
+        return JavacCompilerGwtIncompatibleStripJavaFileObject.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven.javac;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+public final class JavacCompilerServiceTest implements ClassTesting2<JavacCompilerService> {
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testAcquireReleaseReused() throws IOException {
+        final JavacCompilerService service = JavacCompilerService.empty();
+        final List<J2clPath> entries = Lists.of(
+                this.archive("a.jar", "abc"),
+                this.directory("classes")
+        );
+
+        final JavacCompilerFileManager fileManager = service.acquire(entries);
+        service.release(fileManager);
+
+        this.checkEquals(
+                true,
+                fileManager == service.acquire(entries)
+        );
+        service.close(this.logger());
+    }
+
+    @Test
+    public void testAcquireArchiveReplaced() throws IOException {
+        final JavacCompilerService service = JavacCompilerService.empty();
+        final J2clPath archive = this.archive("a.jar", "abc");
+        final List<J2clPath> entries = Lists.of(archive);
+
+        final JavacCompilerFileManager fileManager = service.acquire(entries);
+        service.release(fileManager);
+
+        this.archive("a.jar", "abcdef");
+
+        this.checkEquals(
+                false,
+                fileManager == service.acquire(entries)
+        );
+        service.close(this.logger());
+    }
+
+    @Test
+    public void testAcquireMissingDirectoryCreated() throws IOException {
+        final JavacCompilerService service = JavacCompilerService.empty();
+        final J2clPath directory = J2clPath.with(
+                this.base.getRoot()
+                        .toPath()
+                        .resolve("classes")
+        );
+        final List<J2clPath> entries = Lists.of(directory);
+
+        final JavacCompilerFileManager fileManager = service.acquire(entries);
+        service.release(fileManager);
+
+        Files.createDirectories(directory.path());
+
+        this.checkEquals(
+                false,
+                fileManager == service.acquire(entries)
+        );
+        service.close(this.logger());
+    }
+
+    @Test
+    public void testAcquireOtherEntriesReused() throws IOException {
+        final JavacCompilerService service = JavacCompilerService.empty();
+
+        final JavacCompilerFileManager fileManager = service.acquire(
+                Lists.of(
+                        this.archive("a.jar", "abc")
+                )
+        );
+        service.release(fileManager);
+
+        this.checkEquals(
+                true,
+                fileManager == service.acquire(
+                        Lists.of(
+                                this.archive("b.jar", "xyz")
+                        )
+                )
+        );
+        service.close(this.logger());
+    }
+
+    private J2clPath archive(final String name,
+                             final String content) throws IOException {
+        final J2clPath file = J2clPath.with(
+                this.base.getRoot()
+                        .toPath()
+                        .resolve(name)
+        );
+        Files.write(
+                file.path(),
+                content.getBytes()
+        );
+        return file;
+    }
+
+    private J2clPath directory(final String name) throws IOException {
+        return J2clPath.with(
+                this.base.newFolder(name)
+                        .toPath()
+        );
+    }
+
+    private MavenLogger logger() {
+        return MavenLogger.maven(new SystemStreamLog());
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<JavacCompilerService> type() {
+        return JavacCompilerService.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package walkingkooka.j2cl.maven.strip;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.list.Lists;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.j2cl.maven.J2clArtifact;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.J2clTaskResult;
+import walkingkooka.j2cl.maven.J2clWorkspace;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.Set;
+
+public final class GwtIncompatibleStripPreprocessorTest implements ClassTesting2<GwtIncompatibleStripPreprocessor> {
+
+    private final static String KEPT = "package test;\n" +
+            "public class Kept {\n" +
+            "  public int kept() {\n" +
+            "    return 1;\n" +
+            "  }\n" +
+            "}\n";
+
+    private final static String STRIPPED = "package test;\n" +
+            "public class Stripped {\n" +
+            "  public int kept() {\n" +
+            "    return 1;\n" +
+            "  }\n" +
+            "  @GwtIncompatible\n" +
+            "  public java.io.File removed() {\n" +
+            "    return null;\n" +
+            "  }\n" +
+            "}\n";
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testNothingStrippedCreatesUnchangedFile() throws IOException {
+        final J2clPath source = this.folder();
+        this.write(source, "test/Kept.java", KEPT);
+
+        final J2clPath output = this.folder();
+        final J2clPath unchanged = this.unchangedFile();
+
+        this.executeAndCheck(
+                source,
+                output,
+                unchanged,
+                Optional.empty()
+        );
+
+        this.checkEquals(
+                KEPT,
+                this.read(output, "test/Kept.java")
+        );
+        this.checkUnchangedFile(unchanged, true);
+    }
+
+    @Test
+    public void testStrippedDoesNotCreateUnchangedFile() throws IOException {
+        final J2clPath source = this.folder();
+        this.write(source, "test/Kept.java", KEPT);
+        this.write(source, "test/Stripped.java", STRIPPED);
+
+        final J2clPath output = this.folder();
+        final J2clPath unchanged = this.unchangedFile();
+
+        this.executeAndCheck(
+                source,
+                output,
+                unchanged,
+                Optional.empty()
+        );
+
+        this.checkEquals(
+                KEPT,
+                this.read(output, "test/Kept.java")
+        );
+
+        final String stripped = this.read(output, "test/Stripped.java");
+        this.checkEquals(
+                false,
+                stripped.contains("removed"),
+                () -> stripped
+        );
+        this.checkUnchangedFile(unchanged, false);
+    }
+
+    @Test
+    public void testIgnoredDoesNotCreateUnchangedFile() throws IOException {
+        final J2clPath source = this.folder();
+        this.write(source, "test/Kept.java", KEPT);
+        this.write(source, "test/Ignored.java", KEPT.replace("Kept", "Ignored"));
+        this.write(source, J2clArtifact.IGNORED_FILES, "test/Ignored.java\n");
+
+        final J2clPath output = this.folder();
+        final J2clPath unchanged = this.unchangedFile();
+
+        this.executeAndCheck(
+                source,
+                output,
+                unchanged,
+                Optional.empty()
+        );
+
+        this.checkEquals(
+                Optional.empty(),
+                output.append("test/Ignored.java")
+                        .exists()
+        );
+        this.checkUnchangedFile(unchanged, false);
+    }
+
+    @Test
+    public void testChangedCompilationUnitsDoesNotCreateUnchangedFile() throws IOException {
+        final J2clPath source = this.folder();
+        this.write(source, "test/Kept.java", KEPT);
+
+        final J2clPath output = this.folder();
+        final J2clPath unchanged = this.unchangedFile();
+
+        // the output of other compilation units was kept, whether they were stripped is not known.
+        this.executeAndCheck(
+                source,
+                output,
+                unchanged,
+                Optional.of(
+                        Sets.of("test/Kept.java")
+                )
+        );
+
+        this.checkEquals(
+                KEPT,
+                this.read(output, "test/Kept.java")
+        );
+        this.checkUnchangedFile(unchanged, false);
+    }
+
+    private void executeAndCheck(final J2clPath source,
+                                 final J2clPath output,
+                                 final J2clPath unchanged,
+                                 final Optional<Set<String>> changedCompilationUnits) throws IOException {
+        final MavenLogger logger = MavenLogger.maven(new SystemStreamLog());
+
+        this.checkEquals(
+                J2clTaskResult.SUCCESS,
+                GwtIncompatibleStripPreprocessor.execute(
+                        Lists.of(source),
+                        output,
+                        unchanged,
+                        changedCompilationUnits,
+                        J2clWorkspace.with(
+                                0, // written immediately
+                                logger
+                        ),
+                        logger.treeLogger()
+                )
+        );
+    }
+
+    private void checkUnchangedFile(final J2clPath unchanged,
+                                    final boolean exists) {
+        this.checkEquals(
+                exists,
+                unchanged.exists()
+                        .isPresent(),
+                () -> unchanged + " exists"
+        );
+    }
+
+    private J2clPath folder() throws IOException {
+        return J2clPath.with(
+                this.base.newFolder()
+                        .toPath()
+        );
+    }
+
+    private J2clPath unchangedFile() {
+        return J2clPath.with(
+                this.base.getRoot()
+                        .toPath()
+                        .resolve("unchanged.txt")
+        );
+    }
+
+    private void write(final J2clPath root,
+                       final String path,
+                       final String content) throws IOException {
+        final J2clPath file = root.append(path);
+        Files.createDirectories(
+                file.path()
+                        .getParent()
+        );
+        Files.write(
+                file.path(),
+                content.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private String read(final J2clPath root,
+                        final String path) throws IOException {
+        return new String(
+                Files.readAllBytes(
+                        root.append(path)
+                                .path()
+                ),
+                StandardCharsets.UTF_8
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<GwtIncompatibleStripPreprocessor> type() {
+        return GwtIncompatibleStripPreprocessor.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven.transpile;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.map.Maps;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public final class J2clTranspilerServiceTest implements ClassTesting2<J2clTranspilerService> {
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testOpenReused() throws IOException {
+        final J2clTranspilerService service = J2clTranspilerService.empty();
+        final J2clPath archive = this.archive("a.jar");
+
+        this.checkEquals(
+                0,
+                service.open(
+                        Maps.of(archive, "1")
+                ),
+                "first"
+        );
+        this.checkEquals(
+                1,
+                service.open(
+                        Maps.of(archive, "1")
+                ),
+                "second"
+        );
+        service.close(this.logger());
+    }
+
+    @Test
+    public void testOpenFingerprintChanged() throws IOException {
+        final J2clTranspilerService service = J2clTranspilerService.empty();
+        final J2clPath archive = this.archive("a.jar");
+
+        service.open(
+                Maps.of(archive, "1")
+        );
+
+        this.checkEquals(
+                0,
+                service.open(
+                        Maps.of(archive, "2")
+                )
+        );
+        this.checkEquals(
+                "1 open archive(s)",
+                service.toString()
+        );
+        service.close(this.logger());
+    }
+
+    @Test
+    public void testCloseUnused() throws IOException {
+        final J2clTranspilerService service = J2clTranspilerService.empty();
+        final J2clPath used = this.archive("used.jar");
+        final J2clPath unused = this.archive("unused.jar");
+
+        service.open(
+                Maps.of(used, "1", unused, "1")
+        );
+        service.closeUnused(this.logger());
+
+        // the next build only uses one archive, the other is closed when it completes.
+        service.open(
+                Maps.of(used, "1")
+        );
+        service.closeUnused(this.logger());
+
+        this.checkEquals(
+                "1 open archive(s)",
+                service.toString()
+        );
+        this.checkEquals(
+                1,
+                service.open(
+                        Maps.of(used, "1")
+                ),
+                "used"
+        );
+        this.checkEquals(
+                0,
+                service.open(
+                        Maps.of(unused, "1")
+                ),
+                "unused"
+        );
+        service.close(this.logger());
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        final J2clTranspilerService service = J2clTranspilerService.empty();
+
+        service.open(
+                Maps.of(this.archive("a.jar"), "1")
+        );
+        service.close(this.logger());
+
+        this.checkEquals(
+                "0 open archive(s)",
+                service.toString()
+        );
+    }
+
+    private J2clPath archive(final String name) throws IOException {
+        final J2clPath file = J2clPath.with(
+                this.base.getRoot()
+                        .toPath()
+                        .resolve(name)
+        );
+
+        try (final OutputStream output = Files.newOutputStream(file.path());
+             final ZipOutputStream zip = new ZipOutputStream(output)) {
+            zip.putNextEntry(new ZipEntry("file.txt"));
+            zip.closeEntry();
+        }
+
+        return file;
+    }
+
+    private MavenLogger logger() {
+        return MavenLogger.maven(new SystemStreamLog());
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clTranspilerService> type() {
+        return J2clTranspilerService.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PUBLIC;
+    }
+}
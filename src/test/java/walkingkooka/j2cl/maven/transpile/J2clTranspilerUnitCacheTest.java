@@ -0,0 +1,441 @@
+/*
+ * Copyright 2019 Miroslav Pokorny (github.com/mP1)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package walkingkooka.j2cl.maven.transpile;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.rules.TemporaryFolder;
+import walkingkooka.collect.set.Sets;
+import walkingkooka.j2cl.maven.J2clClassDependencyGraph;
+import walkingkooka.j2cl.maven.J2clPath;
+import walkingkooka.j2cl.maven.J2clWorkspace;
+import walkingkooka.j2cl.maven.hash.HashAlgorithm;
+import walkingkooka.j2cl.maven.log.MavenLogger;
+import walkingkooka.reflect.ClassTesting2;
+import walkingkooka.reflect.JavaVisibility;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class J2clTranspilerUnitCacheTest implements ClassTesting2<J2clTranspilerUnitCache> {
+
+    private final static String A = "package p; public class A { public int method() { return 1; } }";
+
+    private final static String B = "package p; public class B { int call(A a) { return a.method(); } }";
+
+    private final static String D = "package p; public class D extends A {}";
+
+    private final static String E = "package p; public class E { Object call(D d) { return d; } }";
+
+    private final static String DEPENDENCIES = "dependencies";
+
+    @Rule
+    public final TemporaryFolder base = new TemporaryFolder();
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        this.base.create();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        this.base.delete();
+    }
+
+    @Test
+    public void testKeyUnitWithoutClasses() throws IOException {
+        this.checkEquals(
+                Optional.empty(),
+                this.key("p/Missing.java", DEPENDENCIES, A, B)
+        );
+    }
+
+    @Test
+    public void testKeySame() throws IOException {
+        final Optional<String> key = this.key("p/B.java", DEPENDENCIES, A, B);
+
+        this.checkEquals(
+                true,
+                key.isPresent(),
+                "key"
+        );
+        this.checkEquals(
+                key,
+                this.key("p/B.java", DEPENDENCIES, A, B)
+        );
+    }
+
+    @Test
+    public void testKeySourceChanged() throws IOException {
+        this.checkNotEquals(
+                this.key("p/B.java", DEPENDENCIES, A, B),
+                this.key("p/B.java", DEPENDENCIES, A, B.replace("a.method()", "a.method() + 1"))
+        );
+    }
+
+    @Test
+    public void testKeyDependenciesChanged() throws IOException {
+        this.checkNotEquals(
+                this.key("p/B.java", DEPENDENCIES, A, B),
+                this.key("p/B.java", "different", A, B)
+        );
+    }
+
+    @Test
+    public void testKeyReferencedMethodBodyChanged() throws IOException {
+        this.checkEquals(
+                this.key("p/B.java", DEPENDENCIES, A, B),
+                this.key("p/B.java", DEPENDENCIES, A.replace("return 1;", "return 2;"), B)
+        );
+    }
+
+    @Test
+    public void testKeySuperClassOfReferencedAbiChanged() throws IOException {
+        this.checkNotEquals(
+                this.key("p/E.java", DEPENDENCIES, A, D, E),
+                this.key(
+                        "p/E.java",
+                        DEPENDENCIES,
+                        A.replace("public int method()", "public long method()")
+                                .replace("return 1;", "return 1L;"),
+                        D,
+                        E
+                )
+        );
+    }
+
+    @Test
+    public void testSaveRestore() throws IOException {
+        final J2clTranspilerUnitCache cache = this.cache(DEPENDENCIES, A, B);
+        final String key = "1234567890abcdef";
+
+        final J2clPath output = this.folder();
+        this.write(output, "p/B.js", "B");
+        this.write(output, "p/B.impl.java.js", "B impl");
+        this.write(output, "p/A.js", "A");
+
+        this.checkEquals(
+                false,
+                cache.contains(key),
+                "contains before save"
+        );
+
+        cache.save("p/B.java", key, output);
+
+        this.checkEquals(
+                true,
+                cache.contains(key),
+                "contains after save"
+        );
+
+        final J2clPath restored = this.folder();
+        cache.restore(key, restored);
+
+        this.checkEquals(
+                Sets.of(
+                        restored.append("p").append("B.impl.java.js"),
+                        restored.append("p").append("B.js")
+                ),
+                restored.gatherFiles(J2clPath.ALL_FILES)
+        );
+        this.checkEquals(
+                "B impl",
+                this.read(restored, "p/B.impl.java.js")
+        );
+    }
+
+    @Test
+    public void testSaveTwice() throws IOException {
+        final J2clTranspilerUnitCache cache = this.cache(DEPENDENCIES, A, B);
+        final String key = "1234567890abcdef";
+
+        final J2clPath output = this.folder();
+        this.write(output, "p/B.js", "B");
+
+        cache.save("p/B.java", key, output);
+
+        this.write(output, "p/B.js", "B2");
+        cache.save("p/B.java", key, output);
+
+        final J2clPath restored = this.folder();
+        cache.restore(key, restored);
+
+        this.checkEquals(
+                "B",
+                this.read(restored, "p/B.js")
+        );
+    }
+
+    @Test
+    public void testRestoreKeepsExisting() throws IOException {
+        final J2clTranspilerUnitCache cache = this.cache(DEPENDENCIES, A, B);
+        final String key = "1234567890abcdef";
+
+        final J2clPath output = this.folder();
+        this.write(output, "p/B.js", "B");
+        this.write(output, "p/B.impl.java.js", "B impl");
+
+        cache.save("p/B.java", key, output);
+
+        final J2clPath restored = this.folder();
+        this.write(restored, "p/B.js", "existing");
+        cache.restore(key, restored);
+
+        this.checkEquals(
+                "existing",
+                this.read(restored, "p/B.js")
+        );
+        this.checkEquals(
+                "B impl",
+                this.read(restored, "p/B.impl.java.js")
+        );
+    }
+
+    @Test
+    public void testPruneUnused() throws IOException {
+        final J2clTranspilerUnitCache cache = this.cache(DEPENDENCIES, A, B);
+        final String unused = "1234567890abcdef";
+        final String used = "abcdef1234567890";
+
+        final J2clPath output = this.folder();
+        this.write(output, "p/B.js", "B");
+
+        cache.save("p/B.java", unused, output);
+        this.ageEntries();
+        cache.save("p/B.java", used, output);
+
+        this.checkEquals(
+                1,
+                J2clTranspilerUnitCache.prune(this.cacheDirectory()),
+                "pruned"
+        );
+        this.checkEquals(
+                false,
+                cache.contains(unused),
+                "contains unused"
+        );
+        this.checkEquals(
+                true,
+                cache.contains(used),
+                "contains used"
+        );
+    }
+
+    @Test
+    public void testPruneRestoredKept() throws IOException {
+        final J2clTranspilerUnitCache cache = this.cache(DEPENDENCIES, A, B);
+        final String key = "1234567890abcdef";
+
+        final J2clPath output = this.folder();
+        this.write(output, "p/B.js", "B");
+
+        cache.save("p/B.java", key, output);
+        this.ageEntries();
+        cache.restore(key, this.folder());
+
+        this.checkEquals(
+                0,
+                J2clTranspilerUnitCache.prune(this.cacheDirectory()),
+                "pruned"
+        );
+        this.checkEquals(
+                true,
+                cache.contains(key),
+                "contains"
+        );
+    }
+
+    @Test
+    public void testPruneOncePerDay() throws IOException {
+        final J2clTranspilerUnitCache cache = this.cache(DEPENDENCIES, A, B);
+        final String key = "1234567890abcdef";
+
+        final J2clPath output = this.folder();
+        this.write(output, "p/B.js", "B");
+
+        cache.save("p/B.java", key, output);
+        J2clTranspilerUnitCache.prune(this.cacheDirectory());
+
+        this.ageEntries();
+
+        this.checkEquals(
+                0,
+                J2clTranspilerUnitCache.prune(this.cacheDirectory()),
+                "pruned"
+        );
+        this.checkEquals(
+                true,
+                cache.contains(key),
+                "contains"
+        );
+    }
+
+    @Test
+    public void testPruneMissingDirectory() throws IOException {
+        this.checkEquals(
+                0,
+                J2clTranspilerUnitCache.prune(
+                        this.folder()
+                                .append("missing")
+                )
+        );
+    }
+
+    /**
+     * Makes every entry of the cache older than {@link J2clTranspilerUnitCache#MAX_AGE}.
+     */
+    private void ageEntries() throws IOException {
+        final Path directory = this.cacheDirectory()
+                .path();
+        final FileTime old = FileTime.fromMillis(
+                System.currentTimeMillis() - J2clTranspilerUnitCache.MAX_AGE - 1000
+        );
+
+        try (final Stream<Path> walk = Files.walk(directory, 2)) {
+            for (final Path entry : walk.filter(Files::isDirectory)
+                    .filter(e -> e.getNameCount() == directory.getNameCount() + 2)
+                    .collect(Collectors.toList())) {
+                Files.setLastModifiedTime(entry, old);
+            }
+        }
+    }
+
+    private Optional<String> key(final String unit,
+                                 final String dependencies,
+                                 final String... sources) throws IOException {
+        final J2clPath sourceRoot = this.folder();
+        return this.cache(sourceRoot, dependencies, sources)
+                .key(
+                        unit,
+                        sourceRoot,
+                        J2clWorkspace.with(
+                                0,
+                                MavenLogger.maven(new SystemStreamLog())
+                        )
+                );
+    }
+
+    private J2clTranspilerUnitCache cache(final String dependencies,
+                                          final String... sources) throws IOException {
+        return this.cache(
+                this.folder(),
+                dependencies,
+                sources
+        );
+    }
+
+    private J2clTranspilerUnitCache cache(final J2clPath sourceRoot,
+                                          final String dependencies,
+                                          final String... sources) throws IOException {
+        return J2clTranspilerUnitCache.with(
+                this.cacheDirectory(),
+                J2clClassDependencyGraph.build(
+                        this.compile(sourceRoot, sources),
+                        HashAlgorithm.SHA1
+                ),
+                dependencies,
+                HashAlgorithm.SHA1
+        );
+    }
+
+    private J2clPath cacheDirectory() throws IOException {
+        if (null == this.cacheDirectory) {
+            this.cacheDirectory = this.folder();
+        }
+        return this.cacheDirectory;
+    }
+
+    private J2clPath cacheDirectory;
+
+    private J2clPath compile(final J2clPath sourceRoot,
+                             final String... sources) throws IOException {
+        final J2clPath directory = this.folder();
+
+        final String[] arguments = new String[2 + sources.length];
+        arguments[0] = "-d";
+        arguments[1] = directory.toString();
+
+        int i = 2;
+        for (final String source : sources) {
+            final String name = source.substring(
+                    source.indexOf("class ") + "class ".length()
+            ).split(" ")[0];
+            arguments[i++] = this.write(sourceRoot, "p/" + name + ".java", source)
+                    .toString();
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        this.checkEquals(
+                0,
+                compiler.run(null, null, null, arguments),
+                () -> "compile " + String.join(" ", sources)
+        );
+        return directory;
+    }
+
+    private J2clPath folder() throws IOException {
+        return J2clPath.with(
+                this.base.newFolder()
+                        .toPath()
+        );
+    }
+
+    private Path write(final J2clPath directory,
+                       final String file,
+                       final String content) throws IOException {
+        final Path path = directory.path()
+                .resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(Charset.defaultCharset()));
+        return path;
+    }
+
+    private String read(final J2clPath directory,
+                        final String file) throws IOException {
+        return new String(
+                Files.readAllBytes(
+                        directory.path()
+                                .resolve(file)
+                ),
+                Charset.defaultCharset()
+        );
+    }
+
+    // ClassTesting.....................................................................................................
+
+    @Override
+    public Class<J2clTranspilerUnitCache> type() {
+        return J2clTranspilerUnitCache.class;
+    }
+
+    @Override
+    public JavaVisibility typeVisibility() {
+        return JavaVisibility.PACKAGE_PRIVATE;
+    }
+}